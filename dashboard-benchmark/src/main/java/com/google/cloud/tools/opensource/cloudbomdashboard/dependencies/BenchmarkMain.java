@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Runs the benchmarks with JMH's command line, writing the results as JSON to {@code
+ * target/jmh-result.json} unless the {@code -rf} or {@code -rff} options say otherwise. A result
+ * format given without a file goes to {@code target/jmh-result.<format>}, such as {@code
+ * target/jmh-result.csv} for {@code -rf csv}.
+ */
+public final class BenchmarkMain {
+
+  private static final String DEFAULT_RESULT_FILE = "target/jmh-result.";
+
+  private BenchmarkMain() {}
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    int resultFormatIndex = arguments.indexOf("-rf");
+    String resultFormat = "json";
+    if (resultFormatIndex < 0) {
+      arguments.add(0, "-rf");
+      arguments.add(1, resultFormat);
+    } else if (resultFormatIndex + 1 < arguments.size()) {
+      resultFormat = arguments.get(resultFormatIndex + 1).toLowerCase(Locale.ROOT);
+    }
+    int resultFileIndex = arguments.indexOf("-rff");
+    if (resultFileIndex < 0) {
+      // The extension follows the format, so that -rf csv does not write CSV to a .json file
+      arguments.add(0, "-rff");
+      arguments.add(1, DEFAULT_RESULT_FILE + resultFormat);
+      resultFileIndex = 0;
+    }
+    if (resultFileIndex + 1 < arguments.size()) {
+      // JMH does not create the directory of the result file
+      Path parent = Paths.get(arguments.get(resultFileIndex + 1)).toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+    }
+    Main.main(arguments.toArray(new String[0]));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of building a {@link DependencyGraph} and of the queries the dashboard runs on it,
+ * on trees generated by {@link SyntheticDependencyTree}. In the same package as {@link
+ * DependencyGraph} to reach its package-private methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencyGraphBenchmark {
+
+  private static final long SEED = 20201020L;
+
+  @Param({"3", "6"})
+  public int fanout;
+
+  @Param({"4", "6"})
+  public int depth;
+
+  @Param({"1", "4"})
+  public int versionDiversity;
+
+  @Param({"0", "0.5"})
+  public double sharedSubtreeRatio;
+
+  private DependencyNode root;
+  private DependencyGraph graph;
+  private List<DependencyPath> paths;
+  private Artifact rootArtifact;
+  // Dependencies from the root to the end of the longest path
+  private List<Dependency> longestPath;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    root =
+        SyntheticDependencyTree.generate(
+            fanout, depth, versionDiversity, sharedSubtreeRatio, SEED);
+    graph = DependencyGraph.from(root);
+    paths = graph.list();
+    rootArtifact = root.getArtifact();
+
+    DependencyPath longest = paths.get(0);
+    for (DependencyPath path : paths) {
+      if (path.size() > longest.size()) {
+        longest = path;
+      }
+    }
+    longestPath = new ArrayList<>();
+    DependencyNode node = root;
+    for (int i = 1; i < longest.size(); i++) {
+      Artifact artifact = longest.get(i);
+      for (DependencyNode child : node.getChildren()) {
+        if (child.getArtifact().equals(artifact)) {
+          node = child;
+          break;
+        }
+      }
+      longestPath.add(node.getDependency());
+    }
+  }
+
+  @Benchmark
+  public DependencyGraph from() {
+    return DependencyGraph.from(root);
+  }
+
+  @Benchmark
+  public List<DependencyPath> findConflicts() {
+    return graph.findConflicts();
+  }
+
+  @Benchmark
+  public List<Update> findUpdates() {
+    return graph.findUpdates();
+  }
+
+  @Benchmark
+  public Map<String, String> getHighestVersionMap() {
+    return graph.getHighestVersionMap();
+  }
+
+  /** Builds the longest path one dependency at a time, as DependencyGraph.from does. */
+  @Benchmark
+  public DependencyPath dependencyPathAppend() {
+    DependencyPath path = new DependencyPath(rootArtifact);
+    for (Dependency dependency : longestPath) {
+      path = path.append(dependency);
+    }
+    return path;
+  }
+
+  @Benchmark
+  public void dependencyPathGetParentPath(Blackhole blackhole) {
+    for (DependencyPath path : paths) {
+      blackhole.consume(path.getParentPath());
+    }
+  }
+
+  /** Hashes and compares every path, as the maps keyed by paths do. */
+  @Benchmark
+  public int dependencyPathHashSet() {
+    return new HashSet<>(paths).size();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Generates dependency trees for benchmarks. The same parameters and seed generate the same tree,
+ * so that results of different runs are comparable.
+ */
+final class SyntheticDependencyTree {
+
+  private final int fanout;
+  private final int versionDiversity;
+  private final double sharedSubtreeRatio;
+  private final int artifactCount;
+  private final Random random;
+  // Nodes generated so far by height, where leaves have height 0, for sharing subtrees
+  private final List<List<DependencyNode>> nodesByHeight = new ArrayList<>();
+
+  private SyntheticDependencyTree(
+      int fanout, int depth, int versionDiversity, double sharedSubtreeRatio, long seed) {
+    this.fanout = fanout;
+    this.versionDiversity = versionDiversity;
+    this.sharedSubtreeRatio = sharedSubtreeRatio;
+    // Few enough artifacts to repeat across the tree, as real trees do
+    this.artifactCount = Math.max(16, fanout * depth * 4);
+    this.random = new Random(seed);
+    for (int height = 0; height < depth; height++) {
+      nodesByHeight.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Returns the root of a generated tree.
+   *
+   * @param fanout number of children of each node that is not a leaf
+   * @param depth number of levels below the root
+   * @param versionDiversity number of versions of each artifact
+   * @param sharedSubtreeRatio probability in [0, 1] that a child is a subtree generated before
+   *     instead of a new one
+   * @param seed seed of the random choices
+   */
+  static DependencyNode generate(
+      int fanout, int depth, int versionDiversity, double sharedSubtreeRatio, long seed) {
+    checkArgument(fanout > 0, "fanout should be positive: %s", fanout);
+    checkArgument(depth > 0, "depth should be positive: %s", depth);
+    checkArgument(
+        versionDiversity > 0, "versionDiversity should be positive: %s", versionDiversity);
+    checkArgument(
+        sharedSubtreeRatio >= 0 && sharedSubtreeRatio <= 1,
+        "sharedSubtreeRatio should be in [0, 1]: %s",
+        sharedSubtreeRatio);
+
+    SyntheticDependencyTree tree =
+        new SyntheticDependencyTree(fanout, depth, versionDiversity, sharedSubtreeRatio, seed);
+    DefaultDependencyNode root =
+        new DefaultDependencyNode(
+            new Dependency(new DefaultArtifact("com.example:root:1.0"), "compile"));
+    root.setChildren(tree.children(depth - 1));
+    return root;
+  }
+
+  private List<DependencyNode> children(int height) {
+    List<DependencyNode> children = new ArrayList<>(fanout);
+    for (int i = 0; i < fanout; i++) {
+      children.add(node(height));
+    }
+    return children;
+  }
+
+  private DependencyNode node(int height) {
+    List<DependencyNode> generated = nodesByHeight.get(height);
+    if (!generated.isEmpty() && random.nextDouble() < sharedSubtreeRatio) {
+      return generated.get(random.nextInt(generated.size()));
+    }
+    String coordinates =
+        "com.example:artifact-" + random.nextInt(artifactCount)
+            + ":1." + random.nextInt(versionDiversity);
+    DefaultDependencyNode node =
+        new DefaultDependencyNode(new Dependency(new DefaultArtifact(coordinates), "compile"));
+    if (height > 0) {
+      node.setChildren(children(height - 1));
+    }
+    generated.add(node);
+    return node;
+  }
+}
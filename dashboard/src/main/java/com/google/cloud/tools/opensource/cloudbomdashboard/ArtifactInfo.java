@@ -17,8 +17,18 @@
 package com.google.cloud.tools.opensource.cloudbomdashboard;
 
 import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
 
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.ArtifactProblem;
 import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.UnresolvableArtifactProblem;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Update;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.VersionComparator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Comparator;
+import java.util.Map;
 
 /** 
  * Cache of info looked up for an artifact.
@@ -27,12 +37,23 @@ class ArtifactInfo {
 
   private DependencyGraph completeDependencies;
   private DependencyGraph transitiveDependencies;
+  private ImmutableList<ArtifactProblem> linkageProblems = ImmutableList.of();
+  private ImmutableList<ArtifactProblem> duplicateClassProblems = ImmutableList.of();
   private RepositoryException exception;
 
+  // Computed on first use, as both the HTML and the JSON report read them
+  private ImmutableList<Update> convergenceIssues;
+  private ImmutableMap<Artifact, Artifact> upperBoundFailures;
+  private ImmutableList<UnresolvableArtifactProblem> unresolvedArtifacts;
+
   ArtifactInfo(DependencyGraph completeDependencies,
-      DependencyGraph transitiveDependencies) {
+      DependencyGraph transitiveDependencies,
+      ImmutableList<ArtifactProblem> linkageProblems,
+      ImmutableList<ArtifactProblem> duplicateClassProblems) {
     this.completeDependencies = completeDependencies;
     this.transitiveDependencies = transitiveDependencies;
+    this.linkageProblems = linkageProblems;
+    this.duplicateClassProblems = duplicateClassProblems;
   }
 
   ArtifactInfo(RepositoryException ex) {
@@ -47,8 +68,87 @@ class ArtifactInfo {
     return transitiveDependencies;
   }
 
+  /** Returns the problems found by the linkage check on the transitive dependencies. */
+  ImmutableList<ArtifactProblem> getLinkageProblems() {
+    return linkageProblems;
+  }
+
+  /** Returns the classes in the transitive dependencies that are shadowed by other artifacts. */
+  ImmutableList<ArtifactProblem> getDuplicateClassProblems() {
+    return duplicateClassProblems;
+  }
+
   RepositoryException getException() {
     return exception;
   }
 
+  /**
+   * Returns the artifacts of the transitive dependencies, the member included, that could not be
+   * resolved, in the order of their descriptions.
+   */
+  synchronized ImmutableList<UnresolvableArtifactProblem> getUnresolvedArtifacts() {
+    if (unresolvedArtifacts == null) {
+      unresolvedArtifacts =
+          exception != null
+              ? ImmutableList.of()
+              : ImmutableList.sortedCopyOf(
+                  Comparator.comparing(UnresolvableArtifactProblem::toString),
+                  transitiveDependencies.getUnresolvedArtifacts());
+    }
+    return unresolvedArtifacts;
+  }
+
+  /** Returns true if the member or one of its transitive dependencies could not be resolved. */
+  boolean isUnresolved() {
+    return exception != null || !getUnresolvedArtifacts().isEmpty();
+  }
+
+  /** Returns the updates that make the complete dependencies converge. */
+  synchronized ImmutableList<Update> getConvergenceIssues() {
+    if (convergenceIssues == null) {
+      convergenceIssues = ImmutableList.copyOf(completeDependencies.findUpdates());
+    }
+    return convergenceIssues;
+  }
+
+  /**
+   * Returns the artifacts in the transitive dependencies whose versions are lower than the highest
+   * version in the complete dependencies, mapped to the highest version.
+   */
+  synchronized ImmutableMap<Artifact, Artifact> getUpperBoundFailures() {
+    if (upperBoundFailures == null) {
+      upperBoundFailures =
+          findUpperBoundsFailures(
+              completeDependencies.getHighestVersionMap(), transitiveDependencies);
+    }
+    return upperBoundFailures;
+  }
+
+  private static ImmutableMap<Artifact, Artifact> findUpperBoundsFailures(
+      Map<String, String> expectedVersionMap,
+      DependencyGraph transitiveDependencies) {
+
+    Map<String, String> actualVersionMap = transitiveDependencies.getHighestVersionMap();
+
+    VersionComparator comparator = new VersionComparator();
+
+    ImmutableMap.Builder<Artifact, Artifact> upperBoundFailures = ImmutableMap.builder();
+
+    for (String id : expectedVersionMap.keySet()) {
+      String expectedVersion = expectedVersionMap.get(id);
+      String actualVersion = actualVersionMap.get(id);
+      // Check that the actual version is not null because it is
+      // possible for dependencies to appear or disappear from the tree
+      // depending on which version of another dependency is loaded.
+      // In both cases, no action is needed.
+      if (actualVersion != null && comparator.compare(actualVersion, expectedVersion) < 0) {
+        // Maven did not choose highest version
+        DefaultArtifact lower = new DefaultArtifact(id + ":" + actualVersion);
+        DefaultArtifact upper = new DefaultArtifact(id + ":" + expectedVersion);
+        upperBoundFailures.put(lower, upper);
+      }
+    }
+    return upperBoundFailures.build();
+  }
+
 }
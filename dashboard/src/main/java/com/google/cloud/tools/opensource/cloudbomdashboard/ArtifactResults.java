@@ -17,13 +17,16 @@
 package com.google.cloud.tools.opensource.cloudbomdashboard;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
 import org.eclipse.aether.artifact.Artifact;
 
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.ArtifactProblem;
 import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Collection of test results for a single artifact.
@@ -33,6 +36,7 @@ public final class ArtifactResults {
   private final Map<String, Integer> results = new HashMap<>();
   private final Artifact artifact;
   private String exceptionMessage;
+  private final Map<String, ImmutableList<ArtifactProblem>> problems = new HashMap<>();
 
   public ArtifactResults(Artifact artifact) {
     this.artifact = artifact;
@@ -46,6 +50,20 @@ public final class ArtifactResults {
     results.put(testName, failures);
   }
 
+  /** Records {@code problems} as the failures of {@code testName}. */
+  void addProblems(String testName, List<? extends ArtifactProblem> problems) {
+    this.problems.put(testName, ImmutableList.copyOf(problems));
+    addResult(testName, problems.size());
+  }
+
+  /**
+   * @return problems found by the specified test, empty if the test did not run or does not
+   *     report problems
+   */
+  public ImmutableList<ArtifactProblem> getProblems(String testName) {
+    return problems.getOrDefault(testName, ImmutableList.of());
+  }
+
   /**
    * @return true for pass, false for fail, null for unknown test
    */
@@ -0,0 +1,618 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyTreeSnapshot;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Differences between two runs of the dashboard, computed from their {@link JsonReportWriter}
+ * reports without resolving any dependency: members added to or removed from the BOM, and for
+ * each member in both, changes in its dependency tree, in its test results, and in its
+ * convergence and upper bound failures.
+ *
+ * <p>Members and tree nodes are matched by group ID and artifact ID, as their versions are what
+ * changes between BOM versions. Subtrees with the same hash in both {@link DependencyTreeSnapshot
+ * snapshots} are identical and skipped, so that the time to compare two trees grows with their
+ * differences rather than their size.
+ */
+public final class BomDiff {
+
+  static final int SCHEMA_VERSION = 1;
+
+  // Schema versions of the reports that can be compared. Version 1 had the generation time in the
+  // header rather than in the run file, and the timings that are not compared.
+  private static final ImmutableSet<Integer> REPORT_SCHEMA_VERSIONS =
+      ImmutableSet.of(1, JsonReportWriter.SCHEMA_VERSION);
+
+  /** A subtree added or removed, or a node whose version changed, in a member's tree. */
+  public static final class TreeChange {
+    private final String type;
+    private final String path;
+    @Nullable private final String from;
+    @Nullable private final String to;
+    private final int subtreeSize;
+
+    private TreeChange(
+        String type, String path, @Nullable String from, @Nullable String to, int subtreeSize) {
+      this.type = type;
+      this.path = path;
+      this.from = from;
+      this.to = to;
+      this.subtreeSize = subtreeSize;
+    }
+
+    /** Returns {@code added}, {@code removed}, or {@code changed}. */
+    public String getType() {
+      return type;
+    }
+
+    /** Returns the group IDs and artifact IDs from the member's dependency to the node. */
+    public String getPath() {
+      return path;
+    }
+
+    /** Returns the version before the change. Null for an added subtree. */
+    @Nullable
+    public String getFrom() {
+      return from;
+    }
+
+    /** Returns the version after the change. Null for a removed subtree. */
+    @Nullable
+    public String getTo() {
+      return to;
+    }
+
+    /** Returns the number of artifacts in the added or removed subtree; 1 for a changed node. */
+    public int getSubtreeSize() {
+      return subtreeSize;
+    }
+  }
+
+  /** A test whose number of failures changed. Null counts are for a test that did not run. */
+  public static final class TestChange {
+    private final String testName;
+    @Nullable private final Integer from;
+    @Nullable private final Integer to;
+
+    private TestChange(String testName, @Nullable Integer from, @Nullable Integer to) {
+      this.testName = testName;
+      this.from = from;
+      this.to = to;
+    }
+
+    public String getTestName() {
+      return testName;
+    }
+
+    @Nullable
+    public Integer getFrom() {
+      return from;
+    }
+
+    @Nullable
+    public Integer getTo() {
+      return to;
+    }
+
+    /** Returns true if the member fails the test now and did not fail it as much before. */
+    public boolean isRegression() {
+      return to != null && to > 0 && (from == null || from < to);
+    }
+  }
+
+  /** Changes of a member in both runs. */
+  public static final class MemberDiff {
+    private final String key;
+    private final String oldVersion;
+    private final String newVersion;
+    private final boolean treeCompared;
+    private final List<TreeChange> treeChanges = new ArrayList<>();
+    private final List<TestChange> testChanges = new ArrayList<>();
+    private final List<String> newConvergenceFailures = new ArrayList<>();
+    private final List<String> fixedConvergenceFailures = new ArrayList<>();
+    private final List<String> newUpperBoundFailures = new ArrayList<>();
+    private final List<String> fixedUpperBoundFailures = new ArrayList<>();
+
+    private MemberDiff(String key, String oldVersion, String newVersion, boolean treeCompared) {
+      this.key = key;
+      this.oldVersion = oldVersion;
+      this.newVersion = newVersion;
+      this.treeCompared = treeCompared;
+    }
+
+    private boolean isEmpty() {
+      return oldVersion.equals(newVersion)
+          && treeChanges.isEmpty()
+          && testChanges.isEmpty()
+          && newConvergenceFailures.isEmpty()
+          && fixedConvergenceFailures.isEmpty()
+          && newUpperBoundFailures.isEmpty()
+          && fixedUpperBoundFailures.isEmpty();
+    }
+
+    /** Returns the group ID and artifact ID of the member. */
+    public String getKey() {
+      return key;
+    }
+
+    public String getOldVersion() {
+      return oldVersion;
+    }
+
+    public String getNewVersion() {
+      return newVersion;
+    }
+
+    /** Returns false if a report has no dependency tree for the member, as in older reports. */
+    public boolean isTreeCompared() {
+      return treeCompared;
+    }
+
+    public List<TreeChange> getTreeChanges() {
+      return treeChanges;
+    }
+
+    public List<TestChange> getTestChanges() {
+      return testChanges;
+    }
+
+    public List<String> getNewConvergenceFailures() {
+      return newConvergenceFailures;
+    }
+
+    public List<String> getFixedConvergenceFailures() {
+      return fixedConvergenceFailures;
+    }
+
+    public List<String> getNewUpperBoundFailures() {
+      return newUpperBoundFailures;
+    }
+
+    public List<String> getFixedUpperBoundFailures() {
+      return fixedUpperBoundFailures;
+    }
+  }
+
+  /** The header of a report with its member records. */
+  private static final class Report {
+    private final Map<String, Member> members = new LinkedHashMap<>();
+    private String bom;
+    @Nullable private Instant generatedAt;
+  }
+
+  /** A member record of a report. */
+  private static final class Member {
+    private final String coordinates;
+    private final Map<String, Integer> failures = new LinkedHashMap<>();
+    // Keys identifying a failure across versions, to their descriptions
+    private final Map<String, String> convergenceFailures = new LinkedHashMap<>();
+    private final Map<String, String> upperBoundFailures = new LinkedHashMap<>();
+    @Nullable private DependencyTreeSnapshot tree;
+
+    private Member(String coordinates) {
+      this.coordinates = coordinates;
+    }
+  }
+
+  private final String oldBom;
+  private final String newBom;
+  @Nullable private final Instant oldGeneratedAt;
+  @Nullable private final Instant newGeneratedAt;
+  private final List<String> addedMembers = new ArrayList<>();
+  private final List<String> removedMembers = new ArrayList<>();
+  private final List<MemberDiff> memberDiffs = new ArrayList<>();
+  private int unchangedMemberCount;
+  private long comparedNodeCount;
+  private long skippedNodeCount;
+
+  private BomDiff(Report oldReport, Report newReport) {
+    this.oldBom = oldReport.bom;
+    this.newBom = newReport.bom;
+    this.oldGeneratedAt = oldReport.generatedAt;
+    this.newGeneratedAt = newReport.generatedAt;
+  }
+
+  /**
+   * Compares the runs of two reports.
+   *
+   * @throws IOException if a report cannot be read, is not valid, or has an unknown schema version
+   */
+  static BomDiff compare(Path oldReport, Path newReport) throws IOException {
+    Report oldRun = readReport(oldReport);
+    Report newRun = readReport(newReport);
+    Map<String, Member> oldMembers = oldRun.members;
+
+    BomDiff diff = new BomDiff(oldRun, newRun);
+    for (Map.Entry<String, Member> entry : newRun.members.entrySet()) {
+      Member oldMember = oldMembers.remove(entry.getKey());
+      if (oldMember == null) {
+        diff.addedMembers.add(entry.getValue().coordinates);
+      } else {
+        diff.compareMembers(entry.getKey(), oldMember, entry.getValue());
+      }
+    }
+    for (Member removed : oldMembers.values()) {
+      diff.removedMembers.add(removed.coordinates);
+    }
+    return diff;
+  }
+
+  private void compareMembers(String key, Member oldMember, Member newMember) {
+    boolean treeCompared = oldMember.tree != null && newMember.tree != null;
+    MemberDiff memberDiff =
+        new MemberDiff(
+            key, version(oldMember.coordinates), version(newMember.coordinates), treeCompared);
+    if (treeCompared) {
+      compareTrees(oldMember.tree, newMember.tree, memberDiff.treeChanges);
+    }
+
+    for (Map.Entry<String, Integer> result : newMember.failures.entrySet()) {
+      String testName = result.getKey();
+      Integer from = oldMember.failures.get(testName);
+      Integer to = result.getValue();
+      if (from == null ? to != null : !from.equals(to)) {
+        memberDiff.testChanges.add(new TestChange(testName, from, to));
+      }
+    }
+
+    addMissing(newMember.convergenceFailures, oldMember.convergenceFailures,
+        memberDiff.newConvergenceFailures);
+    addMissing(oldMember.convergenceFailures, newMember.convergenceFailures,
+        memberDiff.fixedConvergenceFailures);
+    addMissing(newMember.upperBoundFailures, oldMember.upperBoundFailures,
+        memberDiff.newUpperBoundFailures);
+    addMissing(oldMember.upperBoundFailures, newMember.upperBoundFailures,
+        memberDiff.fixedUpperBoundFailures);
+
+    if (memberDiff.isEmpty()) {
+      unchangedMemberCount++;
+    } else {
+      memberDiffs.add(memberDiff);
+    }
+  }
+
+  /** Adds the descriptions of the {@code failures} whose keys are not in {@code others}. */
+  private static void addMissing(
+      Map<String, String> failures, Map<String, String> others, List<String> output) {
+    for (Map.Entry<String, String> failure : failures.entrySet()) {
+      if (!others.containsKey(failure.getKey())) {
+        output.add(failure.getValue());
+      }
+    }
+  }
+
+  /**
+   * Walks the two trees from their roots, matching children by group ID and artifact ID and
+   * skipping matched subtrees with the same hash.
+   */
+  private void compareTrees(
+      DependencyTreeSnapshot oldTree, DependencyTreeSnapshot newTree, List<TreeChange> changes) {
+    // Pairs of matched nodes, with the path to them
+    Deque<int[]> pending = new ArrayDeque<>();
+    Deque<String> paths = new ArrayDeque<>();
+    pending.push(new int[] {0, 0});
+    paths.push("");
+    while (!pending.isEmpty()) {
+      int[] pair = pending.pop();
+      String path = paths.pop();
+      int oldNode = pair[0];
+      int newNode = pair[1];
+      comparedNodeCount++;
+      if (oldTree.getHash(oldNode) == newTree.getHash(newNode)) {
+        skippedNodeCount += newTree.getSubtreeSize(newNode) - 1;
+        continue;
+      }
+      String oldCoordinates = oldTree.getCoordinates(oldNode);
+      String newCoordinates = newTree.getCoordinates(newNode);
+      // The member itself is reported by MemberDiff
+      if (!path.isEmpty() && !oldCoordinates.equals(newCoordinates)) {
+        changes.add(
+            new TreeChange(
+                "changed", path, version(oldCoordinates), version(newCoordinates), 1));
+      }
+
+      Map<String, Integer> oldChildren = new HashMap<>();
+      for (int child : oldTree.getChildren(oldNode)) {
+        oldChildren.putIfAbsent(key(oldTree.getCoordinates(child)), child);
+      }
+      List<int[]> matched = new ArrayList<>();
+      List<String> matchedPaths = new ArrayList<>();
+      for (int child : newTree.getChildren(newNode)) {
+        String childCoordinates = newTree.getCoordinates(child);
+        String childPath = append(path, key(childCoordinates));
+        Integer oldChild = oldChildren.remove(key(childCoordinates));
+        if (oldChild == null) {
+          changes.add(
+              new TreeChange(
+                  "added",
+                  childPath,
+                  null,
+                  version(childCoordinates),
+                  newTree.getSubtreeSize(child)));
+        } else {
+          matched.add(new int[] {oldChild, child});
+          matchedPaths.add(childPath);
+        }
+      }
+      for (Map.Entry<String, Integer> removed : oldChildren.entrySet()) {
+        int oldChild = removed.getValue();
+        changes.add(
+            new TreeChange(
+                "removed",
+                append(path, removed.getKey()),
+                version(oldTree.getCoordinates(oldChild)),
+                null,
+                oldTree.getSubtreeSize(oldChild)));
+      }
+      // Pushed in reverse, so that matched children are visited in order
+      for (int i = matched.size() - 1; i >= 0; i--) {
+        pending.push(matched.get(i));
+        paths.push(matchedPaths.get(i));
+      }
+    }
+  }
+
+  private static String append(String path, String key) {
+    return path.isEmpty() ? key : path + " > " + key;
+  }
+
+  /** Returns the group ID and artifact ID of coordinates. */
+  private static String key(String coordinates) {
+    int lastColon = coordinates.lastIndexOf(':');
+    return lastColon < 0 ? coordinates : coordinates.substring(0, lastColon);
+  }
+
+  private static String version(String coordinates) {
+    return coordinates.substring(coordinates.lastIndexOf(':') + 1);
+  }
+
+  /**
+   * Reads the header and the member records of {@code report}, and the generation time from the
+   * header of a version 1 report or from the run file next to a later one.
+   */
+  private static Report readReport(Path report) throws IOException {
+    Report run = new Report();
+    int schemaVersion = 0;
+    try (BufferedReader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+        String type = field(record, "type", report).getAsString();
+        if ("header".equals(type)) {
+          schemaVersion = field(record, "schemaVersion", report).getAsInt();
+          if (!REPORT_SCHEMA_VERSIONS.contains(schemaVersion)) {
+            throw new IOException(
+                report + " has schema version " + schemaVersion + "; supported versions are "
+                    + REPORT_SCHEMA_VERSIONS);
+          }
+          run.bom = field(record, "bom", report).getAsString();
+          if (schemaVersion == 1) {
+            run.generatedAt = parseInstant(field(record, "generatedAt", report), report);
+          }
+        } else if ("member".equals(type)) {
+          Member member = readMember(record, report);
+          run.members.put(key(member.coordinates), member);
+        }
+      }
+    } catch (JsonParseException | IllegalStateException | IllegalArgumentException
+        | UnsupportedOperationException ex) {
+      // Thrown for malformed JSON, for values of unexpected types, and for invalid trees
+      throw new IOException(report + " is not a valid report", ex);
+    }
+    if (run.bom == null) {
+      throw new IOException(report + " has no header");
+    }
+    if (schemaVersion > 1) {
+      run.generatedAt = readGeneratedAt(report.resolveSibling(DashboardMain.RUN_FILE_NAME));
+    }
+    return run;
+  }
+
+  /** Returns the generation time in {@code runFile}. Null if the run has no run file. */
+  @Nullable
+  private static Instant readGeneratedAt(Path runFile) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(runFile, StandardCharsets.UTF_8)) {
+      JsonObject run = JsonParser.parseReader(reader).getAsJsonObject();
+      return parseInstant(field(run, "generatedAt", runFile), runFile);
+    } catch (NoSuchFileException ex) {
+      return null;
+    } catch (JsonParseException | IllegalStateException | UnsupportedOperationException ex) {
+      throw new IOException(runFile + " is not a valid run file", ex);
+    }
+  }
+
+  private static Instant parseInstant(JsonElement value, Path file) throws IOException {
+    try {
+      return Instant.parse(value.getAsString());
+    } catch (DateTimeParseException ex) {
+      throw new IOException(file + " has an invalid generation time", ex);
+    }
+  }
+
+  private static Member readMember(JsonObject record, Path report) throws IOException {
+    Member member = new Member(field(record, "coordinates", report).getAsString());
+    for (Map.Entry<String, JsonElement> result :
+        field(record, "results", report).getAsJsonObject().entrySet()) {
+      JsonElement passed = result.getValue().getAsJsonObject().get("passed");
+      member.failures.put(
+          result.getKey(),
+          passed == null || passed.isJsonNull()
+              ? null
+              : field(result.getValue().getAsJsonObject(), "failures", report).getAsInt());
+    }
+    for (JsonElement element : field(record, "updates", report).getAsJsonArray()) {
+      JsonObject update = element.getAsJsonObject();
+      String parent = field(update, "parent", report).getAsString();
+      String from = field(update, "from", report).getAsString();
+      String to = field(update, "to", report).getAsString();
+      member.convergenceFailures.put(
+          key(parent) + " " + key(from), parent + " needs " + from + " updated to " + to);
+    }
+    for (JsonElement element : field(record, "upperBoundFailures", report).getAsJsonArray()) {
+      JsonObject failure = element.getAsJsonObject();
+      String selected = field(failure, "selected", report).getAsString();
+      String highest = field(failure, "highest", report).getAsString();
+      member.upperBoundFailures.put(
+          key(selected), selected + " is selected instead of " + version(highest));
+    }
+    JsonElement tree = record.get("dependencyTree");
+    if (tree != null) {
+      member.tree = DependencyTreeSnapshot.read(tree.getAsJsonArray());
+    }
+    return member;
+  }
+
+  private static JsonElement field(JsonObject record, String name, Path report)
+      throws IOException {
+    JsonElement value = record.get(name);
+    if (value == null) {
+      throw new IOException(report + " has a record without " + name);
+    }
+    return value;
+  }
+
+  /** Writes the differences as one JSON object. */
+  void writeJson(Writer writer) throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("schemaVersion").value(SCHEMA_VERSION);
+    json.name("oldBom").value(oldBom);
+    json.name("newBom").value(newBom);
+    writeStrings(json, "addedMembers", addedMembers);
+    writeStrings(json, "removedMembers", removedMembers);
+    json.name("unchangedMemberCount").value(unchangedMemberCount);
+    json.name("comparedNodeCount").value(comparedNodeCount);
+    json.name("skippedNodeCount").value(skippedNodeCount);
+    json.name("members").beginArray();
+    for (MemberDiff member : memberDiffs) {
+      json.beginObject();
+      json.name("key").value(member.key);
+      json.name("oldVersion").value(member.oldVersion);
+      json.name("newVersion").value(member.newVersion);
+      json.name("treeCompared").value(member.treeCompared);
+      json.name("treeChanges").beginArray();
+      for (TreeChange change : member.treeChanges) {
+        json.beginObject();
+        json.name("type").value(change.type);
+        json.name("path").value(change.path);
+        json.name("from").value(change.from);
+        json.name("to").value(change.to);
+        json.name("subtreeSize").value(change.subtreeSize);
+        json.endObject();
+      }
+      json.endArray();
+      json.name("testChanges").beginArray();
+      for (TestChange change : member.testChanges) {
+        json.beginObject();
+        json.name("test").value(change.testName);
+        json.name("from").value(change.from);
+        json.name("to").value(change.to);
+        json.endObject();
+      }
+      json.endArray();
+      writeStrings(json, "newConvergenceFailures", member.newConvergenceFailures);
+      writeStrings(json, "fixedConvergenceFailures", member.fixedConvergenceFailures);
+      writeStrings(json, "newUpperBoundFailures", member.newUpperBoundFailures);
+      writeStrings(json, "fixedUpperBoundFailures", member.fixedUpperBoundFailures);
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private static void writeStrings(JsonWriter json, String name, List<String> values)
+      throws IOException {
+    json.name(name).beginArray();
+    for (String value : values) {
+      json.value(value);
+    }
+    json.endArray();
+  }
+
+  public String getOldBom() {
+    return oldBom;
+  }
+
+  public String getNewBom() {
+    return newBom;
+  }
+
+  /**
+   * Returns the generation time of the later of the two runs, so that the same two runs always
+   * render the same page. Null if neither run has a recorded generation time.
+   */
+  @Nullable
+  Instant getGeneratedAt() {
+    if (oldGeneratedAt == null || newGeneratedAt == null) {
+      return oldGeneratedAt == null ? newGeneratedAt : oldGeneratedAt;
+    }
+    return oldGeneratedAt.isAfter(newGeneratedAt) ? oldGeneratedAt : newGeneratedAt;
+  }
+
+  public List<String> getAddedMembers() {
+    return ImmutableList.copyOf(addedMembers);
+  }
+
+  public List<String> getRemovedMembers() {
+    return ImmutableList.copyOf(removedMembers);
+  }
+
+  /** Returns the members in both runs that changed, in the order of the newer report. */
+  public List<MemberDiff> getMemberDiffs() {
+    return ImmutableList.copyOf(memberDiffs);
+  }
+
+  public int getUnchangedMemberCount() {
+    return unchangedMemberCount;
+  }
+
+  /** Returns the number of tree nodes compared, to show how much the hashes saved. */
+  public long getComparedNodeCount() {
+    return comparedNodeCount;
+  }
+
+  /** Returns the number of tree nodes skipped in subtrees with the same hash. */
+  public long getSkippedNodeCount() {
+    return skippedNodeCount;
+  }
+}
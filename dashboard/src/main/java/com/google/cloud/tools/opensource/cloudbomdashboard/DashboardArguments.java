@@ -16,8 +16,13 @@
 
 package com.google.cloud.tools.opensource.cloudbomdashboard;
 
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.RepositoryUtility;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import javax.annotation.Nullable;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -92,12 +97,184 @@ final class DashboardArguments {
     return commandLine.getOptionValue('a').trim();
   }
 
+  /**
+   * Returns the path to write a snapshot pack of the files fetched by this run. Null if the run is
+   * not recorded.
+   */
+  @Nullable
+  Path getRecordSnapshot() {
+    if (!commandLine.hasOption("record-snapshot")) {
+      return null;
+    }
+    return Paths.get(commandLine.getOptionValue("record-snapshot").trim()).toAbsolutePath();
+  }
+
+  /**
+   * Returns the path to a snapshot pack to serve all repository files from. Null if the run uses
+   * the network.
+   */
+  @Nullable
+  Path getReplaySnapshot() {
+    if (!commandLine.hasOption("replay-snapshot")) {
+      return null;
+    }
+    return Paths.get(commandLine.getOptionValue("replay-snapshot").trim()).toAbsolutePath();
+  }
+
+  /** Returns true if the cache of URLs not found should be cleared before the run. */
+  boolean hasClearNegativeCache() {
+    return commandLine.hasOption("clear-negative-cache");
+  }
+
+  /**
+   * Returns the time a release POM or JAR file missing for long is not requested again. Files
+   * missing only recently are requested again sooner, as a mirror may not have them yet.
+   */
+  Duration getNegativeCacheTimeToLive() {
+    return Duration.ofDays(getPositiveInt(commandLine, "negative-cache-days", 30));
+  }
+
+  /** Returns the number of open HTTP connections at most. */
+  int getHttpMaxConnections() {
+    return getPositiveInt(commandLine, "http-max-connections", 64);
+  }
+
+  /** Returns the number of open HTTP connections to each host at most. */
+  int getHttpMaxConnectionsPerHost() {
+    return getPositiveInt(commandLine, "http-max-connections-per-host", 16);
+  }
+
+  /** Returns the timeout to establish an HTTP connection. */
+  Duration getHttpConnectTimeout() {
+    return Duration.ofSeconds(getPositiveInt(commandLine, "http-connect-timeout", 10));
+  }
+
+  /** Returns the timeout between two packets of an HTTP response. */
+  Duration getHttpReadTimeout() {
+    return Duration.ofSeconds(getPositiveInt(commandLine, "http-read-timeout", 30));
+  }
+
+  /** Returns the time a remote request may take including its retries. */
+  Duration getFetchDeadline() {
+    return Duration.ofSeconds(getPositiveInt(commandLine, "fetch-deadline", 60));
+  }
+
+  /** Returns the number of attempts for a remote request, including the first one. */
+  int getFetchMaxAttempts() {
+    return getPositiveInt(commandLine, "fetch-max-attempts", 3);
+  }
+
+  /** Returns true if slow remote requests should not be duplicated. */
+  boolean isHedgingDisabled() {
+    return commandLine.hasOption("disable-hedging");
+  }
+
+  /** Returns true if the reports of two runs should be compared. */
+  boolean hasDiff() {
+    return commandLine.hasOption("diff");
+  }
+
+  /**
+   * Returns the reports of the older and the newer run to compare. Each argument is a report or
+   * the output directory holding it. Null if no comparison is requested.
+   */
+  @Nullable
+  ImmutableList<Path> getDiffReports() {
+    if (!commandLine.hasOption("diff")) {
+      return null;
+    }
+    ImmutableList.Builder<Path> reports = ImmutableList.builder();
+    for (String value : commandLine.getOptionValues("diff")) {
+      Path path = Paths.get(value.trim()).toAbsolutePath();
+      reports.add(
+          Files.isDirectory(path) ? path.resolve(DashboardMain.JSON_REPORT_FILE_NAME) : path);
+    }
+    return reports.build();
+  }
+
+  /** Returns true if the dashboards should be served over HTTP. */
+  boolean hasServerPort() {
+    return commandLine.hasOption("serve");
+  }
+
+  /** Returns the port to serve dashboards at. */
+  int getServerPort() {
+    return getPositiveInt(commandLine, "serve", 8080);
+  }
+
+  /** Returns the interval between two renders of a served {@code -SNAPSHOT} BOM. */
+  Duration getSnapshotRefreshInterval() {
+    return Duration.ofMinutes(getPositiveInt(commandLine, "snapshot-refresh-minutes", 10));
+  }
+
+  /** Returns the number of versions whose dashboards are generated at the same time. */
+  int getAllVersionsThreads() {
+    return getPositiveInt(commandLine, "all-versions-threads", 4);
+  }
+
+  /** Returns the URLs of the Maven repositories to resolve dependencies from. */
+  ImmutableList<String> getRepositories() {
+    if (!commandLine.hasOption("repository")) {
+      return ImmutableList.of(RepositoryUtility.CENTRAL.getUrl());
+    }
+    ImmutableList.Builder<String> repositories = ImmutableList.builder();
+    for (String repository : commandLine.getOptionValues("repository")) {
+      repositories.add(repository.trim());
+    }
+    return repositories.build();
+  }
+
+  /** Returns true if the repositories are mirrors to request each file from concurrently. */
+  boolean isMirrorRacing() {
+    return commandLine.hasOption("race-mirrors");
+  }
+
+  private static int getPositiveInt(CommandLine commandLine, String option, int defaultValue) {
+    if (!commandLine.hasOption(option)) {
+      return defaultValue;
+    }
+    // Validated in readCommandLine
+    return Integer.parseInt(commandLine.getOptionValue(option).trim());
+  }
+
+  private static final ImmutableList<String> INTEGER_OPTIONS =
+      ImmutableList.of(
+          "http-max-connections",
+          "http-max-connections-per-host",
+          "http-connect-timeout",
+          "http-read-timeout",
+          "fetch-deadline",
+          "fetch-max-attempts",
+          "negative-cache-days",
+          "all-versions-threads",
+          "serve",
+          "snapshot-refresh-minutes");
+
+  private static void validateIntegers(CommandLine commandLine) throws ParseException {
+    for (String option : INTEGER_OPTIONS) {
+      if (commandLine.hasOption(option)) {
+        String value = commandLine.getOptionValue(option).trim();
+        Integer parsed = Ints.tryParse(value);
+        if (parsed == null || parsed <= 0) {
+          throw new ParseException("--" + option + " should be a positive integer: " + value);
+        }
+      }
+    }
+  }
+
   static DashboardArguments readCommandLine(String... arguments) throws ParseException {
     CommandLineParser parser = new DefaultParser();
 
     try {
       // Throws ParseException if required option group ('-f' or '-c') is not specified
-      return new DashboardArguments(parser.parse(options, arguments));
+      CommandLine commandLine = parser.parse(options, arguments);
+      validateIntegers(commandLine);
+      if (commandLine.hasOption("race-mirrors")
+          && (!commandLine.hasOption("repository")
+              || commandLine.getOptionValues("repository").length < 2)) {
+        throw new ParseException("--race-mirrors needs two or more --repository options");
+      }
+      return new DashboardArguments(commandLine);
     } catch (ParseException ex) {
       helpFormatter.printHelp("DashboardMain", options);
       throw ex;
@@ -132,7 +309,129 @@ final class DashboardArguments {
             .build();
     inputGroup.addOption(versionlessCoordinatesOption);
 
+    Option serveOption =
+        Option.builder()
+            .longOpt("serve")
+            .hasArg()
+            .desc(
+                "Port to serve dashboards at, rendering each BOM on its first request to"
+                    + " /bom/{groupId}/{artifactId}/{version}/")
+            .build();
+    inputGroup.addOption(serveOption);
+
+    Option diffOption =
+        Option.builder()
+            .longOpt("diff")
+            .numberOfArgs(2)
+            .argName("old> <new")
+            .desc(
+                "Compares the reports of two runs, each a report.ndjson file or the output"
+                    + " directory holding it, without resolving dependencies")
+            .build();
+    inputGroup.addOption(diffOption);
+
     options.addOptionGroup(inputGroup);
+
+    options.addOption(
+        Option.builder()
+            .longOpt("snapshot-refresh-minutes")
+            .hasArg()
+            .desc("Minutes between two renders of a served -SNAPSHOT BOM. Default 10")
+            .build());
+
+    OptionGroup snapshotGroup = new OptionGroup();
+    snapshotGroup.addOption(
+        Option.builder()
+            .longOpt("record-snapshot")
+            .hasArg()
+            .desc("Records the files fetched from Maven repositories to a snapshot pack")
+            .build());
+    snapshotGroup.addOption(
+        Option.builder()
+            .longOpt("replay-snapshot")
+            .hasArg()
+            .desc("Serves all files of Maven repositories from a snapshot pack, without network")
+            .build());
+    options.addOptionGroup(snapshotGroup);
+
+    options.addOption(
+        Option.builder()
+            .longOpt("clear-negative-cache")
+            .desc("Requests again the URLs that previous runs found missing")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("negative-cache-days")
+            .hasArg()
+            .desc(
+                "Days at most before a missing release POM or JAR file is requested again."
+                    + " Files missing only recently are requested again sooner. Default 30")
+            .build());
+
+    options.addOption(
+        Option.builder()
+            .longOpt("all-versions-threads")
+            .hasArg()
+            .desc("Number of versions generated at the same time with -a. Default 4")
+            .build());
+
+    options.addOption(
+        Option.builder()
+            .longOpt("repository")
+            .hasArg()
+            .desc(
+                "URL of a Maven repository to resolve dependencies from. Repeatable. Default"
+                    + " Maven Central")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("race-mirrors")
+            .desc(
+                "Requests each file from all repositories concurrently and uses the first"
+                    + " response matching its checksum. The repositories should be mirrors")
+            .build());
+
+    options.addOption(
+        Option.builder()
+            .longOpt("http-max-connections")
+            .hasArg()
+            .desc("Number of open HTTP connections at most. Default 64")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("http-max-connections-per-host")
+            .hasArg()
+            .desc("Number of open HTTP connections to each host at most. Default 16")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("http-connect-timeout")
+            .hasArg()
+            .desc("Seconds to wait for an HTTP connection. Default 10")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("http-read-timeout")
+            .hasArg()
+            .desc("Seconds to wait for data of an HTTP response. Default 30")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("fetch-deadline")
+            .hasArg()
+            .desc("Seconds a remote request may take including retries. Default 60")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("fetch-max-attempts")
+            .hasArg()
+            .desc("Number of attempts for a remote request. Default 3")
+            .build());
+    options.addOption(
+        Option.builder()
+            .longOpt("disable-hedging")
+            .desc("Does not duplicate remote requests slower than the 95th percentile")
+            .build());
     return options;
   }
 }
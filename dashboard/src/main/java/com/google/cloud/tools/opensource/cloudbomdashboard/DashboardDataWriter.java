@@ -0,0 +1,295 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.ArtifactProblem;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Update;
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Writes the data that {@code dashboard.js} renders the member table from, so that the size of
+ * index.html does not grow with the BOM.
+ *
+ * <p>{@code data.json} holds one array per column with a value for each member, sorted by
+ * artifact ID. String values are indexes into its {@code strings} array, which holds each
+ * distinct string once, as versions and URL prefixes repeat across members. Test columns hold
+ * the number of failures, or null when the test did not run.
+ *
+ * <p>The details of the members, which can be large, are in {@code details/<n>.json} files of
+ * {@link #DETAIL_CHUNK_SIZE} members each, fetched when a row is expanded.
+ */
+final class DashboardDataWriter {
+
+  static final String DATA_FILE_NAME = "data.json";
+  static final String DETAILS_DIRECTORY = "details";
+  static final int DETAIL_CHUNK_SIZE = 64;
+  static final int SCHEMA_VERSION = 1;
+
+  private static final ImmutableList<String> STRING_COLUMNS =
+      ImmutableList.of(
+          "artifactId",
+          "currentVersion",
+          "sharedDependenciesPosition",
+          "latestVersion",
+          "latestPomUrl",
+          "updatedTime",
+          "metadataUrl",
+          "sharedDependenciesVersion");
+
+  private final Path output;
+  private final PrecompressedOutput publisher;
+
+  // Distinct strings to their indexes in the strings array
+  private final Map<String, Integer> strings = new LinkedHashMap<>();
+  private final Map<String, List<Integer>> stringColumns = new LinkedHashMap<>();
+  private final Map<String, List<Integer>> testColumns = new LinkedHashMap<>();
+
+  /**
+   * @param output the directory of index.html
+   * @param publisher moves the written files into place and compresses them
+   */
+  DashboardDataWriter(Path output, PrecompressedOutput publisher) {
+    this.output = output;
+    this.publisher = publisher;
+    for (String column : STRING_COLUMNS) {
+      stringColumns.put(column, new ArrayList<>());
+    }
+    for (String testName : JsonReportWriter.TEST_NAMES) {
+      testColumns.put(testName, new ArrayList<>());
+    }
+  }
+
+  /** Writes the data file and the detail files of {@code rows}. */
+  void write(
+      String bomCoordinates,
+      Iterable<LibraryVersionRow> rows,
+      List<ArtifactResults> table,
+      Map<Artifact, ArtifactInfo> infoMap)
+      throws IOException {
+    Map<String, ArtifactResults> resultsByCoordinates = new HashMap<>();
+    for (ArtifactResults results : table) {
+      resultsByCoordinates.put(results.getCoordinates(), results);
+    }
+
+    Path details = Files.createDirectories(output.resolve(DETAILS_DIRECTORY));
+    List<LibraryVersionRow> chunk = new ArrayList<>(DETAIL_CHUNK_SIZE);
+    int rowCount = 0;
+    int chunkIndex = 0;
+    for (LibraryVersionRow row : rows) {
+      ArtifactResults results =
+          resultsByCoordinates.get(Artifacts.toCoordinates(row.getArtifact()));
+      addRow(row, results);
+      chunk.add(row);
+      rowCount++;
+      if (chunk.size() == DETAIL_CHUNK_SIZE) {
+        writeDetails(details, chunkIndex++, chunk, resultsByCoordinates, infoMap);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      writeDetails(details, chunkIndex++, chunk, resultsByCoordinates, infoMap);
+    }
+    deleteStaleDetails(details, chunkIndex);
+    writeData(bomCoordinates, rowCount);
+  }
+
+  /** Deletes the detail files from {@code chunkCount} on, left by a run over a larger BOM. */
+  private void deleteStaleDetails(Path details, int chunkCount) throws IOException {
+    List<Path> staleFiles = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(details, "*.json")) {
+      for (Path file : files) {
+        String fileName = file.getFileName().toString();
+        String index = fileName.substring(0, fileName.length() - ".json".length());
+        if (!index.isEmpty()
+            && CharMatcher.inRange('0', '9').matchesAllOf(index)
+            && (index.length() > 9 || Integer.parseInt(index) >= chunkCount)) {
+          staleFiles.add(file);
+        }
+      }
+    }
+    for (Path file : staleFiles) {
+      publisher.delete(file);
+    }
+  }
+
+  private void addRow(LibraryVersionRow row, ArtifactResults results) {
+    stringColumns.get("artifactId").add(index(row.getArtifactId()));
+    stringColumns.get("currentVersion").add(index(row.getCurrentVersion()));
+    stringColumns.get("sharedDependenciesPosition").add(index(row.getSharedDependenciesPosition()));
+    stringColumns.get("latestVersion").add(index(row.getLatestVersion()));
+    stringColumns.get("latestPomUrl").add(index(row.getLatestPomUrl()));
+    stringColumns.get("updatedTime").add(index(row.getUpdatedTime()));
+    stringColumns.get("metadataUrl").add(index(row.getMetadataUrl()));
+    stringColumns.get("sharedDependenciesVersion").add(index(row.getSharedDependenciesVersion()));
+    for (Map.Entry<String, List<Integer>> column : testColumns.entrySet()) {
+      String testName = column.getKey();
+      boolean ran = results != null && results.getResult(testName) != null;
+      column.getValue().add(ran ? results.getFailureCount(testName) : null);
+    }
+  }
+
+  private Integer index(String value) {
+    if (value == null) {
+      return null;
+    }
+    return strings.computeIfAbsent(value, key -> strings.size());
+  }
+
+  private void writeData(String bomCoordinates, int rowCount) throws IOException {
+    Path file = output.resolve(DATA_FILE_NAME);
+    Path temporaryFile = Files.createTempFile(output, DATA_FILE_NAME, ".tmp");
+    try {
+      try (JsonWriter json = newJsonWriter(temporaryFile)) {
+        json.beginObject();
+        json.name("schemaVersion").value(SCHEMA_VERSION);
+        json.name("bom").value(bomCoordinates);
+        json.name("rowCount").value(rowCount);
+        json.name("detailChunkSize").value(DETAIL_CHUNK_SIZE);
+        json.name("tests").beginArray();
+        for (String testName : testColumns.keySet()) {
+          json.value(testName);
+        }
+        json.endArray();
+        json.name("strings").beginArray();
+        for (String value : strings.keySet()) {
+          json.value(value);
+        }
+        json.endArray();
+        json.name("columns").beginObject();
+        writeColumns(json, stringColumns);
+        writeColumns(json, testColumns);
+        json.endObject();
+        json.endObject();
+      }
+      publisher.publish(temporaryFile, file);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  private static void writeColumns(JsonWriter json, Map<String, List<Integer>> columns)
+      throws IOException {
+    for (Map.Entry<String, List<Integer>> column : columns.entrySet()) {
+      json.name(column.getKey()).beginArray();
+      for (Integer value : column.getValue()) {
+        json.value(value);
+      }
+      json.endArray();
+    }
+  }
+
+  private void writeDetails(
+      Path details,
+      int chunkIndex,
+      List<LibraryVersionRow> chunk,
+      Map<String, ArtifactResults> resultsByCoordinates,
+      Map<Artifact, ArtifactInfo> infoMap)
+      throws IOException {
+    String fileName = chunkIndex + ".json";
+    Path file = details.resolve(fileName);
+    Path temporaryFile = Files.createTempFile(details, fileName, ".tmp");
+    try {
+      try (JsonWriter json = newJsonWriter(temporaryFile)) {
+        json.beginArray();
+        for (LibraryVersionRow row : chunk) {
+          String coordinates = Artifacts.toCoordinates(row.getArtifact());
+          writeMemberDetails(
+              json,
+              coordinates,
+              resultsByCoordinates.get(coordinates),
+              infoMap.get(row.getArtifact()));
+        }
+        json.endArray();
+      }
+      publisher.publish(temporaryFile, file);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  private static void writeMemberDetails(
+      JsonWriter json, String coordinates, ArtifactResults results, ArtifactInfo info)
+      throws IOException {
+    json.beginObject();
+    json.name("coordinates").value(coordinates);
+    json.name("exception").value(results == null ? null : results.getExceptionMessage());
+    boolean resolved = info != null && info.getException() == null;
+
+    json.name("upperBoundFailures").beginArray();
+    if (resolved) {
+      for (Map.Entry<Artifact, Artifact> failure : info.getUpperBoundFailures().entrySet()) {
+        json.beginArray();
+        json.value(Artifacts.toCoordinates(failure.getKey()));
+        json.value(Artifacts.toCoordinates(failure.getValue()));
+        json.endArray();
+      }
+    }
+    json.endArray();
+
+    json.name("updates").beginArray();
+    if (resolved) {
+      for (Update update : info.getConvergenceIssues()) {
+        json.beginArray();
+        json.value(Artifacts.toCoordinates(update.getParent()));
+        json.value(Artifacts.toCoordinates(update.getFrom()));
+        json.value(update.getTo().getVersion());
+        json.endArray();
+      }
+    }
+    json.endArray();
+
+    json.name("problems").beginObject();
+    if (results != null) {
+      for (String testName : JsonReportWriter.TEST_NAMES) {
+        ImmutableList<ArtifactProblem> problems = results.getProblems(testName);
+        if (!problems.isEmpty()) {
+          json.name(testName).beginArray();
+          for (ArtifactProblem problem : problems) {
+            json.value(problem.toString());
+          }
+          json.endArray();
+        }
+      }
+    }
+    json.endObject();
+    json.endObject();
+  }
+
+  private static JsonWriter newJsonWriter(Path file) throws IOException {
+    Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8));
+    return new JsonWriter(writer);
+  }
+}
@@ -19,43 +19,105 @@ package com.google.cloud.tools.opensource.cloudbomdashboard;
 import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.*;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import freemarker.template.*;
 import org.apache.commons.cli.ParseException;
-import org.apache.commons.io.FileUtils;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
-import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.eclipse.aether.RepositoryException;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.repository.RepositoryPolicy;
 
 import java.io.*;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.time.LocalDateTime;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class DashboardMain {
 
-  public static final String basePath = "https://repo1.maven.org/maven2";
   public static final String TEST_NAME_UPPER_BOUND = "Upper Bounds";
   public static final String TEST_NAME_DEPENDENCY_CONVERGENCE = "Dependency Convergence";
+  public static final String TEST_NAME_LINKAGE_CHECK = "Linkage Errors";
+  public static final String TEST_NAME_DUPLICATE_CLASSES = "Duplicate Classes";
 
+  private static final DefaultObjectWrapper objectWrapper = configureObjectWrapper();
   private static final Configuration freemarkerConfiguration = configureFreemarker();
+  private static final TemplateModel dashboardMainModel = configureDashboardMainModel();
 
-  private static final DependencyGraphBuilder dependencyGraphBuilder = new DependencyGraphBuilder();
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  /** Directory holding the dashboards, with a directory for each group ID. */
+  private static final String OUTPUT_ROOT = "target";
+
+  /** Directory of the assets shared by the pages of a BOM, next to the version directories. */
+  private static final String ASSETS_DIRECTORY = "assets";
+  private static final ImmutableList<String> ASSET_RESOURCES =
+      ImmutableList.of("css/dashboard.css", "js/dashboard.js");
+  private static final Set<Path> writtenAssets = ConcurrentHashMap.newKeySet();
+
+  /** Writes gzip variants of the pages, the assets, and the reports as they are rendered. */
+  private static final PrecompressedOutput precompressedOutput =
+      new PrecompressedOutput(
+          Paths.get(OUTPUT_ROOT), Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+  /** File name of the {@link JsonReportWriter} report next to index.html. */
+  static final String JSON_REPORT_FILE_NAME = "report.ndjson";
+
+  /** File name of the generation time and timings of the run, next to the report. */
+  static final String RUN_FILE_NAME = "run.json";
+
+  /** Trend stores of the artifact directories, shared by the versions generated in parallel. */
+  private static final Map<Path, TrendStore> trendStores = new ConcurrentHashMap<>();
+
+  /** Directory of the {@link BomDiff} pages, next to the version directories. */
+  private static final String DIFF_DIRECTORY = "diff";
+  private static final String DIFF_JSON_FILE_NAME = "diff.json";
+
+  // Replaced in main when the command line configures repositories
+  private static DependencyGraphBuilder dependencyGraphBuilder = new DependencyGraphBuilder();
+  private static List<String> repositoryUrls =
+      ImmutableList.of(RepositoryUtility.CENTRAL.getUrl());
+
+  // Set in main. The server persists it on shutdown, as the JVM may stop before main closes it
+  @Nullable private static NegativeCacheResourceFetcher negativeCache;
+
+  private static final int SERVER_RENDER_THREADS = 2;
+
+  // One pool of class-checking threads for all the versions generated in parallel
+  private static final LinkageChecker linkageChecker = new LinkageChecker();
+
+  private static final int METADATA_PREFETCH_THREADS = 16;
+  private static final double METADATA_REQUESTS_PER_SECOND = 50;
+
+  // Shared by the versions generated in parallel, so that their metadata requests stay within
+  // one thread count and one rate limit
+  private static final ExecutorService metadataExecutor =
+      Executors.newFixedThreadPool(
+          METADATA_PREFETCH_THREADS,
+          new ThreadFactoryBuilder().setNameFormat("metadata-prefetch-%d").setDaemon(true).build());
+  private static final RateLimiter metadataRateLimiter =
+      RateLimiter.create(METADATA_REQUESTS_PER_SECOND);
 
   /**
    * Generates a code hygiene dashboard for a BOM. This tool takes a path to pom.xml of the BOM as
@@ -70,16 +132,141 @@ public class DashboardMain {
       ParseException, MavenRepositoryException {
     DashboardArguments dashboardArguments = DashboardArguments.readCommandLine(arguments);
 
-    if (dashboardArguments.hasVersionlessCoordinates()) {
-      generateAllVersions(dashboardArguments.getVersionlessCoordinates());
-    } else if (dashboardArguments.hasFile()) {
-      generate(dashboardArguments.getBomFile());
+    // One pooled HTTP client serves the resolver and the metadata fetches
+    HttpResourceFetcher httpFetcher =
+        HttpResourceFetcher.builder()
+            .setMaxConnections(dashboardArguments.getHttpMaxConnections())
+            .setMaxConnectionsPerHost(dashboardArguments.getHttpMaxConnectionsPerHost())
+            .setConnectTimeout(dashboardArguments.getHttpConnectTimeout())
+            .setReadTimeout(dashboardArguments.getHttpReadTimeout())
+            .build();
+    // Deadlines, retries, and hedged requests cut the tail latency of slow responses
+    FetchPolicyResourceFetcher policyFetcher =
+        FetchPolicyResourceFetcher.builder(httpFetcher)
+            .setDeadline(dashboardArguments.getFetchDeadline())
+            .setMaxAttempts(dashboardArguments.getFetchMaxAttempts())
+            .setHedging(!dashboardArguments.isHedgingDisabled())
+            // More attempts than connections would only wait for a connection
+            .setMaxConcurrentAttempts(dashboardArguments.getHttpMaxConnections())
+            .build();
+
+    // Concurrent requests for the same parent POM or metadata share one download
+    SingleFlightResourceFetcher fetcher = new SingleFlightResourceFetcher(policyFetcher);
+
+    // Missing -parent and -deps-bom POMs of releases are not requested again in later runs, once
+    // they have been missing for longer than a mirror takes to synchronize
+    Path negativeCacheFile = NegativeCacheResourceFetcher.defaultLocation();
+    if (dashboardArguments.hasClearNegativeCache()) {
+      NegativeCacheResourceFetcher.clear(negativeCacheFile);
+    }
+    negativeCache =
+        NegativeCacheResourceFetcher.open(
+            fetcher, negativeCacheFile, dashboardArguments.getNegativeCacheTimeToLive());
+
+    RepositoryUtility.setResourceFetcher(negativeCache);
+    repositoryUrls = dashboardArguments.getRepositories();
+    dependencyGraphBuilder =
+        new DependencyGraphBuilder(repositoryUrls, dashboardArguments.isMirrorRacing());
+    try {
+      run(dashboardArguments);
+    } finally {
+      try {
+        negativeCache.close();
+      } finally {
+        policyFetcher.close();
+        httpFetcher.close();
+      }
+    }
+    System.out.println(
+        "Made "
+            + fetcher.getRequestCount()
+            + " remote requests, of which "
+            + fetcher.getCoalescedCount()
+            + " shared an in-flight download; "
+            + negativeCache.getHitCount()
+            + " requests were skipped as known to be missing");
+    printAttemptSummary(policyFetcher);
+    for (MirrorRace.MirrorStatistics mirror : dependencyGraphBuilder.getMirrorStatistics()) {
+      System.out.println(mirror);
+    }
+  }
+
+  private static void printAttemptSummary(FetchPolicyResourceFetcher policyFetcher) {
+    for (FetchPolicyResourceFetcher.Attempt failure : policyFetcher.getRecentFailures()) {
+      System.err.println(failure);
+    }
+    System.out.println(
+        "Sent "
+            + policyFetcher.getAttemptCount()
+            + " HTTP requests ("
+            + policyFetcher.getRetryCount()
+            + " retries, "
+            + policyFetcher.getHedgedCount()
+            + " hedged): "
+            + policyFetcher.getOutcomeCounts());
+  }
+
+  private static void run(DashboardArguments dashboardArguments)
+      throws IOException, TemplateException, RepositoryException, URISyntaxException,
+      MavenRepositoryException {
+    Path replaySnapshot = dashboardArguments.getReplaySnapshot();
+    Path recordSnapshot = dashboardArguments.getRecordSnapshot();
+    if (replaySnapshot != null) {
+      // A fresh local repository makes the replay independent of ~/.m2
+      RepositoryUtility.useTemporaryLocalRepository();
+      RepositoryUtility.setResourceFetcher(SnapshotPack.open(replaySnapshot));
+      generate(dashboardArguments);
+    } else if (recordSnapshot != null) {
+      // A fresh local repository makes the resolver fetch, and thus record, every file
+      RepositoryUtility.useTemporaryLocalRepository();
+      SnapshotPack.Recorder recorder =
+          SnapshotPack.record(recordSnapshot, RepositoryUtility.getResourceFetcher());
+      RepositoryUtility.setResourceFetcher(recorder);
+      boolean succeeded = false;
+      try {
+        generate(dashboardArguments);
+        succeeded = true;
+      } finally {
+        if (succeeded) {
+          recorder.close();
+        } else {
+          recorder.abort();
+        }
+      }
+      System.out.println(
+          "Recorded " + recorder.getRecordedCount() + " files to " + recordSnapshot);
     } else {
-      generate(dashboardArguments.getBomCoordinates());
+      generate(dashboardArguments);
     }
   }
 
-  private static void generateAllVersions(String versionlessCoordinates)
+  private static void generate(DashboardArguments dashboardArguments)
+      throws IOException, TemplateException, RepositoryException, URISyntaxException,
+      MavenRepositoryException {
+    if (dashboardArguments.hasServerPort()) {
+      serve(dashboardArguments.getServerPort(), dashboardArguments.getSnapshotRefreshInterval());
+      return;
+    }
+    try {
+      if (dashboardArguments.hasDiff()) {
+        List<Path> reports = dashboardArguments.getDiffReports();
+        generateDiff(reports.get(0), reports.get(1));
+      } else if (dashboardArguments.hasVersionlessCoordinates()) {
+        generateAllVersions(
+            dashboardArguments.getVersionlessCoordinates(),
+            dashboardArguments.getAllVersionsThreads());
+      } else if (dashboardArguments.hasFile()) {
+        generate(dashboardArguments.getBomFile());
+      } else {
+        generate(dashboardArguments.getBomCoordinates());
+      }
+    } finally {
+      // Waits for the compression of the last pages and records the hashes for the next run
+      precompressedOutput.flush();
+    }
+  }
+
+  private static void generateAllVersions(String versionlessCoordinates, int threadCount)
       throws IOException, TemplateException, RepositoryException, URISyntaxException,
           MavenRepositoryException {
     List<String> elements = Splitter.on(':').splitToList(versionlessCoordinates);
@@ -89,44 +276,168 @@ public class DashboardMain {
     String groupId = elements.get(0);
     String artifactId = elements.get(1);
 
-    RepositorySystem repositorySystem = RepositoryUtility.newRepositorySystem();
+    RepositorySystem repositorySystem = RepositoryUtility.getRepositorySystem();
     ImmutableList<String> versions =
         RepositoryUtility.findVersions(repositorySystem, groupId, artifactId);
-    for (String version : versions) {
-      if (version.contains("alpha")) continue;
-      generate(String.format("%s:%s:%s", groupId, artifactId, version));
+
+    // The versions share the repository session factory, the class index, and the local
+    // repository, so that an artifact used by many versions is downloaded and indexed once
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threadCount,
+            new ThreadFactoryBuilder().setNameFormat("all-versions-%d").setDaemon(true).build());
+    Map<String, Future<Path>> outputs = new LinkedHashMap<>();
+    try {
+      for (String version : versions) {
+        if (version.contains("alpha")) continue;
+        String coordinates = String.format("%s:%s:%s", groupId, artifactId, version);
+        outputs.put(version, executor.submit(() -> generate(coordinates)));
+      }
+
+      List<VersionSummary> summaries = new ArrayList<>();
+      for (Map.Entry<String, Future<Path>> output : outputs.entrySet()) {
+        String version = output.getKey();
+        try {
+          Path report = output.getValue().get().resolve(JSON_REPORT_FILE_NAME);
+          summaries.add(VersionSummary.read(version, report));
+        } catch (ExecutionException ex) {
+          // A version that cannot be read does not stop the others
+          System.err.println(
+              "Failed to generate the dashboard of " + version + ": " + ex.getCause());
+          summaries.add(VersionSummary.incomplete(version));
+        } catch (IOException ex) {
+          // A report that cannot be read leaves the version out of the index
+          System.err.println("Failed to read the report of " + version + ": " + ex);
+        }
+      }
+      generateVersionIndex(groupId, artifactId, summaries);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while generating all versions");
+    } finally {
+      executor.shutdownNow();
     }
-    generateVersionIndex(groupId, artifactId, versions);
   }
 
   @VisibleForTesting
-  static Path generateVersionIndex(String groupId, String artifactId, List<String> versions)
-      throws IOException, TemplateException, URISyntaxException {
-    Path directory = outputDirectory(groupId, artifactId, "snapshot").getParent();
-    directory.toFile().mkdirs();
+  static Path generateVersionIndex(
+      String groupId, String artifactId, List<VersionSummary> summaries)
+      throws IOException, TemplateException {
+    Path directory = artifactDirectory(groupId, artifactId);
+    Files.createDirectories(directory);
     Path page = directory.resolve("index.html");
 
     Map<String, Object> templateData = new HashMap<>();
-    templateData.put("versions", versions);
+    templateData.put("summaries", summaries);
+    templateData.put("charts", TrendChart.charts(trendStore(directory).readLatest()));
     templateData.put("groupId", groupId);
     templateData.put("artifactId", artifactId);
 
-    File dashboardFile = page.toFile();
-    try (Writer out =
-        new OutputStreamWriter(new FileOutputStream(dashboardFile), StandardCharsets.UTF_8)) {
-      Template dashboard = freemarkerConfiguration.getTemplate("/templates/version_index.ftl");
-      dashboard.process(templateData, out);
+    writePage(page, "/templates/version_index.ftl", templateData);
+    writeAssets(directory);
+
+    return page;
+  }
+
+  /**
+   * Writes the differences between the runs of two reports to {@code
+   * target/$groupId/$artifactId/diff/$oldVersion..$newVersion/}, where the coordinates are from
+   * the newer BOM. Only the reports are read; no dependency is resolved.
+   */
+  @VisibleForTesting
+  static Path generateDiff(Path oldReport, Path newReport) throws IOException, TemplateException {
+    BomDiff diff = BomDiff.compare(oldReport, newReport);
+    Artifact oldBom = new DefaultArtifact(diff.getOldBom());
+    Artifact newBom = new DefaultArtifact(diff.getNewBom());
+    Path directory = artifactDirectory(newBom.getGroupId(), newBom.getArtifactId());
+    Path output =
+        Files.createDirectories(
+            directory
+                .resolve(DIFF_DIRECTORY)
+                .resolve(
+                    versionPathElement(oldBom.getVersion())
+                        + ".."
+                        + versionPathElement(newBom.getVersion())));
+    writeAssets(directory);
+
+    Path json = output.resolve(DIFF_JSON_FILE_NAME);
+    Path temporaryJson = Files.createTempFile(output, DIFF_JSON_FILE_NAME, ".tmp");
+    try {
+      try (Writer writer =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  Files.newOutputStream(temporaryJson), StandardCharsets.UTF_8),
+              OUTPUT_BUFFER_SIZE)) {
+        diff.writeJson(writer);
+      }
+      precompressedOutput.publish(temporaryJson, json);
+    } finally {
+      Files.deleteIfExists(temporaryJson);
     }
 
-    copyResource(directory, "css/dashboard.css");
+    Map<String, Object> templateData = new HashMap<>();
+    templateData.put("diff", diff);
+    // Stamped with the compared runs rather than the current time, so that the page is the same
+    // for the same two runs
+    Instant generatedAt = diff.getGeneratedAt();
+    if (generatedAt != null) {
+      templateData.put("lastUpdated", generatedAt.toString());
+    }
+    writePage(output.resolve("index.html"), "/templates/diff.ftl", templateData);
 
-    return page;
+    System.out.println(
+        "Wrote the differences of " + diff.getNewBom() + " from " + diff.getOldBom() + " to "
+            + output);
+    return output;
+  }
+
+  /** Serves dashboards rendered on demand until the process is stopped. */
+  private static void serve(int port, Duration snapshotRefreshInterval) throws IOException {
+    String updatePolicy =
+        RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":" + snapshotRefreshInterval.toMinutes();
+    DashboardServer server =
+        new DashboardServer(
+            port,
+            bomCoordinates -> generate(bomCoordinates),
+            Paths.get(OUTPUT_ROOT),
+            SERVER_RENDER_THREADS,
+            snapshotRefreshInterval,
+            () -> RepositorySessionFactory.getDefault().refresh(updatePolicy));
+    CountDownLatch stopped = new CountDownLatch(1);
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  server.close();
+                  try {
+                    precompressedOutput.flush();
+                  } catch (IOException ex) {
+                    System.err.println("Failed to write the compressed files: " + ex);
+                  }
+                  if (negativeCache != null) {
+                    try {
+                      negativeCache.persist();
+                    } catch (IOException ex) {
+                      System.err.println("Failed to write the cache of missing URLs: " + ex);
+                    }
+                  }
+                  stopped.countDown();
+                }));
+    server.start();
+    System.out.println(
+        "Serving dashboards at http://localhost:" + server.getAddress().getPort() + "/bom/");
+    try {
+      stopped.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      server.close();
+    }
   }
 
   @VisibleForTesting
   static Path generate(String bomCoordinates)
       throws IOException, TemplateException, RepositoryException, URISyntaxException {
-    Path output = generate(Bom.readBom(bomCoordinates));
+    Path output = generate(Bom.readBom(bomCoordinates, repositoryUrls));
     System.out.println("Wrote dashboard for " + bomCoordinates + " to " + output);
     return output;
   }
@@ -151,46 +462,96 @@ public class DashboardMain {
       }
     }
 
-    ArtifactCache cache = loadArtifactInfo(managedDependencies);
-    Path output = generateHtml(bom, cache);
+    // The metadata of the members is fetched while their dependencies are resolved
+    try (MetadataPrefetcher prefetcher =
+        new MetadataPrefetcher(repositoryUrls, metadataExecutor, metadataRateLimiter)) {
+      prefetcher.prefetch(managedDependencies);
+      Path output = Files.createDirectories(outputDirectory(bom));
+      Path reportFile = output.resolve(JSON_REPORT_FILE_NAME);
+      Path runFile = output.resolve(RUN_FILE_NAME);
+      ArtifactCache cache;
+      try (JsonReportWriter report =
+          new JsonReportWriter(reportFile, bom.getCoordinates(), precompressedOutput)) {
+        cache = loadArtifactInfo(managedDependencies, prefetcher, report);
+        report.finish();
+        report.writeRun(runFile);
+        // Kept for the charts of the version index, which do not generate this version again
+        String version = new DefaultArtifact(bom.getCoordinates()).getVersion();
+        trendStore(output.getParent()).append(report.toTrendRecord(version));
+      }
+      return generateHtml(output, bom, cache, prefetcher);
+    }
+  }
 
-    return output;
+  private static Path outputDirectory(Bom bom) {
+    Artifact bomArtifact = new DefaultArtifact(bom.getCoordinates());
+    return outputDirectory(
+        bomArtifact.getGroupId(), bomArtifact.getArtifactId(), bomArtifact.getVersion());
   }
 
   private static Path outputDirectory(String groupId, String artifactId, String version) {
-    String versionPathElement = version.contains("-SNAPSHOT") ? "snapshot" : version;
-    return Paths.get("target", groupId, artifactId, versionPathElement);
+    return artifactDirectory(groupId, artifactId).resolve(versionPathElement(version));
+  }
+
+  private static String versionPathElement(String version) {
+    return version.contains("-SNAPSHOT") ? "snapshot" : version;
+  }
+
+  /**
+   * Returns the directory holding the dashboards of all versions of a BOM, the version index, and
+   * the {@link #ASSETS_DIRECTORY} the pages share.
+   */
+  private static Path artifactDirectory(String groupId, String artifactId) {
+    return Paths.get(OUTPUT_ROOT, groupId, artifactId);
   }
 
   private static Path generateHtml(
+      Path output,
       Bom bom,
-      ArtifactCache cache
+      ArtifactCache cache,
+      MetadataPrefetcher prefetcher
       )
       throws IOException, TemplateException, URISyntaxException {
 
-    Artifact bomArtifact = new DefaultArtifact(bom.getCoordinates());
-
-    Path relativePath =
-        outputDirectory(
-            bomArtifact.getGroupId(), bomArtifact.getArtifactId(), bomArtifact.getVersion());
-    Path output = Files.createDirectories(relativePath);
-
-    copyResource(output, "css/dashboard.css");
-    copyResource(output, "js/dashboard.js");
+    writeAssets(output.getParent());
 
     List<ArtifactResults> table = generateReports(cache);
-    generateDashboard(output, table, cache, bom);
+    generateDashboard(output, table, cache, bom, prefetcher);
 
     return output;
   }
 
-  private static void copyResource(Path output, String resourceName)
-      throws IOException, URISyntaxException {
-    ClassLoader classLoader = DashboardMain.class.getClassLoader();
-    Path input = Paths.get(Objects.requireNonNull(classLoader.getResource(resourceName)).toURI()).toAbsolutePath();
-    Path copy = output.resolve(input.getFileName());
-    if (!Files.exists(copy)) {
-      Files.copy(input, copy);
+  private static TrendStore trendStore(Path artifactDirectory) {
+    return trendStores.computeIfAbsent(
+        artifactDirectory.toAbsolutePath().normalize(),
+        directory -> new TrendStore(directory.resolve(TrendStore.FILE_NAME)));
+  }
+
+  /**
+   * Writes the style sheet and the script into the {@link #ASSETS_DIRECTORY} of {@code
+   * artifactDirectory}, once per run. Pages refer to them relatively instead of having copies.
+   */
+  private static void writeAssets(Path artifactDirectory) throws IOException {
+    Path assets = artifactDirectory.resolve(ASSETS_DIRECTORY).toAbsolutePath();
+    if (writtenAssets.add(assets)) {
+      Files.createDirectories(assets);
+      for (String resourceName : ASSET_RESOURCES) {
+        Path copy = assets.resolve(Paths.get(resourceName).getFileName().toString());
+        Path temporaryCopy =
+            Files.createTempFile(assets, copy.getFileName().toString(), ".tmp");
+        try {
+          try (InputStream input =
+              Objects.requireNonNull(
+                  DashboardMain.class.getClassLoader().getResourceAsStream(resourceName),
+                  resourceName)) {
+            Files.copy(input, temporaryCopy, StandardCopyOption.REPLACE_EXISTING);
+          }
+          // Replaces the assets of earlier runs only if they are outdated
+          precompressedOutput.publish(temporaryCopy, copy);
+        } finally {
+          Files.deleteIfExists(temporaryCopy);
+        }
+      }
     }
   }
 
@@ -199,9 +560,34 @@ public class DashboardMain {
     Configuration configuration = new Configuration(new Version("2.3.28"));
     configuration.setDefaultEncoding("UTF-8");
     configuration.setClassForTemplateLoading(DashboardMain.class, "/");
+    // Templates are class path resources that do not change while the dashboard runs
+    configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+    configuration.setObjectWrapper(objectWrapper);
     return configuration;
   }
 
+  /**
+   * Returns the wrapper shared by all pages. It caches the introspection of the classes rendered
+   * and lets templates list {@link Iterable}s such as {@link LibraryVersionRow#rows}.
+   */
+  private static DefaultObjectWrapper configureObjectWrapper() {
+    DefaultObjectWrapperBuilder builder =
+        new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_28);
+    builder.setIterableSupport(true);
+    return builder.build();
+  }
+
+  /** Returns {@link DashboardMain}'s static methods for templates. */
+  private static TemplateModel configureDashboardMainModel() {
+    // Accessing static methods from Freemarker template
+    // https://freemarker.apache.org/docs/pgui_misc_beanwrapper.html#autoid_60
+    try {
+      return objectWrapper.getStaticModels().get(DashboardMain.class.getName());
+    } catch (TemplateModelException ex) {
+      throw new IllegalStateException("DashboardMain is not accessible to templates", ex);
+    }
+  }
+
   @VisibleForTesting
   static List<ArtifactResults> generateReports(ArtifactCache cache) {
 
@@ -228,21 +614,44 @@ public class DashboardMain {
   /**
    * This is the only method that queries the Maven repository.
    */
-  private static ArtifactCache loadArtifactInfo(List<Artifact> artifacts) {
+  private static ArtifactCache loadArtifactInfo(
+      List<Artifact> artifacts, MetadataPrefetcher prefetcher, JsonReportWriter report)
+      throws IOException {
     Map<Artifact, ArtifactInfo> infoMap = new LinkedHashMap<>();
     List<DependencyGraph> globalDependencies = new ArrayList<>();
 
     for (Artifact artifact : artifacts) {
+      Map<String, Long> timings = new LinkedHashMap<>();
+      Stopwatch stopwatch = Stopwatch.createStarted();
       DependencyGraph completeDependencies =
           dependencyGraphBuilder.buildVerboseDependencyGraph(artifact);
       globalDependencies.add(completeDependencies);
+      timings.put("completeDependencies", lap(stopwatch));
 
       // picks versions according to Maven rules
       DependencyGraph transitiveDependencies =
           dependencyGraphBuilder.buildMavenDependencyGraph(new Dependency(artifact, "compile"));
-
-      ArtifactInfo info = new ArtifactInfo(completeDependencies, transitiveDependencies);
+      timings.put("transitiveDependencies", lap(stopwatch));
+
+      ImmutableList<ArtifactProblem> linkageProblems =
+          linkageChecker.findLinkageProblems(transitiveDependencies);
+      timings.put("linkageCheck", lap(stopwatch));
+
+      ImmutableList<ArtifactProblem> duplicateClassProblems =
+          ClassIndex.getDefault().findDuplicateClasses(transitiveDependencies);
+      timings.put("duplicateClasses", lap(stopwatch));
+
+      ArtifactInfo info =
+          new ArtifactInfo(
+              completeDependencies,
+              transitiveDependencies,
+              linkageProblems,
+              duplicateClassProblems);
       infoMap.put(artifact, info);
+
+      ArtifactResults results = generateArtifactReport(artifact, info);
+      timings.put("reports", lap(stopwatch));
+      report.writeMember(artifact, info, results, prefetcher.get(artifact), timings);
     }
 
     ArtifactCache cache = new ArtifactCache();
@@ -252,150 +661,75 @@ public class DashboardMain {
     return cache;
   }
 
+  /** Returns the milliseconds since the last lap and restarts {@code stopwatch}. */
+  private static long lap(Stopwatch stopwatch) {
+    long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    stopwatch.reset().start();
+    return elapsed;
+  }
+
   private static ArtifactResults generateArtifactReport(
       Artifact artifact,
       ArtifactInfo artifactInfo)
   {
-    // includes all versions
-    DependencyGraph graph = artifactInfo.getCompleteDependencies();
-    List<Update> convergenceIssues = graph.findUpdates();
-
-    // picks versions according to Maven rules
-    DependencyGraph transitiveDependencies = artifactInfo.getTransitiveDependencies();
-
-    Map<Artifact, Artifact> upperBoundFailures =
-        findUpperBoundsFailures(graph.getHighestVersionMap(), transitiveDependencies);
     ArtifactResults results = new ArtifactResults(artifact);
-    results.addResult(TEST_NAME_UPPER_BOUND, upperBoundFailures.size());
-    results.addResult(TEST_NAME_DEPENDENCY_CONVERGENCE, convergenceIssues.size());
+    results.addResult(TEST_NAME_UPPER_BOUND, artifactInfo.getUpperBoundFailures().size());
+    results.addResult(
+        TEST_NAME_DEPENDENCY_CONVERGENCE, artifactInfo.getConvergenceIssues().size());
+    results.addProblems(TEST_NAME_LINKAGE_CHECK, artifactInfo.getLinkageProblems());
+    results.addProblems(TEST_NAME_DUPLICATE_CLASSES, artifactInfo.getDuplicateClassProblems());
     return results;
   }
 
-  private static Map<Artifact, Artifact> findUpperBoundsFailures(
-      Map<String, String> expectedVersionMap,
-      DependencyGraph transitiveDependencies) {
-
-    Map<String, String> actualVersionMap = transitiveDependencies.getHighestVersionMap();
-
-    VersionComparator comparator = new VersionComparator();
-
-    Map<Artifact, Artifact> upperBoundFailures = new LinkedHashMap<>();
-
-    for (String id : expectedVersionMap.keySet()) {
-      String expectedVersion = expectedVersionMap.get(id);
-      String actualVersion = actualVersionMap.get(id);
-      // Check that the actual version is not null because it is
-      // possible for dependencies to appear or disappear from the tree
-      // depending on which version of another dependency is loaded.
-      // In both cases, no action is needed.
-      if (actualVersion != null && comparator.compare(actualVersion, expectedVersion) < 0) {
-        // Maven did not choose highest version
-        DefaultArtifact lower = new DefaultArtifact(id + ":" + actualVersion);
-        DefaultArtifact upper = new DefaultArtifact(id + ":" + expectedVersion);
-        upperBoundFailures.put(lower, upper);
-      }
-    }
-    return upperBoundFailures;
-  }
-
-
   @VisibleForTesting
   static void generateDashboard(
           Path output,
           List<ArtifactResults> table,
           ArtifactCache cache,
-          Bom bom)
+          Bom bom,
+          MetadataPrefetcher prefetcher)
           throws IOException, TemplateException {
-    TreeSet<String> artifacts = new TreeSet<>();
-    Map<String, String> currentVersion = new HashMap<>();
-    Map<String, String> sharedDepsPosition = new HashMap<>();
-    Map<String, String> newestVersion = new HashMap<>();
-    Map<String, String> newestPomURL = new HashMap<>();
-    Map<String, String> sharedDepsVersion = new HashMap<>();
-    Map<String, String> updatedTime = new HashMap<>();
-    Map<String, String> metadataURL = new HashMap<>();
-    Map<Artifact, ArtifactInfo> infoMap = cache.getInfoMap();
-    for (Map.Entry<Artifact, ArtifactInfo> info : infoMap.entrySet()) {
-      String artifactId = info.getKey().getArtifactId();
-      String groupId = info.getKey().getGroupId();
-      String version = info.getKey().getVersion();
-      artifacts.add(artifactId);
-      currentVersion.put(artifactId,version);
-      newestVersion.put(artifactId, latestVersion(info.getKey()));
-      newestPomURL.put(artifactId, getPomFileURL(groupId, artifactId, newestVersion.get(artifactId)));
-      sharedDepsVersion.put(artifactId, sharedDependencyVersion(info.getKey(), sharedDepsPosition));
-      updatedTime.put(artifactId, updatedTime(info.getKey()));
-      metadataURL.put(artifactId, getMetadataURL(info.getKey()));
-    }
+    // The member table is rendered by dashboard.js from the data file, so that the page stays
+    // small as the BOM grows
+    new DashboardDataWriter(output, precompressedOutput)
+        .write(
+            bom.getCoordinates(),
+            LibraryVersionRow.rows(cache.getInfoMap().keySet(), prefetcher),
+            table,
+            cache.getInfoMap());
 
     Map<String, Object> templateData = new HashMap<>();
     templateData.put("table", table);
-    templateData.put("lastUpdated", LocalDateTime.now());
-    templateData.put("currentVersion", currentVersion);
-    templateData.put("sharedDepsPosition", sharedDepsPosition);
-    templateData.put("newestVersion", newestVersion);
-    templateData.put("newestPomURL", newestPomURL);
-    templateData.put("sharedDepsVersion", sharedDepsVersion);
-    templateData.put("updatedTime", updatedTime);
-    templateData.put("metadataURL", metadataURL);
-    templateData.put("artifacts", artifacts);
+    // The generation time is in the run file, so that the page is the same for the same results
+    templateData.put("runFileName", RUN_FILE_NAME);
+    templateData.put("dataFileName", DashboardDataWriter.DATA_FILE_NAME);
     templateData.put("coordinates", bom.getCoordinates());
-    templateData.put("dependencyGraphs", cache.getGlobalDependencies());
+    templateData.put("dashboardMain", dashboardMainModel);
 
-    // Accessing static methods from Freemarker template
-    // https://freemarker.apache.org/docs/pgui_misc_beanwrapper.html#autoid_60
-    DefaultObjectWrapper wrapper = new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_28)
-        .build();
-    TemplateHashModel staticModels = wrapper.getStaticModels();
-    templateData.put("dashboardMain", staticModels.get(DashboardMain.class.getName()));
-
-    File dashboardFile = output.resolve("index.html").toFile();
-    try (Writer out = new OutputStreamWriter(
-        new FileOutputStream(dashboardFile), StandardCharsets.UTF_8)) {
-      Template dashboard = DashboardMain.freemarkerConfiguration.getTemplate("/templates/index.ftl");
-      dashboard.process(templateData, out);
-    }
+    writePage(output.resolve("index.html"), "/templates/index.ftl", templateData);
   }
 
-  private static String latestVersion(Artifact artifact) {
-    String pomPath = getMetadataURL(artifact);
+  /** Renders {@code templateName} with {@code templateData} to {@code page}. */
+  private static void writePage(Path page, String templateName, Object templateData)
+      throws IOException, TemplateException {
+    // Templates are parsed once and stay in the configuration's cache
+    Template template = freemarkerConfiguration.getTemplate(templateName);
+    // A page rendered again replaces the previous one atomically, as the server may be reading it
+    Path temporaryPage =
+        Files.createTempFile(page.getParent(), page.getFileName().toString(), ".tmp");
     try {
-      URL url = new URL(pomPath);
-      Scanner s = new Scanner(url.openStream());
-      while (s.hasNextLine()) {
-        String string = s.nextLine();
-        if (string.contains("<latest>")) {
-          return string.split(">")[1].split("<")[0];
-        }
+      try (Writer out =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  Files.newOutputStream(temporaryPage), StandardCharsets.UTF_8),
+              OUTPUT_BUFFER_SIZE)) {
+        template.process(templateData, out);
       }
-    } catch (IOException e) {
-      e.printStackTrace();
+      // Kept as is when the content did not change; compressed in the background otherwise
+      precompressedOutput.publish(temporaryPage, page);
+    } finally {
+      Files.deleteIfExists(temporaryPage);
     }
-    return "";
-  }
-
-  private static String updatedTime(Artifact artifact) {
-    String groupPath = artifact.getGroupId().replace('.', '/');
-    String metadataPath = basePath + "/" + groupPath
-            + "/" + artifact.getArtifactId()
-            + "/maven-metadata.xml";
-    try {
-      URL url = new URL(metadataPath);
-      Scanner s = new Scanner(url.openStream());
-      while (s.hasNextLine()) {
-        String string = s.nextLine();
-        if (string.contains("<lastUpdated>")) {
-          DateFormat dateFormat = new SimpleDateFormat("yyyyMMddhhmmss");
-          DateFormat outputFormat = new SimpleDateFormat("MM-dd-yyyy");
-          String input =  string.split(">")[1].split("<")[0];
-          Date date= dateFormat.parse(input);
-          return outputFormat.format(date);
-        }
-      }
-    } catch (IOException | java.text.ParseException e) {
-      e.printStackTrace();
-    }
-    return "";
   }
 
   /**
@@ -408,65 +742,25 @@ public class DashboardMain {
         .count();
   }
 
-  private static String sharedDependencyVersion(Artifact artifact, Map<String, String> sharedDepsPosition) {
-    String groupPath = artifact.getGroupId().replace('.', '/');
-    String pomPath = getPomFileURL(artifact.getGroupId(), artifact.getArtifactId(),artifact.getVersion());
-    String parentPath = basePath + "/" + groupPath
-            + "/" + artifact.getArtifactId() + "-parent"
-            + "/" + artifact.getVersion()
-            + "/" + artifact.getArtifactId() + "-parent-" + artifact.getVersion() + ".pom";
-    String depsBomPath = basePath + "/" + groupPath
-            + "/" + artifact.getArtifactId() + "-deps-bom"
-            + "/" + artifact.getVersion()
-            + "/" + artifact.getArtifactId() + "-deps-bom-" + artifact.getVersion() + ".pom";
-    String version = getSharedDepsVersionFromURL(parentPath);
-    if (version != null) {
-      sharedDepsPosition.put(artifact.getArtifactId(), parentPath);
-      return version;
-    }
-    version = getSharedDepsVersionFromURL(pomPath);
-    if (version != null) {
-      sharedDepsPosition.put(artifact.getArtifactId(), pomPath);
-      return version;
-    }
-    version = getSharedDepsVersionFromURL(depsBomPath);
-    if (version != null) {
-      sharedDepsPosition.put(artifact.getArtifactId(), depsBomPath);
-      return version;
-    }
-    sharedDepsPosition.put(artifact.getArtifactId(), "");
-    return "";
-  }
-  private static String getSharedDepsVersionFromURL(String pomURL)  {
-    File file = new File("pomFile.xml");
-    try {
-      URL url = new URL(pomURL);
-      FileUtils.copyURLToFile(url, file);
-      MavenXpp3Reader read = new MavenXpp3Reader();
-      Model model = read.read(new FileReader(file));
-      if (model.getDependencyManagement() == null)
-        return null;
-      for (org.apache.maven.model.Dependency dep : model.getDependencyManagement().getDependencies()) {
-        if ("com.google.cloud".equals(dep.getGroupId()) && "google-cloud-shared-dependencies".equals(dep.getArtifactId()))
-          return dep.getVersion();
-      }
-
-    } catch (XmlPullParserException | IOException ignored){}
-    file.deleteOnExit();
-    return null;
+  /** Returns {@code repositoryUrl} without a trailing slash. */
+  private static String trimRepositoryURL(String repositoryUrl) {
+    return repositoryUrl.endsWith("/")
+        ? repositoryUrl.substring(0, repositoryUrl.length() - 1)
+        : repositoryUrl;
   }
 
-  private static String getPomFileURL(String groupId, String artifactId, String version) {
+  static String getPomFileURL(
+      String repositoryUrl, String groupId, String artifactId, String version) {
     String groupPath = groupId.replace('.', '/');
-    return basePath + "/" + groupPath
+    return trimRepositoryURL(repositoryUrl) + "/" + groupPath
             + "/" + artifactId
             + "/" + version
             + "/" + artifactId + "-" + version + ".pom";
   }
 
-  private static String getMetadataURL(Artifact artifact) {
+  static String getMetadataURL(String repositoryUrl, Artifact artifact) {
     String groupPath = artifact.getGroupId().replace('.', '/');
-    return basePath + "/" + groupPath
+    return trimRepositoryURL(repositoryUrl) + "/" + groupPath
             + "/" + artifact.getArtifactId()
             + "/maven-metadata.xml";
   }
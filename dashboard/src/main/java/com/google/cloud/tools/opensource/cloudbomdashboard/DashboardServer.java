@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Serves dashboards over HTTP, rendering each BOM on its first request. The server runs in the
+ * same process for its lifetime, so renders after the first one find the repository sessions,
+ * the class index, and the fetched files warm.
+ *
+ * <ul>
+ *   <li>{@code /bom/{groupId}/{artifactId}/{version}/} serves the dashboard of the BOM, and the
+ *       other files of its output directory below it, such as {@code report.ndjson}.
+ *   <li>{@code /bom/{groupId}/{artifactId}/assets/} serves the assets the dashboards share.
+ *   <li>{@code /api/bom/{groupId}/{artifactId}/{version}} serves the {@link JsonReportWriter}
+ *       report of the BOM.
+ *   <li>{@code /api/bom/{groupId}/{artifactId}/{version}/members/{memberArtifactId}} serves the
+ *       record of one member of the report.
+ * </ul>
+ *
+ * <p>Concurrent requests for a BOM not rendered yet share one render. Dashboards of release
+ * BOMs are rendered once; dashboards of {@code -SNAPSHOT} BOMs are rendered again in the
+ * background at a fixed interval, into the same directory. Each file is replaced atomically when
+ * it is rendered again, so a response never has a partly written file, but the files of a
+ * dashboard are replaced one by one: a page loaded during a refresh may combine files of the two
+ * renders, such as {@code index.html} and the member details, until it is loaded again.
+ */
+final class DashboardServer implements Closeable {
+
+  /** Renders the dashboard of a BOM and returns its output directory. */
+  interface Renderer {
+    Path render(String bomCoordinates) throws Exception;
+  }
+
+  private static final ImmutableMap<String, String> CONTENT_TYPES =
+      ImmutableMap.of(
+          "html", "text/html; charset=utf-8",
+          "css", "text/css; charset=utf-8",
+          "js", "application/javascript; charset=utf-8",
+          "ndjson", "application/x-ndjson; charset=utf-8",
+          "json", "application/json; charset=utf-8");
+
+  private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
+  private final HttpServer server;
+  private final Renderer renderer;
+  private final Path outputRoot;
+  private final Duration snapshotRefreshInterval;
+  private final Runnable beforeRefresh;
+  private final ExecutorService renderExecutor;
+  private final ScheduledExecutorService refreshExecutor;
+
+  // BOM coordinates to the output directory of its latest render
+  private final Map<String, CompletableFuture<Path>> renders = new ConcurrentHashMap<>();
+
+  /**
+   * @param port the port to listen to. 0 to pick a free port
+   * @param renderer renders dashboards under {@code outputRoot}
+   * @param outputRoot the directory holding a directory per group ID
+   * @param renderThreads the number of BOMs rendered at the same time
+   * @param snapshotRefreshInterval the interval between two renders of a {@code -SNAPSHOT} BOM
+   * @param beforeRefresh called before a {@code -SNAPSHOT} BOM is rendered again, to drop cached
+   *     data that may be outdated
+   */
+  DashboardServer(
+      int port,
+      Renderer renderer,
+      Path outputRoot,
+      int renderThreads,
+      Duration snapshotRefreshInterval,
+      Runnable beforeRefresh)
+      throws IOException {
+    this.renderer = checkNotNull(renderer);
+    this.outputRoot = outputRoot.toAbsolutePath().normalize();
+    this.snapshotRefreshInterval = checkNotNull(snapshotRefreshInterval);
+    this.beforeRefresh = checkNotNull(beforeRefresh);
+    this.renderExecutor =
+        Executors.newFixedThreadPool(
+            renderThreads,
+            new ThreadFactoryBuilder().setNameFormat("dashboard-render-%d").setDaemon(true).build());
+    this.refreshExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("dashboard-refresh").setDaemon(true).build());
+
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    // Requests wait for renders, which should not block requests for rendered dashboards
+    server.setExecutor(
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("dashboard-http-%d").setDaemon(true).build()));
+    server.createContext("/bom/", this::handleBom);
+    server.createContext("/api/bom/", this::handleApi);
+  }
+
+  void start() {
+    server.start();
+  }
+
+  InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /** Stops the server. Renders in progress are abandoned. */
+  @Override
+  public void close() {
+    server.stop(0);
+    refreshExecutor.shutdownNow();
+    renderExecutor.shutdownNow();
+  }
+
+  private void handleBom(HttpExchange exchange) throws IOException {
+    try {
+      if (!checkMethod(exchange)) {
+        return;
+      }
+      String path = exchange.getRequestURI().getPath();
+      List<String> segments = splitPath(path, "/bom/");
+      if (segments == null) {
+        sendText(exchange, 400, "Invalid path: " + path);
+        return;
+      }
+      if (segments.size() >= 4 && "assets".equals(segments.get(2))) {
+        Path artifactDirectory = outputRoot.resolve(segments.get(0)).resolve(segments.get(1));
+        serveFile(exchange, artifactDirectory, segments.subList(2, segments.size()));
+        return;
+      }
+      if (segments.size() < 3) {
+        sendText(exchange, 404, "Expected /bom/{groupId}/{artifactId}/{version}/");
+        return;
+      }
+      if (segments.size() == 3 && !path.endsWith("/")) {
+        // The pages refer to the shared assets relatively to the version directory
+        exchange.getResponseHeaders().set("Location", path + "/");
+        sendText(exchange, 302, "");
+        return;
+      }
+      Path output = render(exchange, segments);
+      if (output == null) {
+        return;
+      }
+      List<String> file = segments.subList(3, segments.size());
+      serveFile(exchange, output, file.isEmpty() ? ImmutableList.of("index.html") : file);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleApi(HttpExchange exchange) throws IOException {
+    try {
+      if (!checkMethod(exchange)) {
+        return;
+      }
+      String path = exchange.getRequestURI().getPath();
+      List<String> segments = splitPath(path, "/api/bom/");
+      if (segments == null) {
+        sendText(exchange, 400, "Invalid path: " + path);
+        return;
+      }
+      boolean report = segments.size() == 3;
+      boolean member = segments.size() == 5 && "members".equals(segments.get(3));
+      if (!report && !member) {
+        sendText(
+            exchange,
+            404,
+            "Expected /api/bom/{groupId}/{artifactId}/{version}[/members/{artifactId}]");
+        return;
+      }
+      Path output = render(exchange, segments);
+      if (output == null) {
+        return;
+      }
+      Path reportFile = output.resolve(DashboardMain.JSON_REPORT_FILE_NAME);
+      if (report) {
+        sendFile(exchange, reportFile);
+        return;
+      }
+      String record = findMemberRecord(reportFile, segments.get(4));
+      if (record == null) {
+        sendText(exchange, 404, "No member " + segments.get(4) + " in the report");
+      } else {
+        send(exchange, 200, CONTENT_TYPES.get("json"), record.getBytes(StandardCharsets.UTF_8));
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Returns the output directory of the BOM of the first three {@code segments}, rendering it if
+   * needed. Null after sending an error response.
+   */
+  @Nullable
+  private Path render(HttpExchange exchange, List<String> segments) throws IOException {
+    String coordinates = segments.get(0) + ":" + segments.get(1) + ":" + segments.get(2);
+    CompletableFuture<Path> render =
+        renders.computeIfAbsent(coordinates, key -> startRender(key, true));
+    try {
+      return render.join();
+    } catch (CompletionException ex) {
+      // The next request renders again
+      renders.remove(coordinates, render);
+      sendText(exchange, 500, "Failed to render " + coordinates + ": " + ex.getCause());
+      return null;
+    }
+  }
+
+  private CompletableFuture<Path> startRender(String coordinates, boolean first) {
+    CompletableFuture<Path> render =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return renderer.render(coordinates).toAbsolutePath().normalize();
+              } catch (Exception ex) {
+                throw new CompletionException(ex);
+              }
+            },
+            renderExecutor);
+    if (first && coordinates.endsWith("-SNAPSHOT")) {
+      render.thenRun(() -> scheduleRefresh(coordinates));
+    }
+    return render;
+  }
+
+  private void scheduleRefresh(String coordinates) {
+    refreshExecutor.scheduleWithFixedDelay(
+        () -> {
+          beforeRefresh.run();
+          try {
+            Path output = startRender(coordinates, false).join();
+            renders.put(coordinates, CompletableFuture.completedFuture(output));
+          } catch (CompletionException ex) {
+            // The files rendered before the failure stay until a refresh succeeds
+            System.err.println("Failed to refresh " + coordinates + ": " + ex.getCause());
+          }
+        },
+        snapshotRefreshInterval.toMillis(),
+        snapshotRefreshInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Returns the record of the member with {@code artifactId} in {@code report}. */
+  @Nullable
+  private static String findMemberRecord(Path report, String artifactId) throws IOException {
+    // The coordinates are the second field of member records
+    String prefix = "{\"type\":\"member\",\"coordinates\":\"";
+    try (BufferedReader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.startsWith(prefix)) {
+          int end = line.indexOf('"', prefix.length());
+          List<String> coordinates =
+              Splitter.on(':').splitToList(line.substring(prefix.length(), end));
+          if (coordinates.size() > 1 && artifactId.equals(coordinates.get(1))) {
+            return line;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the segments of {@code path} after {@code context}. Null if a segment could leave
+   * the output directory, because coordinates become directory names.
+   */
+  @Nullable
+  private static List<String> splitPath(String path, String context) {
+    List<String> segments = PATH_SPLITTER.splitToList(path.substring(context.length()));
+    for (String segment : segments) {
+      if (".".equals(segment) || "..".equals(segment) || segment.contains("\\")) {
+        return null;
+      }
+    }
+    return segments;
+  }
+
+  private static boolean checkMethod(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      return true;
+    }
+    exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+    sendText(exchange, 405, "Method not allowed: " + method);
+    return false;
+  }
+
+  /** Sends the file at {@code path} relative to {@code directory}, which it may not leave. */
+  private static void serveFile(HttpExchange exchange, Path directory, List<String> path)
+      throws IOException {
+    Path file = directory;
+    for (String segment : path) {
+      file = file.resolve(segment);
+    }
+    file = file.normalize();
+    if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+      sendText(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+      return;
+    }
+    sendFile(exchange, file);
+  }
+
+  private static void sendFile(HttpExchange exchange, Path file) throws IOException {
+    String fileName = file.getFileName().toString();
+    String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+    String contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    send(exchange, 200, contentType, Files.readAllBytes(file));
+  }
+
+  private static void sendText(HttpExchange exchange, int status, String message)
+      throws IOException {
+    send(exchange, status, "text/plain; charset=utf-8", message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    if ("HEAD".equals(exchange.getRequestMethod()) || body.length == 0) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+}
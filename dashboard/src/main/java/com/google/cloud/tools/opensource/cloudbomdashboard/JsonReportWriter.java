@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.ArtifactProblem;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyTreeSnapshot;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.UnresolvableArtifactProblem;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Update;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Writes the dashboard's results as newline-delimited JSON, one record per line, so that tools
+ * do not have to scrape the HTML. The first record is a header with the schema version, followed
+ * by one record per BOM member written as soon as the member is checked, and a footer with the
+ * totals. The records go to a temporary file that replaces the report when the footer is written,
+ * so that readers such as {@link DashboardServer} never see a partly written report; a run that
+ * does not finish leaves the previous report in place.
+ *
+ * <p>Records have a {@code type} of {@code header}, {@code member}, or {@code footer}. The schema
+ * version changes when a field is removed or changes its meaning; new fields may be added to the
+ * same version.
+ *
+ * <p>The report holds the results only, so that two runs with the same results write the same
+ * bytes and {@link PrecompressedOutput} keeps its files. The generation time and the timings of
+ * the run go to a separate small file written by {@link #writeRun(Path)}.
+ */
+final class JsonReportWriter implements Closeable {
+
+  static final int SCHEMA_VERSION = 2;
+
+  static final ImmutableList<String> TEST_NAMES =
+      ImmutableList.of(
+          DashboardMain.TEST_NAME_UPPER_BOUND,
+          DashboardMain.TEST_NAME_DEPENDENCY_CONVERGENCE,
+          DashboardMain.TEST_NAME_LINKAGE_CHECK,
+          DashboardMain.TEST_NAME_DUPLICATE_CLASSES);
+
+  private final Path file;
+  private final Path temporaryFile;
+  private final PrecompressedOutput publisher;
+  private final Writer writer;
+  private final JsonWriter json;
+  private final Stopwatch stopwatch = Stopwatch.createStarted();
+  private final Instant generatedAt = Instant.now();
+  private final Map<String, Integer> failedMemberCounts = new LinkedHashMap<>();
+  private final Map<String, Map<String, Long>> memberTimings = new LinkedHashMap<>();
+  private int memberCount;
+  private int unresolvedMemberCount;
+  private long elapsedMillis;
+  private boolean finished;
+
+  /**
+   * Writes the header record for {@code bomCoordinates} to a temporary file next to {@code file}.
+   *
+   * @param publisher moves the finished report and the run file into place and compresses them
+   */
+  JsonReportWriter(Path file, String bomCoordinates, PrecompressedOutput publisher)
+      throws IOException {
+    this.file = file;
+    this.publisher = publisher;
+    this.temporaryFile =
+        Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    this.writer =
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(temporaryFile), StandardCharsets.UTF_8));
+    this.json = new JsonWriter(writer);
+    // Lenient mode allows one top-level value per line
+    json.setLenient(true);
+    for (String testName : TEST_NAMES) {
+      failedMemberCounts.put(testName, 0);
+    }
+
+    json.beginObject();
+    json.name("type").value("header");
+    json.name("schemaVersion").value(SCHEMA_VERSION);
+    json.name("bom").value(bomCoordinates);
+    json.endObject();
+    endRecord();
+  }
+
+  /**
+   * Writes the record of a member.
+   *
+   * @param timings milliseconds spent in each stage of the check, by stage name, written by
+   *     {@link #writeRun(Path)}
+   */
+  void writeMember(
+      Artifact member,
+      ArtifactInfo info,
+      ArtifactResults results,
+      MemberMetadata metadata,
+      Map<String, Long> timings)
+      throws IOException {
+    checkState(!finished, "The report is finished");
+    memberCount++;
+    memberTimings.put(Artifacts.toCoordinates(member), timings);
+    if (info.isUnresolved()) {
+      unresolvedMemberCount++;
+    }
+
+    json.beginObject();
+    json.name("type").value("member");
+    json.name("coordinates").value(Artifacts.toCoordinates(member));
+    json.name("exception").value(results.getExceptionMessage());
+
+    json.name("versions").beginObject();
+    json.name("current").value(member.getVersion());
+    json.name("latest").value(metadata.getLatestVersion());
+    json.name("latestUpdated").value(metadata.getUpdatedTime());
+    json.name("sharedDependencies").value(metadata.getSharedDependenciesVersion());
+    json.name("sharedDependenciesPosition").value(metadata.getSharedDependenciesPosition());
+    json.endObject();
+
+    json.name("results").beginObject();
+    for (String testName : TEST_NAMES) {
+      Boolean result = results.getResult(testName);
+      json.name(testName).beginObject();
+      // null when the test did not run
+      json.name("passed").value(result);
+      json.name("failures").value(results.getFailureCount(testName));
+      writeProblems(results.getProblems(testName));
+      json.endObject();
+      if (result == null || !result) {
+        failedMemberCounts.merge(testName, 1, Integer::sum);
+      }
+    }
+    json.endObject();
+
+    json.name("upperBoundFailures").beginArray();
+    if (info.getException() == null) {
+      for (Map.Entry<Artifact, Artifact> failure : info.getUpperBoundFailures().entrySet()) {
+        json.beginObject();
+        json.name("selected").value(Artifacts.toCoordinates(failure.getKey()));
+        json.name("highest").value(Artifacts.toCoordinates(failure.getValue()));
+        json.endObject();
+      }
+    }
+    json.endArray();
+
+    json.name("updates").beginArray();
+    if (info.getException() == null) {
+      for (Update update : info.getConvergenceIssues()) {
+        json.beginObject();
+        json.name("parent").value(Artifacts.toCoordinates(update.getParent()));
+        json.name("from").value(Artifacts.toCoordinates(update.getFrom()));
+        json.name("to").value(update.getTo().getVersion());
+        json.endObject();
+      }
+    }
+    json.endArray();
+
+    json.name("unresolvedArtifacts").beginArray();
+    for (UnresolvableArtifactProblem problem : info.getUnresolvedArtifacts()) {
+      json.value(problem.toString());
+    }
+    json.endArray();
+
+    // The tree Maven selects, stored for BomDiff. Absent when the dependencies were not resolved
+    if (info.getException() == null) {
+      json.name("dependencyTree");
+      DependencyTreeSnapshot.of(info.getTransitiveDependencies()).write(json);
+    }
+
+    json.endObject();
+    endRecord();
+  }
+
+  private void writeProblems(List<ArtifactProblem> problems) throws IOException {
+    json.name("problems").beginArray();
+    for (ArtifactProblem problem : problems) {
+      json.value(problem.toString());
+    }
+    json.endArray();
+  }
+
+  /** Writes the footer record and replaces the report with the written records. */
+  void finish() throws IOException {
+    checkState(!finished, "The report is finished");
+    finished = true;
+    elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+    json.beginObject();
+    json.name("type").value("footer");
+    json.name("memberCount").value(memberCount);
+    json.name("unresolvedMemberCount").value(unresolvedMemberCount);
+    json.name("failedMemberCounts").beginObject();
+    for (Map.Entry<String, Integer> count : failedMemberCounts.entrySet()) {
+      json.name(count.getKey()).value(count.getValue());
+    }
+    json.endObject();
+    json.endObject();
+    endRecord();
+    writer.close();
+    publisher.publish(temporaryFile, file);
+  }
+
+  /**
+   * Writes the generation time, the elapsed time, and the timings of the members of the finished
+   * run to {@code runFile} as a JSON object, replacing it atomically.
+   *
+   * @throws IllegalStateException if the report is not finished
+   */
+  void writeRun(Path runFile) throws IOException {
+    checkState(finished, "The report is not finished");
+    Path temporaryRunFile =
+        Files.createTempFile(runFile.getParent(), runFile.getFileName().toString(), ".tmp");
+    try {
+      writeRunObject(temporaryRunFile);
+      publisher.publish(temporaryRunFile, runFile);
+    } finally {
+      Files.deleteIfExists(temporaryRunFile);
+    }
+  }
+
+  private void writeRunObject(Path runFile) throws IOException {
+    try (JsonWriter run =
+        new JsonWriter(
+            new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(runFile), StandardCharsets.UTF_8)))) {
+      run.beginObject();
+      run.name("schemaVersion").value(SCHEMA_VERSION);
+      run.name("generatedAt").value(generatedAt.toString());
+      run.name("elapsedMillis").value(elapsedMillis);
+      run.name("timingsMillis").beginObject();
+      for (Map.Entry<String, Map<String, Long>> member : memberTimings.entrySet()) {
+        run.name(member.getKey()).beginObject();
+        for (Map.Entry<String, Long> timing : member.getValue().entrySet()) {
+          run.name(timing.getKey()).value(timing.getValue());
+        }
+        run.endObject();
+      }
+      run.endObject();
+      run.endObject();
+    }
+  }
+
+  /**
+   * Returns the totals of the footer as a record of {@code version}.
+   *
+   * @throws IllegalStateException if the report is not finished
+   */
+  TrendRecord toTrendRecord(String version) {
+    checkState(finished, "The report is not finished");
+    return new TrendRecord(
+        version,
+        generatedAt,
+        memberCount,
+        unresolvedMemberCount,
+        failedMemberCounts,
+        elapsedMillis);
+  }
+
+  private void endRecord() throws IOException {
+    writer.write('\n');
+  }
+
+  /** Deletes the records of a report that was not finished. */
+  @Override
+  public void close() throws IOException {
+    // Not JsonWriter.close, which fails on the record left incomplete by an exception
+    writer.close();
+    Files.deleteIfExists(temporaryFile);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Row of the library versions table of the dashboard. The template reads the rows from an
+ * iterator that fetches the metadata of a member only when its row is rendered.
+ */
+public final class LibraryVersionRow {
+
+  private final Artifact artifact;
+  private final MemberMetadata metadata;
+
+  private LibraryVersionRow(Artifact artifact, MemberMetadata metadata) {
+    this.artifact = checkNotNull(artifact);
+    this.metadata = checkNotNull(metadata);
+  }
+
+  Artifact getArtifact() {
+    return artifact;
+  }
+
+  public String getArtifactId() {
+    return artifact.getArtifactId();
+  }
+
+  /** Returns the version of the member in the BOM. */
+  public String getCurrentVersion() {
+    return artifact.getVersion();
+  }
+
+  public String getLatestVersion() {
+    return metadata.getLatestVersion();
+  }
+
+  public String getLatestPomUrl() {
+    return metadata.getLatestPomUrl();
+  }
+
+  public String getUpdatedTime() {
+    return metadata.getUpdatedTime();
+  }
+
+  public String getMetadataUrl() {
+    return metadata.getMetadataUrl();
+  }
+
+  public String getSharedDependenciesVersion() {
+    return metadata.getSharedDependenciesVersion();
+  }
+
+  public String getSharedDependenciesPosition() {
+    return metadata.getSharedDependenciesPosition();
+  }
+
+  /**
+   * Returns the rows of {@code members} sorted by artifact ID. When two members have the same
+   * artifact ID, the row shows the last one.
+   */
+  static Iterable<LibraryVersionRow> rows(
+      Collection<Artifact> members, MetadataPrefetcher prefetcher) {
+    Map<String, Artifact> membersByArtifactId = new TreeMap<>();
+    for (Artifact member : members) {
+      membersByArtifactId.put(member.getArtifactId(), member);
+    }
+    List<Artifact> sortedMembers = new ArrayList<>(membersByArtifactId.values());
+    return () ->
+        new Iterator<LibraryVersionRow>() {
+          private final Iterator<Artifact> iterator = sortedMembers.iterator();
+
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public LibraryVersionRow next() {
+            Artifact member = iterator.next();
+            return new LibraryVersionRow(member, prefetcher.get(member));
+          }
+        };
+  }
+}
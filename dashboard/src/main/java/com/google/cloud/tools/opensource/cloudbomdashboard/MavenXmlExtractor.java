@@ -0,0 +1,318 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Extracts a few elements from {@code maven-metadata.xml} files and POMs with a streaming XML
+ * parser. Only the text of the extracted elements is materialized, and parsing stops as soon as
+ * the elements are found, instead of building a whole {@link org.apache.maven.model.Model} or
+ * splitting lines that break when a file is formatted differently.
+ */
+final class MavenXmlExtractor {
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    // Repository files have no DTDs; external entities are never resolved
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    return factory;
+  }
+
+  private MavenXmlExtractor() {}
+
+  /** The versioning section of a {@code maven-metadata.xml} file. */
+  static final class RepositoryMetadata {
+    private final String latest;
+    private final String release;
+    private final String lastUpdated;
+    private final ImmutableList<String> versions;
+
+    private RepositoryMetadata(
+        String latest, String release, String lastUpdated, ImmutableList<String> versions) {
+      this.latest = latest;
+      this.release = release;
+      this.lastUpdated = lastUpdated;
+      this.versions = versions;
+    }
+
+    /** Returns the latest version including snapshots. Empty if the metadata does not have it. */
+    String getLatest() {
+      return latest;
+    }
+
+    /** Returns the latest release version. Empty if the metadata does not have it. */
+    String getRelease() {
+      return release;
+    }
+
+    /** Returns the time the metadata was updated, such as 20200801123456. Empty if unknown. */
+    String getLastUpdated() {
+      return lastUpdated;
+    }
+
+    /** Returns the versions in the order of the metadata. */
+    ImmutableList<String> getVersions() {
+      return versions;
+    }
+  }
+
+  /** A dependency in the dependency management section of a POM. */
+  static final class ManagedDependency {
+    private String groupId = "";
+    private String artifactId = "";
+    private String version = "";
+    private String type = "jar";
+    private String scope = "";
+
+    String getGroupId() {
+      return groupId;
+    }
+
+    String getArtifactId() {
+      return artifactId;
+    }
+
+    /** Returns the version as written in the POM, without interpolating properties. */
+    String getVersion() {
+      return version;
+    }
+
+    String getType() {
+      return type;
+    }
+
+    /** Returns the scope. Empty if the POM does not specify it. */
+    String getScope() {
+      return scope;
+    }
+
+    @Override
+    public String toString() {
+      return groupId + ":" + artifactId + ":" + type + ":" + version;
+    }
+  }
+
+  /**
+   * Reads the versioning section of {@code metadata}. Parsing stops at the end of the section.
+   *
+   * @throws IOException if the metadata is not well-formed XML
+   */
+  static RepositoryMetadata readMetadata(InputStream metadata) throws IOException {
+    String latest = "";
+    String release = "";
+    String lastUpdated = "";
+    ImmutableList.Builder<String> versions = ImmutableList.builder();
+
+    XMLStreamReader reader = createReader(metadata);
+    try {
+      // metadata > versioning > element
+      int depth = 0;
+      boolean inVersioning = false;
+      boolean inVersions = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          String name = reader.getLocalName();
+          if (depth == 2) {
+            inVersioning = "versioning".equals(name);
+          } else if (inVersioning && depth == 3) {
+            switch (name) {
+              case "latest":
+                latest = readText(reader);
+                depth--;
+                break;
+              case "release":
+                release = readText(reader);
+                depth--;
+                break;
+              case "lastUpdated":
+                lastUpdated = readText(reader);
+                depth--;
+                break;
+              case "versions":
+                inVersions = true;
+                break;
+              default:
+                break;
+            }
+          } else if (inVersions && depth == 4 && "version".equals(name)) {
+            versions.add(readText(reader));
+            depth--;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (depth == 3) {
+            inVersions = false;
+          } else if (depth == 2 && inVersioning) {
+            break;
+          }
+          depth--;
+        }
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException("Invalid metadata", ex);
+    } finally {
+      close(reader);
+    }
+    return new RepositoryMetadata(latest, release, lastUpdated, versions.build());
+  }
+
+  /**
+   * Returns the dependencies in the dependency management section of {@code pom} that match
+   * {@code filter}, at most {@code maxCount} of them. Parsing stops at the end of the section or
+   * when {@code maxCount} dependencies are found.
+   *
+   * @throws IOException if the POM is not well-formed XML
+   */
+  static ImmutableList<ManagedDependency> readManagedDependencies(
+      InputStream pom, Predicate<ManagedDependency> filter, int maxCount) throws IOException {
+    checkArgument(maxCount > 0, "maxCount should be positive: %s", maxCount);
+    List<ManagedDependency> matches = new ArrayList<>();
+
+    XMLStreamReader reader = createReader(pom);
+    try {
+      // project > dependencyManagement > dependencies > dependency > element
+      int depth = 0;
+      boolean inDependencyManagement = false;
+      boolean inDependencies = false;
+      ManagedDependency dependency = null;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          String name = reader.getLocalName();
+          if (depth == 2) {
+            inDependencyManagement = "dependencyManagement".equals(name);
+          } else if (inDependencyManagement && depth == 3) {
+            inDependencies = "dependencies".equals(name);
+          } else if (inDependencies && depth == 4 && "dependency".equals(name)) {
+            dependency = new ManagedDependency();
+          } else if (dependency != null && depth == 5) {
+            if (readDependencyElement(reader, name, dependency)) {
+              depth--;
+            }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (depth == 4 && dependency != null) {
+            if (filter.test(dependency)) {
+              matches.add(dependency);
+              if (matches.size() == maxCount) {
+                break;
+              }
+            }
+            dependency = null;
+          } else if (depth == 3) {
+            inDependencies = false;
+          } else if (depth == 2 && inDependencyManagement) {
+            break;
+          }
+          depth--;
+        }
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException("Invalid POM", ex);
+    } finally {
+      close(reader);
+    }
+    return ImmutableList.copyOf(matches);
+  }
+
+  /**
+   * Returns the version of the first dependency in the dependency management section of {@code
+   * pom} with {@code groupId} and {@code artifactId}. Null if the POM does not manage it.
+   *
+   * @throws IOException if the POM is not well-formed XML
+   */
+  @Nullable
+  static String findManagedVersion(InputStream pom, String groupId, String artifactId)
+      throws IOException {
+    ImmutableList<ManagedDependency> dependencies =
+        readManagedDependencies(
+            pom,
+            dependency ->
+                groupId.equals(dependency.getGroupId())
+                    && artifactId.equals(dependency.getArtifactId()),
+            1);
+    return dependencies.isEmpty() ? null : dependencies.get(0).getVersion();
+  }
+
+  /**
+   * Reads the text of {@code name} into {@code dependency}. Returns true if the text was read,
+   * which moves the reader to the end of the element.
+   */
+  private static boolean readDependencyElement(
+      XMLStreamReader reader, String name, ManagedDependency dependency)
+      throws XMLStreamException {
+    switch (name) {
+      case "groupId":
+        dependency.groupId = readText(reader);
+        return true;
+      case "artifactId":
+        dependency.artifactId = readText(reader);
+        return true;
+      case "version":
+        dependency.version = readText(reader);
+        return true;
+      case "type":
+        dependency.type = readText(reader);
+        return true;
+      case "scope":
+        dependency.scope = readText(reader);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Returns the trimmed text of the current element and moves to its end. */
+  private static String readText(XMLStreamReader reader) throws XMLStreamException {
+    return reader.getElementText().trim();
+  }
+
+  private static XMLStreamReader createReader(InputStream input) throws IOException {
+    try {
+      return INPUT_FACTORY.createXMLStreamReader(input);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  private static void close(XMLStreamReader reader) {
+    try {
+      reader.close();
+    } catch (XMLStreamException ignored) {
+      // Closing a reader does not close its input and has nothing to clean up on failure
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+/**
+ * Repository metadata of a BOM member shown on the dashboard. Values that could not be fetched
+ * are empty strings.
+ */
+final class MemberMetadata {
+
+  private final String latestVersion;
+  private final String latestPomUrl;
+  private final String updatedTime;
+  private final String metadataUrl;
+  private final String sharedDependenciesVersion;
+  private final String sharedDependenciesPosition;
+
+  MemberMetadata(
+      String latestVersion,
+      String latestPomUrl,
+      String updatedTime,
+      String metadataUrl,
+      String sharedDependenciesVersion,
+      String sharedDependenciesPosition) {
+    this.latestVersion = latestVersion;
+    this.latestPomUrl = latestPomUrl;
+    this.updatedTime = updatedTime;
+    this.metadataUrl = metadataUrl;
+    this.sharedDependenciesVersion = sharedDependenciesVersion;
+    this.sharedDependenciesPosition = sharedDependenciesPosition;
+  }
+
+  /** Returns the {@code latest} version in {@code maven-metadata.xml}. */
+  String getLatestVersion() {
+    return latestVersion;
+  }
+
+  /** Returns the URL of the POM of the latest version. */
+  String getLatestPomUrl() {
+    return latestPomUrl;
+  }
+
+  /** Returns the {@code lastUpdated} date in {@code maven-metadata.xml} as MM-dd-yyyy. */
+  String getUpdatedTime() {
+    return updatedTime;
+  }
+
+  /** Returns the URL of {@code maven-metadata.xml}. */
+  String getMetadataUrl() {
+    return metadataUrl;
+  }
+
+  /** Returns the version of google-cloud-shared-dependencies managed for the member. */
+  String getSharedDependenciesVersion() {
+    return sharedDependenciesVersion;
+  }
+
+  /** Returns the URL of the POM declaring the shared dependencies version. */
+  String getSharedDependenciesPosition() {
+    return sharedDependenciesPosition;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.RepositoryUtility;
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.ResourceFetcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Fetches the {@link MemberMetadata} of BOM members in the background. The {@code
+ * maven-metadata.xml} and the candidate POMs for the shared dependencies version of every member
+ * are requested concurrently as soon as the members are known, while their dependency graphs are
+ * resolved, so that the dashboard usually finds the metadata ready when it renders.
+ *
+ * <p>Each file is requested from the configured repositories in order, until one has it. The
+ * threads and the rate limit are given by the caller, so that prefetchers of BOMs generated at the
+ * same time share them.
+ */
+final class MetadataPrefetcher implements Closeable {
+
+  private static final byte[] EMPTY_METADATA = "<metadata/>".getBytes(StandardCharsets.UTF_8);
+
+  private final ResourceFetcher fetcher;
+  private final ImmutableList<String> repositoryUrls;
+  private final Executor executor;
+  private final RateLimiter rateLimiter;
+
+  private final Map<Artifact, CompletableFuture<MemberMetadata>> metadata =
+      new ConcurrentHashMap<>();
+
+  // The requests of this prefetcher, cancelled when it is closed
+  private final Queue<CompletableFuture<FetchedFile>> requests = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param repositoryUrls the URLs of the Maven repositories to request the files from
+   * @param executor runs the requests; its thread count bounds the concurrent requests
+   * @param rateLimiter bounds the number of requests started in a second
+   */
+  MetadataPrefetcher(List<String> repositoryUrls, Executor executor, RateLimiter rateLimiter) {
+    checkArgument(!repositoryUrls.isEmpty(), "repositoryUrls should not be empty");
+    this.fetcher = RepositoryUtility.getResourceFetcher();
+    this.repositoryUrls = ImmutableList.copyOf(repositoryUrls);
+    this.executor = checkNotNull(executor);
+    this.rateLimiter = checkNotNull(rateLimiter);
+  }
+
+  /** Starts fetching the metadata of {@code members}. */
+  void prefetch(List<Artifact> members) {
+    for (Artifact member : members) {
+      metadata.computeIfAbsent(member, this::fetchMetadata);
+    }
+  }
+
+  /**
+   * Returns the metadata of {@code member}, waiting for the requests in flight if any.
+   *
+   * @throws IllegalStateException if the member was not prefetched
+   */
+  MemberMetadata get(Artifact member) {
+    CompletableFuture<MemberMetadata> future = metadata.get(member);
+    checkState(future != null, "%s was not prefetched", member);
+    return future.join();
+  }
+
+  /**
+   * Cancels the requests not started yet, leaving the shared executor to other prefetchers.
+   * Metadata not fetched yet is no longer available.
+   */
+  @Override
+  public void close() {
+    for (CompletableFuture<FetchedFile> request : requests) {
+      request.cancel(false);
+    }
+  }
+
+  private CompletableFuture<MemberMetadata> fetchMetadata(Artifact artifact) {
+    String groupId = artifact.getGroupId();
+    String artifactId = artifact.getArtifactId();
+    String version = artifact.getVersion();
+
+    CompletableFuture<FetchedFile> metadataFile =
+        fetchAsync(repository -> DashboardMain.getMetadataURL(repository, artifact), true);
+    // The shared dependencies version is looked up in this order
+    CompletableFuture<FetchedFile> parentPom =
+        fetchAsync(
+            repository ->
+                DashboardMain.getPomFileURL(repository, groupId, artifactId + "-parent", version),
+            false);
+    CompletableFuture<FetchedFile> pom =
+        fetchAsync(
+            repository -> DashboardMain.getPomFileURL(repository, groupId, artifactId, version),
+            false);
+    CompletableFuture<FetchedFile> depsBom =
+        fetchAsync(
+            repository ->
+                DashboardMain.getPomFileURL(repository, groupId, artifactId + "-deps-bom", version),
+            false);
+
+    return CompletableFuture.allOf(metadataFile, parentPom, pom, depsBom)
+        .thenApply(
+            unused -> {
+              FetchedFile metadata = metadataFile.join();
+              MavenXmlExtractor.RepositoryMetadata repositoryMetadata =
+                  parseMetadata(metadata.content, metadata.url);
+              String latestVersion = repositoryMetadata.getLatest();
+              String updatedTime = formatUpdatedTime(repositoryMetadata.getLastUpdated());
+
+              String sharedDependenciesVersion = "";
+              String sharedDependenciesPosition = "";
+              for (FetchedFile candidate :
+                  ImmutableList.of(parentPom.join(), pom.join(), depsBom.join())) {
+                String candidateVersion = parseSharedDependenciesVersion(candidate.content);
+                if (candidateVersion != null) {
+                  sharedDependenciesVersion = candidateVersion;
+                  sharedDependenciesPosition = candidate.url;
+                  break;
+                }
+              }
+
+              return new MemberMetadata(
+                  latestVersion,
+                  DashboardMain.getPomFileURL(
+                      metadata.repositoryUrl, groupId, artifactId, latestVersion),
+                  updatedTime,
+                  metadata.url,
+                  sharedDependenciesVersion,
+                  sharedDependenciesPosition);
+            });
+  }
+
+  /** Content of a file and the repository it was fetched from. */
+  private static final class FetchedFile {
+    private final String repositoryUrl;
+    private final String url;
+    @Nullable private final byte[] content;
+
+    private FetchedFile(String repositoryUrl, String url, @Nullable byte[] content) {
+      this.repositoryUrl = repositoryUrl;
+      this.url = url;
+      this.content = content;
+    }
+  }
+
+  /**
+   * Returns the file at the URL that {@code location} returns for a repository URL, from the
+   * first repository that has it. The content is null, and the URL is in the first repository,
+   * if no repository has it.
+   */
+  private CompletableFuture<FetchedFile> fetchAsync(
+      Function<String, String> location, boolean reportErrors) {
+    CompletableFuture<FetchedFile> request =
+        CompletableFuture.supplyAsync(
+            () -> {
+              for (String repositoryUrl : repositoryUrls) {
+                String url = location.apply(repositoryUrl);
+                rateLimiter.acquire();
+                try {
+                  return new FetchedFile(repositoryUrl, url, fetcher.fetch(url));
+                } catch (FileNotFoundException ex) {
+                  // The next repository may have it
+                } catch (IOException ex) {
+                  if (reportErrors) {
+                    ex.printStackTrace();
+                  }
+                }
+              }
+              String repositoryUrl = repositoryUrls.get(0);
+              String url = location.apply(repositoryUrl);
+              if (reportErrors) {
+                System.err.println(url + " is not found");
+              }
+              return new FetchedFile(repositoryUrl, url, null);
+            },
+            executor);
+    requests.add(request);
+    return request;
+  }
+
+  /** Returns the versioning section of {@code content}. Empty values if it cannot be parsed. */
+  private static MavenXmlExtractor.RepositoryMetadata parseMetadata(
+      @Nullable byte[] content, String url) {
+    try {
+      return MavenXmlExtractor.readMetadata(
+          new ByteArrayInputStream(content == null ? EMPTY_METADATA : content));
+    } catch (IOException ex) {
+      System.err.println(url + " is not valid metadata: " + ex.getMessage());
+      return parseMetadata(null, url);
+    }
+  }
+
+  private static String formatUpdatedTime(String lastUpdated) {
+    if (lastUpdated.isEmpty()) {
+      return "";
+    }
+    try {
+      DateFormat dateFormat = new SimpleDateFormat("yyyyMMddhhmmss");
+      DateFormat outputFormat = new SimpleDateFormat("MM-dd-yyyy");
+      Date date = dateFormat.parse(lastUpdated);
+      return outputFormat.format(date);
+    } catch (ParseException ex) {
+      ex.printStackTrace();
+      return "";
+    }
+  }
+
+  /**
+   * Returns the version of google-cloud-shared-dependencies in the dependency management section
+   * of the POM. Null if the POM does not manage it.
+   */
+  @Nullable
+  private static String parseSharedDependenciesVersion(@Nullable byte[] pom) {
+    if (pom == null) {
+      return null;
+    }
+    try {
+      return MavenXmlExtractor.findManagedVersion(
+          new ByteArrayInputStream(pom), "com.google.cloud", "google-cloud-shared-dependencies");
+    } catch (IOException ignored) {
+      // A POM that cannot be parsed does not tell the version
+    }
+    return null;
+  }
+}
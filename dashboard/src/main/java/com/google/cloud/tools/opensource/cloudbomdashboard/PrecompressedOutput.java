@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stage that writes a gzip variant next to each file of the dashboards, for static hosts
+ * that serve {@code index.html.gz} to clients accepting gzip. Files are compressed on a
+ * background pool while other pages render.
+ *
+ * <p>A manifest in the output root records the SHA-256 hash of each file. A file whose content
+ * has the hash of the manifest is not rewritten, and its gzip variant is kept, so that the
+ * modification times of unchanged files stay the same and synchronization tools skip them.
+ */
+final class PrecompressedOutput {
+
+  static final String MANIFEST_FILE_NAME = "manifest.json";
+  private static final int MANIFEST_SCHEMA_VERSION = 1;
+
+  /** The manifest's record of a file. */
+  private static final class Entry {
+    private final String sha256;
+    private final long size;
+    private final long gzipSize;
+
+    private Entry(String sha256, long size, long gzipSize) {
+      this.sha256 = sha256;
+      this.size = size;
+      this.gzipSize = gzipSize;
+    }
+  }
+
+  private final Path root;
+  private final ExecutorService executor;
+
+  // Paths relative to the root, with '/' separators, to their entries. Null until loaded.
+  private Map<String, Entry> manifest;
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  /**
+   * @param root the directory holding the files and the manifest
+   * @param threadCount the number of files compressed at the same time
+   */
+  PrecompressedOutput(Path root, int threadCount) {
+    checkArgument(threadCount > 0, "threadCount should be positive: %s", threadCount);
+    this.root = root.toAbsolutePath().normalize();
+    this.executor =
+        Executors.newFixedThreadPool(
+            threadCount,
+            new ThreadFactoryBuilder().setNameFormat("precompress-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Moves {@code temporaryFile} to {@code file} and compresses it in the background. If the
+   * content is the same as the manifest records for {@code file}, the temporary file is deleted
+   * instead and the existing files are kept.
+   */
+  void publish(Path temporaryFile, Path file) throws IOException {
+    String key = key(file);
+    String sha256 = hash(temporaryFile);
+    Entry entry = manifest().get(key);
+    if (entry != null && entry.sha256.equals(sha256) && isUpToDate(file)) {
+      Files.delete(temporaryFile);
+      return;
+    }
+    Files.move(
+        temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    submit(file, key, sha256);
+  }
+
+  /** Deletes {@code file}, its gzip variant, and its manifest entry. */
+  void delete(Path file) throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(gzipFile(file));
+    manifest().remove(key(file));
+  }
+
+  /**
+   * Waits for the files being compressed and writes the manifest.
+   *
+   * @throws IOException if a file could not be compressed or the manifest could not be written
+   */
+  void flush() throws IOException {
+    List<Future<?>> tasks;
+    synchronized (pending) {
+      tasks = new ArrayList<>(pending);
+      pending.clear();
+    }
+    IOException failure = null;
+    for (Future<?> task : tasks) {
+      try {
+        Futures.getChecked(task, IOException.class);
+      } catch (IOException ex) {
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      }
+    }
+    writeManifest();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void submit(Path file, String key, String sha256) {
+    submitTask(
+        () -> {
+          gzip(file, key, sha256);
+          return null;
+        });
+  }
+
+  private void submitTask(Callable<Void> task) {
+    synchronized (pending) {
+      pending.add(executor.submit(task));
+    }
+  }
+
+  private void gzip(Path file, String key, String sha256) throws IOException {
+    Path gzipFile = gzipFile(file);
+    Path temporaryFile =
+        Files.createTempFile(file.getParent(), gzipFile.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream output = new BestGzipOutputStream(Files.newOutputStream(temporaryFile))) {
+        Files.copy(file, output);
+      }
+      Files.move(
+          temporaryFile,
+          gzipFile,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+    manifest().put(key, new Entry(sha256, Files.size(file), Files.size(gzipFile)));
+  }
+
+  /** Returns true if {@code file} and its gzip variant exist. */
+  private static boolean isUpToDate(Path file) {
+    return Files.isRegularFile(file) && Files.isRegularFile(gzipFile(file));
+  }
+
+  private static Path gzipFile(Path file) {
+    return file.resolveSibling(file.getFileName() + ".gz");
+  }
+
+  private String key(Path file) {
+    Path relative = root.relativize(file.toAbsolutePath().normalize());
+    checkArgument(!relative.startsWith(".."), "%s is not in %s", file, root);
+    return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+  }
+
+  private static String hash(Path file) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream input = Files.newInputStream(file)) {
+      for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+        hasher.putBytes(buffer, 0, read);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns the manifest, reading it on the first call. A missing or invalid one is empty. */
+  private synchronized Map<String, Entry> manifest() throws IOException {
+    if (manifest == null) {
+      manifest = new ConcurrentHashMap<>();
+      Path file = root.resolve(MANIFEST_FILE_NAME);
+      if (Files.isRegularFile(file)) {
+        readManifest(file);
+      }
+    }
+    return manifest;
+  }
+
+  private void readManifest(Path file) throws IOException {
+    try {
+      String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      JsonObject json = JsonParser.parseString(content).getAsJsonObject();
+      JsonElement schemaVersion = json.get("schemaVersion");
+      if (schemaVersion == null || schemaVersion.getAsInt() != MANIFEST_SCHEMA_VERSION) {
+        return;
+      }
+      for (Map.Entry<String, JsonElement> record : json.getAsJsonObject("files").entrySet()) {
+        JsonObject entry = record.getValue().getAsJsonObject();
+        manifest.put(
+            record.getKey(),
+            new Entry(
+                entry.get("sha256").getAsString(),
+                entry.get("size").getAsLong(),
+                entry.get("gzipSize").getAsLong()));
+      }
+    } catch (JsonParseException | IllegalStateException | NullPointerException ex) {
+      // Every file is compressed again and the manifest is rewritten
+      System.err.println(file + " is not a valid manifest: " + ex);
+      manifest.clear();
+    }
+  }
+
+  private void writeManifest() throws IOException {
+    Map<String, Entry> entries = new TreeMap<>(manifest());
+    Path file = root.resolve(MANIFEST_FILE_NAME);
+    Files.createDirectories(root);
+    Path temporaryFile = Files.createTempFile(root, MANIFEST_FILE_NAME, ".tmp");
+    try {
+      try (Writer writer = new BufferedWriter(Files.newBufferedWriter(temporaryFile));
+          JsonWriter json = new JsonWriter(writer)) {
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("schemaVersion").value(MANIFEST_SCHEMA_VERSION);
+        json.name("files").beginObject();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          json.name(entry.getKey()).beginObject();
+          json.name("sha256").value(entry.getValue().sha256);
+          json.name("size").value(entry.getValue().size);
+          json.name("gzipSize").value(entry.getValue().gzipSize);
+          json.endObject();
+        }
+        json.endObject();
+        json.endObject();
+      }
+      Files.move(
+          temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /** Gzip stream at the best compression level, as files are compressed once and served often. */
+  private static final class BestGzipOutputStream extends GZIPOutputStream {
+    private BestGzipOutputStream(OutputStream output) throws IOException {
+      super(output, 64 * 1024);
+      def.setLevel(Deflater.BEST_COMPRESSION);
+    }
+  }
+}
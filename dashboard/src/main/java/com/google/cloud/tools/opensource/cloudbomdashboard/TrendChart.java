@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Line chart of one value across the versions of a BOM, drawn by version_index.ftl as an SVG
+ * polyline. Versions are spaced evenly in the order of the {@link TrendStore}.
+ */
+public final class TrendChart {
+
+  public static final int WIDTH = 640;
+  public static final int HEIGHT = 160;
+  private static final int PADDING = 8;
+
+  /** A point of the chart, with the value it shows. */
+  public static final class Marker {
+    private final double x;
+    private final double y;
+    private final String version;
+    private final String value;
+
+    private Marker(double x, double y, String version, String value) {
+      this.x = x;
+      this.y = y;
+      this.version = version;
+      this.value = value;
+    }
+
+    public String getX() {
+      return format(x);
+    }
+
+    public String getY() {
+      return format(y);
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+  private final String title;
+  private final String maxValue;
+  private final ImmutableList<Marker> markers;
+
+  private TrendChart(String title, String maxValue, ImmutableList<Marker> markers) {
+    this.title = title;
+    this.maxValue = maxValue;
+    this.markers = markers;
+  }
+
+  /** Returns the charts of the values of {@code records}, which are sorted by version. */
+  static ImmutableList<TrendChart> charts(List<TrendRecord> records) {
+    ImmutableList.Builder<TrendChart> charts = ImmutableList.builder();
+    charts.add(chart("Members", records, TrendRecord::getMemberCount));
+    for (String testName : JsonReportWriter.TEST_NAMES) {
+      charts.add(
+          chart(
+              "Members failing " + testName,
+              records,
+              record -> record.getFailedMemberCount(testName)));
+    }
+    charts.add(chart("Unresolved members", records, TrendRecord::getUnresolvedMemberCount));
+    charts.add(chart("Run time (seconds)", records, record -> record.getElapsedMillis() / 1000.0));
+    return charts.build();
+  }
+
+  private static TrendChart chart(
+      String title, List<TrendRecord> records, ToDoubleFunction<TrendRecord> value) {
+    double max = 0;
+    for (TrendRecord record : records) {
+      max = Math.max(max, value.applyAsDouble(record));
+    }
+    // A flat line at the bottom for a value that is always 0
+    double scale = max > 0 ? (HEIGHT - 2 * PADDING) / max : 0;
+    double step = records.size() > 1 ? (WIDTH - 2.0 * PADDING) / (records.size() - 1) : 0;
+
+    ImmutableList.Builder<Marker> markers = ImmutableList.builder();
+    for (int i = 0; i < records.size(); i++) {
+      TrendRecord record = records.get(i);
+      double recordValue = value.applyAsDouble(record);
+      markers.add(
+          new Marker(
+              PADDING + i * step,
+              HEIGHT - PADDING - recordValue * scale,
+              record.getVersion(),
+              format(recordValue)));
+    }
+    return new TrendChart(title, format(max), markers.build());
+  }
+
+  /** Formats with at most one decimal, as attribute values and labels need no more. */
+  private static String format(double value) {
+    if (value == Math.rint(value)) {
+      return Long.toString((long) value);
+    }
+    return String.format(Locale.ROOT, "%.1f", value);
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  /** Returns the value at the top of the chart. */
+  public String getMaxValue() {
+    return maxValue;
+  }
+
+  public ImmutableList<Marker> getMarkers() {
+    return markers;
+  }
+
+  /** Returns the points of the polyline, as in the {@code points} attribute of SVG. */
+  public String getPoints() {
+    StringBuilder points = new StringBuilder();
+    for (Marker marker : markers) {
+      if (points.length() > 0) {
+        points.append(' ');
+      }
+      points.append(marker.getX()).append(',').append(marker.getY());
+    }
+    return points.toString();
+  }
+
+  public int getWidth() {
+    return WIDTH;
+  }
+
+  public int getHeight() {
+    return HEIGHT;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+/** Totals of one run of the dashboard of a BOM version, as kept by {@link TrendStore}. */
+final class TrendRecord {
+
+  private final String version;
+  private final Instant generatedAt;
+  private final int memberCount;
+  private final int unresolvedMemberCount;
+  private final ImmutableMap<String, Integer> failedMemberCounts;
+  private final long elapsedMillis;
+
+  /**
+   * @param failedMemberCounts the number of members failing each of {@link
+   *     JsonReportWriter#TEST_NAMES}; missing tests count as 0
+   */
+  TrendRecord(
+      String version,
+      Instant generatedAt,
+      int memberCount,
+      int unresolvedMemberCount,
+      Map<String, Integer> failedMemberCounts,
+      long elapsedMillis) {
+    this.version = checkNotNull(version);
+    this.generatedAt = checkNotNull(generatedAt);
+    this.memberCount = memberCount;
+    this.unresolvedMemberCount = unresolvedMemberCount;
+    this.failedMemberCounts = ImmutableMap.copyOf(failedMemberCounts);
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * Writes the record, with the failure counts in the order of {@link JsonReportWriter#TEST_NAMES}.
+   * Changing the tests changes the format of {@link TrendStore}.
+   */
+  void write(DataOutput output) throws IOException {
+    output.writeUTF(version);
+    output.writeLong(generatedAt.toEpochMilli());
+    output.writeInt(memberCount);
+    output.writeInt(unresolvedMemberCount);
+    for (String testName : JsonReportWriter.TEST_NAMES) {
+      output.writeInt(getFailedMemberCount(testName));
+    }
+    output.writeLong(elapsedMillis);
+  }
+
+  static TrendRecord read(DataInput input) throws IOException {
+    String version = input.readUTF();
+    Instant generatedAt = Instant.ofEpochMilli(input.readLong());
+    int memberCount = input.readInt();
+    int unresolvedMemberCount = input.readInt();
+    ImmutableMap.Builder<String, Integer> failedMemberCounts = ImmutableMap.builder();
+    for (String testName : JsonReportWriter.TEST_NAMES) {
+      failedMemberCounts.put(testName, input.readInt());
+    }
+    long elapsedMillis = input.readLong();
+    return new TrendRecord(
+        version,
+        generatedAt,
+        memberCount,
+        unresolvedMemberCount,
+        failedMemberCounts.build(),
+        elapsedMillis);
+  }
+
+  String getVersion() {
+    return version;
+  }
+
+  Instant getGeneratedAt() {
+    return generatedAt;
+  }
+
+  int getMemberCount() {
+    return memberCount;
+  }
+
+  /** Returns the number of members whose dependencies could not be resolved. */
+  int getUnresolvedMemberCount() {
+    return unresolvedMemberCount;
+  }
+
+  int getFailedMemberCount(String testName) {
+    return failedMemberCounts.getOrDefault(testName, 0);
+  }
+
+  long getElapsedMillis() {
+    return elapsedMillis;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.VersionComparator;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only file of the {@link TrendRecord}s of the versions of a BOM, from which the version
+ * index draws its charts without generating old versions again. A run appends one record per
+ * version it generates; the latest record of a version replaces the earlier ones when read.
+ *
+ * <p>The file starts with a magic number and a format version. Each record follows as its length,
+ * its {@link TrendRecord#write(java.io.DataOutput) content}, and a CRC-32 of the content. A record
+ * cut short by a crash is dropped when the file is first appended to in a run.
+ */
+final class TrendStore {
+
+  static final String FILE_NAME = "trends.bin";
+
+  private static final int MAGIC = 0x42_54_52_44; // "BTRD"
+  private static final byte FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 5;
+  // Record content is a few dozen bytes; larger lengths are from a damaged file
+  private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+  private final Path file;
+  private boolean checked;
+
+  TrendStore(Path file) {
+    this.file = file;
+  }
+
+  /** Appends {@code record} to the file, creating the file if it does not exist. */
+  synchronized void append(TrendRecord record) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    record.write(new DataOutputStream(content));
+    byte[] bytes = content.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 + bytes.length + 4);
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (!checked) {
+        // Drops a damaged tail once per run, so that later records can be read
+        long validSize = scan(channel, null);
+        if (validSize < channel.size()) {
+          System.err.println(
+              "Dropping " + (channel.size() - validSize) + " damaged bytes of " + file);
+          channel.truncate(validSize);
+        }
+        checked = true;
+      }
+      if (channel.size() == 0) {
+        buffer.putInt(MAGIC).put(FORMAT_VERSION);
+      }
+      buffer.putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+      buffer.flip();
+      channel.position(channel.size());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Returns the latest record of each version, sorted by version. Empty if the file does not
+   * exist.
+   */
+  synchronized ImmutableList<TrendRecord> readLatest() throws IOException {
+    List<TrendRecord> records = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      scan(channel, records);
+    } catch (NoSuchFileException ex) {
+      return ImmutableList.of();
+    }
+    Map<String, TrendRecord> latest = new LinkedHashMap<>();
+    for (TrendRecord record : records) {
+      latest.put(record.getVersion(), record);
+    }
+    List<TrendRecord> sorted = new ArrayList<>(latest.values());
+    VersionComparator comparator = new VersionComparator();
+    sorted.sort((left, right) -> comparator.compare(left.getVersion(), right.getVersion()));
+    return ImmutableList.copyOf(sorted);
+  }
+
+  /**
+   * Reads the records of {@code channel} into {@code records}, if not null, and returns the size
+   * of the valid part of the file.
+   *
+   * @throws IOException if the file is not a trend store
+   */
+  private long scan(FileChannel channel, @Nullable List<TrendRecord> records)
+      throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      return 0;
+    }
+    byte[] bytes = new byte[(int) size];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    channel.position(0);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+
+    if (buffer.remaining() < HEADER_SIZE) {
+      return 0;
+    }
+    if (buffer.getInt() != MAGIC || buffer.get() != FORMAT_VERSION) {
+      throw new IOException(file + " is not a trend store of this version");
+    }
+    long validSize = HEADER_SIZE;
+    while (buffer.remaining() >= 4) {
+      int length = buffer.getInt();
+      if (length < 0 || length > MAX_RECORD_SIZE || buffer.remaining() < length + 4) {
+        break;
+      }
+      int offset = buffer.position();
+      buffer.position(offset + length);
+      CRC32 crc = new CRC32();
+      crc.update(bytes, offset, length);
+      if (buffer.getInt() != (int) crc.getValue()) {
+        break;
+      }
+      if (records != null) {
+        try {
+          records.add(
+              TrendRecord.read(
+                  new DataInputStream(new ByteArrayInputStream(bytes, offset, length))));
+        } catch (EOFException ex) {
+          break;
+        }
+      }
+      validSize = buffer.position();
+    }
+    return validSize;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Totals of the dashboard of one BOM version, read from the footer of its {@link
+ * JsonReportWriter} report. The version index shows one summary per version.
+ */
+public final class VersionSummary {
+
+  private final String version;
+  private final boolean complete;
+  private final int memberCount;
+  private final ImmutableMap<String, Integer> failedMemberCounts;
+
+  private VersionSummary(
+      String version,
+      boolean complete,
+      int memberCount,
+      ImmutableMap<String, Integer> failedMemberCounts) {
+    this.version = version;
+    this.complete = complete;
+    this.memberCount = memberCount;
+    this.failedMemberCounts = failedMemberCounts;
+  }
+
+  /** Returns the summary of a version whose dashboard was not generated. */
+  static VersionSummary incomplete(String version) {
+    return new VersionSummary(version, false, 0, ImmutableMap.of());
+  }
+
+  /**
+   * Reads the summary of {@code version} from {@code report}. The summary is incomplete if the
+   * report does not exist, has another schema version, or does not end with a footer.
+   *
+   * @throws IOException if the report cannot be read
+   */
+  static VersionSummary read(String version, Path report) throws IOException {
+    String header = null;
+    String lastRecord = null;
+    try (BufferedReader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (header == null) {
+          header = line;
+        }
+        lastRecord = line;
+      }
+    } catch (NoSuchFileException ex) {
+      return incomplete(version);
+    }
+    if (header == null) {
+      return incomplete(version);
+    }
+
+    try {
+      JsonObject headerRecord = JsonParser.parseString(header).getAsJsonObject();
+      if (field(headerRecord, "schemaVersion", report).getAsInt()
+          != JsonReportWriter.SCHEMA_VERSION) {
+        return incomplete(version);
+      }
+      JsonObject footer = JsonParser.parseString(lastRecord).getAsJsonObject();
+      if (!"footer".equals(field(footer, "type", report).getAsString())) {
+        return incomplete(version);
+      }
+      ImmutableMap.Builder<String, Integer> failedMemberCounts = ImmutableMap.builder();
+      for (Map.Entry<String, JsonElement> count :
+          field(footer, "failedMemberCounts", report).getAsJsonObject().entrySet()) {
+        failedMemberCounts.put(count.getKey(), count.getValue().getAsInt());
+      }
+      return new VersionSummary(
+          version,
+          true,
+          field(footer, "memberCount", report).getAsInt(),
+          failedMemberCounts.build());
+    } catch (JsonParseException | IllegalStateException | UnsupportedOperationException ex) {
+      // Thrown for malformed JSON and for values of unexpected types
+      throw new IOException(report + " is not a valid report", ex);
+    }
+  }
+
+  private static JsonElement field(JsonObject record, String name, Path report)
+      throws IOException {
+    JsonElement value = record.get(name);
+    if (value == null) {
+      throw new IOException(report + " has a record without " + name);
+    }
+    return value;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /** Returns the directory of the version's dashboard relative to the version index. */
+  public String getDirectory() {
+    return version.contains("-SNAPSHOT") ? "snapshot" : version;
+  }
+
+  /** Returns true if the version's dashboard was generated completely. */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public int getMemberCount() {
+    return memberCount;
+  }
+
+  /** Returns the number of members failing {@code testName}. 0 if the summary is incomplete. */
+  public int getFailedMemberCount(String testName) {
+    return failedMemberCounts.getOrDefault(testName, 0);
+  }
+}
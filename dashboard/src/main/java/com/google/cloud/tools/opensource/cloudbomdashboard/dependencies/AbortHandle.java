@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lets one thread abort a request that another thread is fetching with {@link
+ * ResourceFetcher#fetch(String, AbortHandle)}. Interrupting the fetching thread does not stop a
+ * blocking socket read; the fetcher registers an action that closes the request instead.
+ */
+public final class AbortHandle {
+
+  @Nullable private Runnable action;
+  private boolean aborted;
+
+  /**
+   * Sets the action stopping the request in flight. The action runs at once if the request was
+   * aborted already.
+   */
+  public void onAbort(Runnable action) {
+    checkNotNull(action);
+    synchronized (this) {
+      if (!aborted) {
+        this.action = action;
+        return;
+      }
+    }
+    action.run();
+  }
+
+  /** Aborts the request. The fetch fails with an {@link java.io.IOException}. */
+  public void abort() {
+    Runnable action;
+    synchronized (this) {
+      if (aborted) {
+        return;
+      }
+      aborted = true;
+      action = this.action;
+      this.action = null;
+    }
+    if (action != null) {
+      action.run();
+    }
+  }
+
+  /** Returns true if {@link #abort()} was called. */
+  public synchronized boolean isAborted() {
+    return aborted;
+  }
+}
@@ -73,8 +73,9 @@ public final class Bom {
   }
 
   public static Bom readBom(Path pomFile) throws MavenRepositoryException {
-    RepositorySystem system = RepositoryUtility.newRepositorySystem();
-    RepositorySystemSession session = RepositoryUtility.newSession(system);
+    RepositorySessionFactory sessionFactory = RepositorySessionFactory.getDefault();
+    RepositorySystem system = sessionFactory.getRepositorySystem();
+    RepositorySystemSession session = sessionFactory.newSession();
   
     MavenProject mavenProject = RepositoryUtility.createMavenProject(pomFile, session);
     String coordinates = mavenProject.getGroupId() + ":" + mavenProject.getArtifactId() 
@@ -103,8 +104,9 @@ public final class Bom {
       throws ArtifactDescriptorException {
     Artifact artifact = new DefaultArtifact(coordinates);
   
-    RepositorySystem system = RepositoryUtility.newRepositorySystem();
-    RepositorySystemSession session = RepositoryUtility.newSession(system);
+    RepositorySessionFactory sessionFactory = RepositorySessionFactory.getDefault();
+    RepositorySystem system = sessionFactory.getRepositorySystem();
+    RepositorySystemSession session = sessionFactory.newSession();
   
     ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
   
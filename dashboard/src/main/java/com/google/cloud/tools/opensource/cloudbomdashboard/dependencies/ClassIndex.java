@@ -0,0 +1,432 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.eclipse.aether.AbstractRepositoryListener;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.RepositoryListener;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Persistent index from class names to the JAR files defining them and their symbols.
+ *
+ * <p>Each JAR file has its own index file named after the SHA-1 checksum of the JAR file, because
+ * released JAR files never change and the same JAR file appears in the class paths of many BOM
+ * members. An index file is a {@link MappedKeyValueFile} keyed by class name, so looking up a
+ * class takes O(log n) and listing the classes does not decode any symbols. Index files are
+ * created when JAR files are downloaded to the local repository (see {@link
+ * #newRepositoryListener()}) or, for JAR files downloaded earlier, on first use.
+ *
+ * <p>The class names of every JAR file opened by the process go to one map shared across the
+ * run, from class name to the JAR files defining it, so that a class is located in a class path
+ * with a single lookup rather than one per JAR file. The map is keyed by class name, not by
+ * artifact, because versions of an artifact define the same classes and the class path decides
+ * which one is loaded.
+ */
+public final class ClassIndex {
+
+  private static final int MAGIC = 0x43495831; // "CIX1"; change the suffix with the format
+
+  // Class names never contain NUL, so this key sorts before and never collides with classes.
+  // Index files written before may also have a "\0coordinates" key, which is ignored.
+  private static final String INVALID_CLASS_FILES_KEY = "\0invalid";
+
+  private static final CharMatcher HEX = CharMatcher.anyOf("0123456789abcdef");
+
+  private static final ExecutorService backgroundIndexer =
+      Executors.newFixedThreadPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+          new ThreadFactoryBuilder().setNameFormat("class-index-%d").setDaemon(true).build());
+
+  private static final class DefaultInstanceHolder {
+    private static final ClassIndex INSTANCE =
+        new ClassIndex(
+            Paths.get(RepositoryUtility.findLocalRepository()).resolve(".class-index"));
+  }
+
+  private final Path directory;
+
+  // In-flight and finished lookups, so that a JAR file is indexed at most once per process
+  private final Map<Path, CompletableFuture<JarIndex>> jarIndexes = new ConcurrentHashMap<>();
+
+  // Class name to the indexes of the JAR files defining it, in the order they were opened. The
+  // arrays are replaced, never modified, when a JAR file is added.
+  private final Map<String, JarIndex[]> definitions = new ConcurrentHashMap<>();
+
+  /** @param directory the directory to store index files */
+  public ClassIndex(Path directory) {
+    this.directory = directory;
+  }
+
+  /** Returns the index stored in the local Maven repository. */
+  public static ClassIndex getDefault() {
+    return DefaultInstanceHolder.INSTANCE;
+  }
+
+  /**
+   * Classes and their symbols in one JAR file. The symbols stay in the mapped index file and are
+   * decoded on each lookup, so callers should keep only the symbols they need.
+   */
+  static final class JarIndex {
+    private final MappedKeyValueFile file;
+
+    private JarIndex(MappedKeyValueFile file) {
+      this.file = file;
+    }
+
+    /** Returns the symbols of {@code className}. Null if the JAR file does not define it. */
+    @Nullable
+    ClassSymbols find(String className) {
+      ByteBuffer value = file.get(className);
+      return value == null ? null : decodeClassSymbols(className, value);
+    }
+
+    /** Returns the names of the classes in the JAR file in code point order. */
+    ImmutableList<String> getClassNames() {
+      ImmutableList.Builder<String> classNames = ImmutableList.builder();
+      for (int i = 0; i < file.size(); i++) {
+        byte[] key = file.keyAt(i);
+        if (key.length > 0 && key[0] != 0) {
+          classNames.add(new String(key, StandardCharsets.UTF_8));
+        }
+      }
+      return classNames.build();
+    }
+
+    /** Passes the symbols of each class in the JAR file to {@code action}, one at a time. */
+    void forEachClass(Consumer<ClassSymbols> action) {
+      for (int i = 0; i < file.size(); i++) {
+        byte[] key = file.keyAt(i);
+        if (key.length > 0 && key[0] != 0) {
+          action.accept(
+              decodeClassSymbols(new String(key, StandardCharsets.UTF_8), file.valueAt(i)));
+        }
+      }
+    }
+
+    /** Returns the class files that could not be parsed, or the JAR file name if it is invalid. */
+    ImmutableList<String> getInvalidClassFiles() {
+      ByteBuffer value = file.get(INVALID_CLASS_FILES_KEY);
+      return value == null ? ImmutableList.of() : decodeStrings(value);
+    }
+  }
+
+  /**
+   * Returns the index of {@code jar}, creating it if it does not exist, and adds its classes to
+   * the ones {@link #findDefiningJars(String)} knows.
+   *
+   * @throws IOException if the index cannot be written
+   */
+  JarIndex getOrCreate(Path jar) throws IOException {
+    CompletableFuture<JarIndex> future = new CompletableFuture<>();
+    CompletableFuture<JarIndex> existing = jarIndexes.putIfAbsent(jar, future);
+    if (existing != null) {
+      return join(existing);
+    }
+    try {
+      JarIndex jarIndex = loadOrCreate(jar);
+      addDefinitions(jarIndex);
+      future.complete(jarIndex);
+      return jarIndex;
+    } catch (IOException | RuntimeException ex) {
+      jarIndexes.remove(jar, future);
+      future.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  private void addDefinitions(JarIndex jarIndex) {
+    for (String className : jarIndex.getClassNames()) {
+      definitions.merge(
+          className,
+          new JarIndex[] {jarIndex},
+          (existing, added) -> {
+            JarIndex[] jarIndexes = Arrays.copyOf(existing, existing.length + 1);
+            jarIndexes[existing.length] = added[0];
+            return jarIndexes;
+          });
+    }
+  }
+
+  /**
+   * Returns the indexes of the JAR files defining {@code className} among those returned by
+   * {@link #getOrCreate(Path)} so far, in the order they were first returned.
+   */
+  List<JarIndex> findDefiningJars(String className) {
+    JarIndex[] jarIndexes = definitions.get(className);
+    return jarIndexes == null
+        ? ImmutableList.of()
+        : Collections.unmodifiableList(Arrays.asList(jarIndexes));
+  }
+
+  private static JarIndex join(CompletableFuture<JarIndex> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the class index");
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private JarIndex loadOrCreate(Path jar) throws IOException {
+    Path indexFile = directory.resolve(checksum(jar) + ".idx");
+    if (Files.isRegularFile(indexFile)) {
+      try {
+        return new JarIndex(MappedKeyValueFile.open(indexFile, MAGIC));
+      } catch (IOException ex) {
+        // A corrupt index file is rebuilt below
+      }
+    }
+
+    MappedKeyValueFile.Writer writer = new MappedKeyValueFile.Writer(indexFile, MAGIC);
+    try {
+      List<String> invalidClassFiles = new ArrayList<>();
+      try {
+        MappedJarFile jarFile = MappedJarFile.open(jar);
+        for (MappedJarFile.Entry entry : jarFile.listClassFiles()) {
+          try {
+            ClassSymbols classSymbols = ClassSymbols.parse(jarFile.read(entry), entry.getName());
+            writer.put(classSymbols.getClassName(), encodeClassSymbols(classSymbols));
+          } catch (IOException ex) {
+            invalidClassFiles.add(entry.getName());
+          }
+        }
+      } catch (IOException ex) {
+        // The JAR file itself is unreadable
+        invalidClassFiles.add(jar.getFileName().toString());
+      }
+      writer.put(INVALID_CLASS_FILES_KEY, encodeStrings(invalidClassFiles));
+      writer.close();
+    } catch (IOException | RuntimeException ex) {
+      writer.abort();
+      throw ex;
+    }
+    return new JarIndex(MappedKeyValueFile.open(indexFile, MAGIC));
+  }
+
+  /**
+   * Returns the SHA-1 checksum of {@code jar}. The checksum file that Maven stores next to a
+   * downloaded artifact is used when available, so that the JAR file does not have to be read.
+   */
+  @SuppressWarnings("deprecation") // SHA-1 is what Maven repositories publish
+  private static String checksum(Path jar) throws IOException {
+    Path checksumFile = jar.resolveSibling(jar.getFileName() + ".sha1");
+    if (Files.isRegularFile(checksumFile)) {
+      // Some repositories append the file name after the checksum
+      String content = new String(Files.readAllBytes(checksumFile), StandardCharsets.US_ASCII);
+      String checksum = Ascii.toLowerCase(CharMatcher.whitespace().trimLeadingFrom(content));
+      if (checksum.length() >= 40 && HEX.matchesAllOf(checksum.substring(0, 40))) {
+        return checksum.substring(0, 40);
+      }
+    }
+    return com.google.common.io.Files.asByteSource(jar.toFile()).hash(Hashing.sha1()).toString();
+  }
+
+  /**
+   * Returns a listener that indexes JAR files in the background as they are downloaded to the
+   * local repository.
+   */
+  public RepositoryListener newRepositoryListener() {
+    return new AbstractRepositoryListener() {
+      @Override
+      public void artifactDownloaded(RepositoryEvent event) {
+        Artifact artifact = event.getArtifact();
+        File file = event.getFile();
+        if (event.getException() != null
+            || file == null
+            || artifact == null
+            || !"jar".equals(artifact.getExtension())) {
+          return;
+        }
+        backgroundIndexer.execute(
+            () -> {
+              try {
+                getOrCreate(file.toPath());
+              } catch (IOException | RuntimeException ex) {
+                // Indexed again when the class path is checked
+              }
+            });
+      }
+    };
+  }
+
+  /**
+   * Returns problems describing the JAR files in the class path of {@code graph} that contain
+   * classes already defined by JAR files earlier in the class path. Such classes are never loaded
+   * from the later JAR files.
+   *
+   * @throws UncheckedIOException if the index cannot be written
+   */
+  public ImmutableList<ArtifactProblem> findDuplicateClasses(DependencyGraph graph) {
+    Map<Path, List<DependencyNode>> classPath = LinkageChecker.buildClassPath(graph.getRootNode());
+
+    // class name to the artifact that defines it first
+    Map<String, Artifact> definitions = new HashMap<>();
+    ImmutableList.Builder<ArtifactProblem> problems = ImmutableList.builder();
+    for (Map.Entry<Path, List<DependencyNode>> entry : classPath.entrySet()) {
+      List<DependencyNode> dependencyPath = entry.getValue();
+      Artifact artifact = dependencyPath.get(dependencyPath.size() - 1).getArtifact();
+      JarIndex jarIndex;
+      try {
+        jarIndex = getOrCreate(entry.getKey());
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+
+      List<String> duplicateClasses = new ArrayList<>();
+      Artifact firstDefinition = null;
+      for (String className : jarIndex.getClassNames()) {
+        Artifact existing = definitions.putIfAbsent(className, artifact);
+        if (existing != null) {
+          duplicateClasses.add(className);
+          if (firstDefinition == null) {
+            firstDefinition = existing;
+          }
+        }
+      }
+      if (!duplicateClasses.isEmpty()) {
+        problems.add(new DuplicateClassProblem(dependencyPath, duplicateClasses, firstDefinition));
+      }
+    }
+    return problems.build();
+  }
+
+  // Strings are encoded as the length and the UTF-8 bytes, so that no DataInput is needed to read
+  // them from the mapped buffer.
+
+  private static byte[] encodeStrings(Collection<String> values) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      writeStrings(output, values);
+      return bytes.toByteArray();
+    } catch (IOException ex) {
+      throw new AssertionError(ex); // ByteArrayOutputStream does not throw IOException
+    }
+  }
+
+  private static ImmutableList<String> decodeStrings(ByteBuffer buffer) {
+    return readStrings(buffer.duplicate());
+  }
+
+  private static byte[] encodeClassSymbols(ClassSymbols classSymbols) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    String superClassName = classSymbols.getSuperClassName();
+    writeString(output, superClassName == null ? "" : superClassName);
+    writeStrings(output, classSymbols.getInterfaceNames());
+    writeStrings(output, classSymbols.getMethods());
+    writeStrings(output, classSymbols.getReferencedClasses());
+    ImmutableSetMultimap<String, String> referencedMethods = classSymbols.getReferencedMethods();
+    output.writeInt(referencedMethods.keySet().size());
+    for (String owner : referencedMethods.keySet()) {
+      writeString(output, owner);
+      writeStrings(output, referencedMethods.get(owner));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ClassSymbols decodeClassSymbols(String className, ByteBuffer value) {
+    ByteBuffer buffer = value.duplicate();
+    String superClassName = readString(buffer);
+    ImmutableList<String> interfaceNames = readStrings(buffer);
+    ImmutableSet<String> methods = ImmutableSet.copyOf(readStrings(buffer));
+    ImmutableSet<String> referencedClasses = ImmutableSet.copyOf(readStrings(buffer));
+    ImmutableSetMultimap.Builder<String, String> referencedMethods =
+        ImmutableSetMultimap.builder();
+    int ownerCount = buffer.getInt();
+    for (int i = 0; i < ownerCount; i++) {
+      String owner = readString(buffer);
+      referencedMethods.putAll(owner, readStrings(buffer));
+    }
+    return new ClassSymbols(
+        className,
+        superClassName.isEmpty() ? null : superClassName,
+        interfaceNames,
+        methods,
+        referencedClasses,
+        referencedMethods.build());
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static void writeStrings(DataOutputStream output, Collection<String> values)
+      throws IOException {
+    output.writeInt(values.size());
+    for (String value : values) {
+      writeString(output, value);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static ImmutableList<String> readStrings(ByteBuffer buffer) {
+    int count = buffer.getInt();
+    ImmutableList.Builder<String> values = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      values.add(readString(buffer));
+    }
+    return values.build();
+  }
+}
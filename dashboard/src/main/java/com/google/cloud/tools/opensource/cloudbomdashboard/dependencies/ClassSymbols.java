@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.ClassFormatException;
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+/**
+ * Symbols defined and referenced by a class file. Class names are binary names such as {@code
+ * com.google.common.collect.ImmutableList$Builder}. Methods are the method name followed by the
+ * method descriptor, such as {@code of(Ljava/lang/Object;)Lcom/google/common/collect/ImmutableList;}.
+ */
+final class ClassSymbols {
+
+  private final String className;
+  @Nullable private final String superClassName;
+  private final ImmutableList<String> interfaceNames;
+  private final ImmutableSet<String> methods;
+  private final ImmutableSet<String> referencedClasses;
+  // class name to methods referenced on the class
+  private final ImmutableSetMultimap<String, String> referencedMethods;
+
+  ClassSymbols(
+      String className,
+      @Nullable String superClassName,
+      ImmutableList<String> interfaceNames,
+      ImmutableSet<String> methods,
+      ImmutableSet<String> referencedClasses,
+      ImmutableSetMultimap<String, String> referencedMethods) {
+    this.className = className;
+    this.superClassName = superClassName;
+    this.interfaceNames = interfaceNames;
+    this.methods = methods;
+    this.referencedClasses = referencedClasses;
+    this.referencedMethods = referencedMethods;
+  }
+
+  String getClassName() {
+    return className;
+  }
+
+  /** Returns the name of the superclass. Null for {@code java.lang.Object}. */
+  @Nullable
+  String getSuperClassName() {
+    return superClassName;
+  }
+
+  ImmutableList<String> getInterfaceNames() {
+    return interfaceNames;
+  }
+
+  /** Returns the methods and constructors declared in the class. */
+  ImmutableSet<String> getMethods() {
+    return methods;
+  }
+
+  /** Returns the classes referenced from the constant pool, excluding array and primitive types. */
+  ImmutableSet<String> getReferencedClasses() {
+    return referencedClasses;
+  }
+
+  /** Returns the methods referenced from the constant pool, keyed by the class declaring them. */
+  ImmutableSetMultimap<String, String> getReferencedMethods() {
+    return referencedMethods;
+  }
+
+  /**
+   * Parses {@code classFile}.
+   *
+   * @param fileName the name of the class file used in error messages
+   * @throws IOException if the class file is malformed
+   */
+  static ClassSymbols parse(byte[] classFile, String fileName) throws IOException {
+    JavaClass javaClass;
+    try {
+      javaClass = new ClassParser(new ByteArrayInputStream(classFile), fileName).parse();
+    } catch (ClassFormatException ex) {
+      throw new IOException(ex);
+    }
+
+    String className = javaClass.getClassName();
+    String superClassName =
+        "java.lang.Object".equals(className) ? null : javaClass.getSuperclassName();
+
+    ImmutableSet.Builder<String> methods = ImmutableSet.builder();
+    for (Method method : javaClass.getMethods()) {
+      methods.add(method.getName() + method.getSignature());
+    }
+
+    ImmutableSet.Builder<String> referencedClasses = ImmutableSet.builder();
+    ImmutableSetMultimap.Builder<String, String> referencedMethods =
+        ImmutableSetMultimap.builder();
+    ConstantPool constantPool = javaClass.getConstantPool();
+    for (Constant constant : constantPool.getConstantPool()) {
+      if (constant == null) {
+        continue; // The first entry and the second slots of long and double are null
+      }
+      try {
+        switch (constant.getTag()) {
+          case Const.CONSTANT_Class:
+            String referencedClass =
+                toClassName(((ConstantClass) constant).getBytes(constantPool));
+            if (referencedClass != null && !referencedClass.equals(className)) {
+              referencedClasses.add(referencedClass);
+            }
+            break;
+          case Const.CONSTANT_Methodref:
+          case Const.CONSTANT_InterfaceMethodref:
+            ConstantCP methodReference = (ConstantCP) constant;
+            String owner = methodReference.getClass(constantPool);
+            if (owner.startsWith("[")) {
+              break; // Methods on arrays are inherited from java.lang.Object
+            }
+            ConstantNameAndType nameAndType =
+                (ConstantNameAndType)
+                    constantPool.getConstant(
+                        methodReference.getNameAndTypeIndex(), Const.CONSTANT_NameAndType);
+            referencedMethods.put(
+                owner,
+                nameAndType.getName(constantPool) + nameAndType.getSignature(constantPool));
+            break;
+          default:
+            break;
+        }
+      } catch (ClassFormatException ex) {
+        throw new IOException(fileName + " has an invalid constant pool", ex);
+      }
+    }
+
+    return new ClassSymbols(
+        className,
+        superClassName,
+        ImmutableList.copyOf(javaClass.getInterfaceNames()),
+        methods.build(),
+        referencedClasses.build(),
+        referencedMethods.build());
+  }
+
+  /**
+   * Returns the binary name of the class referenced by {@code internalName} such as {@code
+   * java/lang/String} or {@code [Ljava/lang/String;}. Null for arrays of primitive types.
+   */
+  @Nullable
+  private static String toClassName(String internalName) {
+    String elementName = internalName;
+    if (elementName.startsWith("[")) {
+      elementName = elementName.substring(elementName.lastIndexOf('[') + 1);
+      if (!elementName.startsWith("L")) {
+        return null;
+      }
+      elementName = elementName.substring(1, elementName.length() - 1);
+    }
+    return elementName.replace('/', '.');
+  }
+}
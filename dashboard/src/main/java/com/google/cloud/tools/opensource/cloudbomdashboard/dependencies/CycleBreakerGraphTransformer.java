@@ -17,10 +17,15 @@
 package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.eclipse.aether.RepositoryException;
 import org.eclipse.aether.artifact.Artifact;
@@ -33,50 +38,118 @@ import org.eclipse.aether.graph.DependencyNode;
  *
  * <p>A cycle in a dependency graph is a situation where a path to a node from the root contains the
  * same node. For example, jaxen 1.1-beta-6 is known to have cycle with dom4j 1.6.1.
+ *
+ * <p>Nodes are the same when their artifacts have the same coordinates, including extension and
+ * classifier. The graph is traversed with an explicit stack so that the depth of the graph is not
+ * limited by the thread's stack size.
  */
 final class CycleBreakerGraphTransformer implements DependencyGraphTransformer {
 
   private final Set<DependencyNode> visitedNodes =
       Collections.newSetFromMap(new IdentityHashMap<>());
 
+  // Artifact coordinates to small integers, so that the ancestors are a BitSet
+  private final Map<String, Integer> artifactIds = new HashMap<>();
+
+  // Many nodes share the same Artifact instance; this avoids formatting its coordinates again
+  private final Map<Artifact, Integer> artifactIdCache = new IdentityHashMap<>();
+
+  /** A node whose children are being traversed. */
+  private static final class Frame {
+    private final DependencyNode node;
+    private final int artifactId;
+    private final List<DependencyNode> children;
+    private int nextChild;
+    // Children to remove from the node when its traversal finishes. Null if none.
+    private Set<DependencyNode> removedChildren;
+
+    private Frame(DependencyNode node, int artifactId) {
+      this.node = node;
+      this.artifactId = artifactId;
+      this.children = node.getChildren();
+    }
+  }
+
   @Override
   public DependencyNode transformGraph(
       DependencyNode dependencyNode, DependencyGraphTransformationContext context)
       throws RepositoryException {
 
-    removeCycle(null, dependencyNode, new HashSet<>());
+    removeCycles(dependencyNode);
     return dependencyNode;
   }
 
-  private void removeCycle(DependencyNode parent, DependencyNode node, Set<Artifact> ancestors) {
-    Artifact artifact = node.getArtifact();
-
-    if (ancestors.contains(artifact)) { // Set (rather than List) gives O(1) lookup here
-      // parent is not null when ancestors is not empty
-      removeChildFromParent(node, parent);
+  private void removeCycles(DependencyNode root) {
+    if (!shouldVisitChildren(root)) {
       return;
     }
 
-    if (shouldVisitChildren(node)) {
-      ancestors.add(artifact);
-      for (DependencyNode child : node.getChildren()) {
-        removeCycle(node, child, ancestors);
+    BitSet ancestors = new BitSet();
+    Deque<Frame> stack = new ArrayDeque<>();
+    stack.push(enter(root, ancestors));
+
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      if (frame.nextChild < frame.children.size()) {
+        DependencyNode child = frame.children.get(frame.nextChild++);
+        int artifactId = artifactId(child.getArtifact());
+        if (artifactId >= 0 && ancestors.get(artifactId)) {
+          if (frame.removedChildren == null) {
+            frame.removedChildren = Collections.newSetFromMap(new IdentityHashMap<>());
+          }
+          frame.removedChildren.add(child);
+        } else if (shouldVisitChildren(child)) {
+          stack.push(enter(child, ancestors));
+        }
+      } else {
+        stack.pop();
+        if (frame.artifactId >= 0) {
+          ancestors.clear(frame.artifactId);
+        }
+        if (frame.removedChildren != null) {
+          removeChildren(frame.node, frame.removedChildren);
+        }
       }
-      ancestors.remove(artifact);
     }
   }
 
+  private Frame enter(DependencyNode node, BitSet ancestors) {
+    int artifactId = artifactId(node.getArtifact());
+    if (artifactId >= 0) {
+      ancestors.set(artifactId);
+    }
+    return new Frame(node, artifactId);
+  }
+
+  /** Returns the ID for the coordinates of {@code artifact}. Negative for a null artifact. */
+  private int artifactId(Artifact artifact) {
+    if (artifact == null) {
+      return -1; // artifact is null at a root dummy node
+    }
+    Integer cached = artifactIdCache.get(artifact);
+    if (cached != null) {
+      return cached;
+    }
+    // toString has groupId, artifactId, extension, classifier, and version
+    Integer id = artifactIds.computeIfAbsent(artifact.toString(), key -> artifactIds.size());
+    artifactIdCache.put(artifact, id);
+    return id;
+  }
+
   /** Returns true if {@code node} is not visited yet and marks the node as visited. */
   @VisibleForTesting
   boolean shouldVisitChildren(DependencyNode node) {
     return visitedNodes.add(node);
   }
 
-  private static void removeChildFromParent(DependencyNode child, DependencyNode parent) {
-    ImmutableList<DependencyNode> children =
-        parent.getChildren().stream()
-            .filter(node -> node != child)
-            .collect(ImmutableList.toImmutableList());
-    parent.setChildren(children);
+  private static void removeChildren(DependencyNode parent, Set<DependencyNode> removedChildren) {
+    List<DependencyNode> children = parent.getChildren();
+    List<DependencyNode> remaining = new ArrayList<>(children.size() - removedChildren.size());
+    for (DependencyNode child : children) {
+      if (!removedChildren.contains(child)) {
+        remaining.add(child);
+      }
+    }
+    parent.setChildren(remaining);
   }
 }
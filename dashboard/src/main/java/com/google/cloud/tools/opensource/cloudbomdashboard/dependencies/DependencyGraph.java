@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -31,11 +32,10 @@ import java.util.Queue;
 import java.util.Set;
 
 import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.graph.DependencyFilter;
 import org.eclipse.aether.graph.DependencyNode;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.TreeMultimap;
 
@@ -89,6 +89,11 @@ public class DependencyGraph {
     this.root = root;
   }
 
+  /** Returns the root of the dependency tree that this graph was built from. */
+  DependencyNode getRootNode() {
+    return root;
+  }
+
   @VisibleForTesting
   void addPath(DependencyPath path) {
     Artifact leaf = path.getLeaf();
@@ -212,11 +217,11 @@ public class DependencyGraph {
   }
   
   /**
-   * Creates a problem describing that {@code artifact} is unresolvable in this
-   * dependency graph.
+   * Creates a problem describing that {@code artifact} is unresolvable in this dependency graph,
+   * given the first path to it found by {@link #getFirstPaths()}.
    */
-  public UnresolvableArtifactProblem createUnresolvableArtifactProblem(Artifact artifact) {
-    ImmutableList<List<DependencyNode>> paths = findArtifactPaths(root, artifact);
+  private static UnresolvableArtifactProblem createUnresolvableArtifactProblem(
+      Artifact artifact, List<List<DependencyNode>> paths) {
     if (paths.isEmpty()) {
       // On certain conditions, Maven throws ArtifactDescriptorException even when the
       // (transformed) dependency graph does not contain the problematic artifact any more.
@@ -227,23 +232,35 @@ public class DependencyGraph {
     }
   }
 
-  private static ImmutableList<List<DependencyNode>> findArtifactPaths(
-      DependencyNode root, Artifact artifact) {
-    String coordinates = com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts.toCoordinates(artifact);
-    DependencyFilter filter =
-        (node, parents) ->
-            node.getArtifact() != null // artifact is null at a root dummy node.
-                && com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts.toCoordinates(node.getArtifact()).equals(coordinates);
-    UniquePathRecordingDependencyVisitor visitor = new UniquePathRecordingDependencyVisitor(filter);
-    root.accept(visitor);
-    return ImmutableList.copyOf(visitor.getPaths());
+  // groupId:artifactId:version to the first path in depth-first order from the root to a node of
+  // the artifact. Built on the first lookup, so that the tree is traversed once however many
+  // unresolvable artifacts are added, in one call or in several.
+  private ImmutableListMultimap<String, List<DependencyNode>> firstPaths;
+
+  private ImmutableListMultimap<String, List<DependencyNode>> getFirstPaths() {
+    if (firstPaths == null) {
+      firstPaths = MultiTargetPathRecordingDependencyVisitor.findFirstPaths(root);
+    }
+    return firstPaths;
   }
 
   private final Set<Artifact> checkedArtifacts = new HashSet<>();
-  
-  void addUnresolvableArtifactProblem(Artifact artifact) {
-    if (checkedArtifacts.add(artifact)) {
-      artifactProblems.add(createUnresolvableArtifactProblem(artifact));
+
+  /** Adds problems for {@code artifacts} that could not be resolved, unless already added. */
+  void addUnresolvableArtifactProblems(Collection<Artifact> artifacts) {
+    Map<String, Artifact> newArtifacts = new LinkedHashMap<>();
+    for (Artifact artifact : artifacts) {
+      if (checkedArtifacts.add(artifact)) {
+        newArtifacts.putIfAbsent(Artifacts.toCoordinates(artifact), artifact);
+      }
+    }
+    if (newArtifacts.isEmpty()) {
+      return;
+    }
+
+    for (Map.Entry<String, Artifact> entry : newArtifacts.entrySet()) {
+      artifactProblems.add(
+          createUnresolvableArtifactProblem(entry.getValue(), getFirstPaths().get(entry.getKey())));
     }
   }
 
@@ -21,9 +21,10 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.eclipse.aether.DefaultRepositorySystemSession;
-import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.graph.DefaultDependencyNode;
@@ -42,12 +43,13 @@ import org.eclipse.aether.resolution.DependencyResult;
  */
 public final class DependencyGraphBuilder {
 
-  private static final RepositorySystem system = RepositoryUtility.newRepositorySystem();
-
   /** Maven repositories to use when resolving dependencies. */
   private final ImmutableList<RemoteRepository> repositories;
   private Path localRepository;
 
+  /** Race among the repositories; null unless racing is enabled. */
+  @Nullable private final MirrorRace mirrorRace;
+
   static {
     OsProperties.detectOsProperties().forEach(System::setProperty);
   }
@@ -61,12 +63,43 @@ public final class DependencyGraphBuilder {
    * @throws IllegalArgumentException if a URL is malformed or does not have an allowed scheme
    */
   public DependencyGraphBuilder(Iterable<String> mavenRepositoryUrls) {
+    this(mavenRepositoryUrls, false);
+  }
+
+  /**
+   * @param mavenRepositoryUrls remote Maven repositories to search for dependencies
+   * @param raceMirrors whether the repositories are mirrors holding the same artifacts. If true,
+   *     each file is requested from the repositories concurrently and the first response matching
+   *     its checksum is used, instead of searching the repositories one after another
+   * @throws IllegalArgumentException if a URL is malformed or does not have an allowed scheme
+   */
+  public DependencyGraphBuilder(Iterable<String> mavenRepositoryUrls, boolean raceMirrors) {
     ImmutableList.Builder<RemoteRepository> repositoryListBuilder = ImmutableList.builder();
     for (String mavenRepositoryUrl : mavenRepositoryUrls) {
       RemoteRepository repository = RepositoryUtility.mavenRepositoryFromUrl(mavenRepositoryUrl);
       repositoryListBuilder.add(repository);
     }
-    this.repositories = repositoryListBuilder.build();
+    ImmutableList<RemoteRepository> repositories = repositoryListBuilder.build();
+
+    if (raceMirrors && repositories.size() > 1) {
+      List<String> urls = new ArrayList<>();
+      for (RemoteRepository repository : repositories) {
+        urls.add(repository.getUrl());
+      }
+      this.mirrorRace = new MirrorRace(urls);
+      // The resolver sees the first mirror only; FetcherTransporterFactory races the others
+      this.repositories = repositories.subList(0, 1);
+    } else {
+      this.mirrorRace = null;
+      this.repositories = repositories;
+    }
+  }
+
+  /**
+   * Returns the statistics of the mirrors raced for files. Empty unless the builder races mirrors.
+   */
+  public ImmutableList<MirrorRace.MirrorStatistics> getMirrorStatistics() {
+    return mirrorRace == null ? ImmutableList.of() : mirrorRace.getStatistics();
   }
   
   /**
@@ -96,7 +129,11 @@ public final class DependencyGraphBuilder {
             
     if (localRepository != null) {
       LocalRepository local = new LocalRepository(localRepository.toAbsolutePath().toString());
-      session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, local));
+      session.setLocalRepositoryManager(
+          RepositoryUtility.getRepositorySystem().newLocalRepositoryManager(session, local));
+    }
+    if (mirrorRace != null) {
+      session.setConfigProperty(MirrorRace.CONFIG_PROPERTY, mirrorRace);
     }
 
     CollectRequest collectRequest = new CollectRequest();
@@ -114,7 +151,8 @@ public final class DependencyGraphBuilder {
 
     // resolveDependencies equals to calling both collectDependencies (build dependency tree) and
     // resolveArtifacts (download JAR files).
-    DependencyResult dependencyResult = system.resolveDependencies(session, dependencyRequest);
+    DependencyResult dependencyResult =
+        RepositoryUtility.getRepositorySystem().resolveDependencies(session, dependencyRequest);
     return dependencyResult.getRoot();
   }
 
@@ -132,7 +170,8 @@ public final class DependencyGraphBuilder {
   public com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph buildFullDependencyGraph(List<Artifact> artifacts) {
     ImmutableList<DependencyNode> dependencyNodes =
         artifacts.stream().map(DefaultDependencyNode::new).collect(toImmutableList());
-    DefaultRepositorySystemSession session = RepositoryUtility.newSessionForFullDependency(system);
+    DefaultRepositorySystemSession session =
+        RepositorySessionFactory.getDefault().newSessionForFullDependency();
     return buildDependencyGraph(dependencyNodes, session);
   }
   
@@ -150,7 +189,7 @@ public final class DependencyGraphBuilder {
     ImmutableList<DependencyNode> dependencyNodes =
         artifacts.stream().map(DefaultDependencyNode::new).collect(toImmutableList());
     DefaultRepositorySystemSession session =
-        RepositoryUtility.newSessionForVerboseListDependency(system);
+        RepositorySessionFactory.getDefault().newSessionForVerboseListDependency();
     return buildDependencyGraph(dependencyNodes, session);
   }
   
@@ -173,7 +212,8 @@ public final class DependencyGraphBuilder {
   }
   
   com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph buildVerboseDependencyGraph(Dependency dependency) {
-    DefaultRepositorySystemSession session = RepositoryUtility.newSessionForVerboseDependency(system);
+    DefaultRepositorySystemSession session =
+        RepositorySessionFactory.getDefault().newSessionForVerboseDependency();
     ImmutableList<DependencyNode> roots = ImmutableList.of(new DefaultDependencyNode(dependency));
     return buildDependencyGraph(roots, session);
   }
@@ -188,7 +228,7 @@ public final class DependencyGraphBuilder {
    */
   public com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph buildMavenDependencyGraph(Dependency dependency) {
     ImmutableList<DependencyNode> roots = ImmutableList.of(new DefaultDependencyNode(dependency));
-    return buildDependencyGraph(roots, RepositoryUtility.newSession(system));
+    return buildDependencyGraph(roots, RepositorySessionFactory.getDefault().newSession());
   }
 
   private com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph buildDependencyGraph(
@@ -201,15 +241,17 @@ public final class DependencyGraphBuilder {
       DependencyResult result = ex.getResult();
       com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.DependencyGraph graph = DependencyGraph.from(result.getRoot());
 
+      List<Artifact> unresolvedArtifacts = new ArrayList<>();
       for (ArtifactResult artifactResult : result.getArtifactResults()) {
         Artifact resolvedArtifact = artifactResult.getArtifact();
 
         if (resolvedArtifact == null) {
-          Artifact requestedArtifact = artifactResult.getRequest().getArtifact();
-          graph.addUnresolvableArtifactProblem(requestedArtifact);
+          unresolvedArtifacts.add(artifactResult.getRequest().getArtifact());
         }
       }
-      
+      // Paths to all unresolved artifacts are found in one traversal of the graph
+      graph.addUnresolvableArtifactProblems(unresolvedArtifacts);
+
       return graph;
     }
   }
@@ -21,13 +21,118 @@ import static com.google.common.base.Preconditions.checkArgument;
 import com.google.common.base.Strings;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
 
 /** Formats Maven artifact dependency tree. */
 public class DependencyTreeFormatter {
+
+  static final String OMITTED_FOR_DUPLICATE = " (omitted for duplicate)";
+  static final String OMITTED_FOR_CYCLE = " (omitted for cycle)";
+
+  /**
+   * Writes the dependency tree of {@code graph} to {@code writer} in the format of {@link
+   * #formatDependencyTree(DependencyNode, Writer, int)}.
+   */
+  public static void formatDependencyTree(DependencyGraph graph, Writer writer, int maxDepth)
+      throws IOException {
+    formatDependencyTree(graph.getRootNode(), writer, maxDepth);
+  }
+
+  /**
+   * Writes the tree under {@code root} to {@code writer} in pre-order, with the same indentation
+   * as {@link #formatDependencyPaths(List)}. Unlike that method, it walks the nodes without
+   * recursion and without building the paths, so that verbose trees with many repeated subtrees
+   * are written in memory proportional to their depth and number of distinct artifacts.
+   *
+   * <p>As in {@code mvn dependency:tree -Dverbose}, an artifact printed before with its
+   * dependencies is followed by "(omitted for duplicate)" instead of them, and an artifact with the
+   * same group ID and artifact ID as one of its ancestors by "(omitted for cycle)". An artifact
+   * printed only at {@code maxDepth}, where dependencies are not written, is printed again in
+   * full when it appears at a shallower level.
+   *
+   * @param root the root node; when its artifact is null, as for the root of several artifacts,
+   *     its children are written as the top-level nodes
+   * @param maxDepth the number of levels of dependencies below the root to write
+   */
+  public static void formatDependencyTree(DependencyNode root, Writer writer, int maxDepth)
+      throws IOException {
+    checkArgument(maxDepth >= 0, "maxDepth should not be negative: %s", maxDepth);
+    Set<String> printedCoordinates = new HashSet<>();
+    Set<String> ancestorKeys = new HashSet<>();
+    // Iterators over the children of the nodes on the current path, and the keys of those nodes
+    Deque<Iterator<DependencyNode>> pendingChildren = new ArrayDeque<>();
+    Deque<String> pathKeys = new ArrayDeque<>();
+
+    Artifact rootArtifact = root.getArtifact();
+    int rootDepth = 0;
+    if (rootArtifact != null) {
+      rootDepth = 1;
+      writeLine(writer, rootDepth, rootArtifact, "");
+      printedCoordinates.add(Artifacts.toCoordinates(rootArtifact));
+      ancestorKeys.add(Artifacts.makeKey(rootArtifact));
+    }
+    if (maxDepth > 0) {
+      pendingChildren.push(root.getChildren().iterator());
+      pathKeys.push(rootArtifact == null ? "" : Artifacts.makeKey(rootArtifact));
+    }
+
+    while (!pendingChildren.isEmpty()) {
+      Iterator<DependencyNode> children = pendingChildren.peek();
+      if (!children.hasNext()) {
+        pendingChildren.pop();
+        ancestorKeys.remove(pathKeys.pop());
+        continue;
+      }
+      DependencyNode node = children.next();
+      Artifact artifact = node.getArtifact();
+      // Guava's zipsrc dependency is not for users but for building its Javadoc properly.
+      if (artifact == null || "jdk".equals(artifact.getGroupId())) {
+        continue;
+      }
+      int level = pendingChildren.size();
+      int depth = rootDepth + level;
+      String key = Artifacts.makeKey(artifact);
+      if (ancestorKeys.contains(key)) {
+        writeLine(writer, depth, artifact, OMITTED_FOR_CYCLE);
+      } else if (printedCoordinates.contains(Artifacts.toCoordinates(artifact))) {
+        writeLine(writer, depth, artifact, OMITTED_FOR_DUPLICATE);
+      } else {
+        writeLine(writer, depth, artifact, "");
+        // Its dependencies are not written at maxDepth, so a later occurrence has to show them
+        if (level < maxDepth || node.getChildren().isEmpty()) {
+          printedCoordinates.add(Artifacts.toCoordinates(artifact));
+        }
+        if (level < maxDepth && !node.getChildren().isEmpty()) {
+          pendingChildren.push(node.getChildren().iterator());
+          pathKeys.push(key);
+          ancestorKeys.add(key);
+        }
+      }
+    }
+    writer.flush();
+  }
+
+  private static void writeLine(Writer writer, int depth, Artifact artifact, String suffix)
+      throws IOException {
+    for (int i = 0; i < depth; i++) {
+      writer.write("  ");
+    }
+    writer.write(artifact.toString());
+    writer.write(suffix);
+    writer.write("\n");
+  }
+
   /**
    * Formats dependencies as a tree in a similar way to {@code mvn dependency:tree}.
    *
@@ -17,6 +17,12 @@
 package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
 
 import com.google.common.collect.ImmutableList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import org.eclipse.aether.artifact.DefaultArtifact;
 
 /** Prints the dependency tree of Maven artifacts. */
@@ -43,6 +49,12 @@ class DependencyTreePrinter {
     }
         
     System.out.println("Dependencies for " + coordinates);
-    System.out.println(DependencyTreeFormatter.formatDependencyPaths(dependencyGraph.list()));
+    // Written as the tree is walked, as the verbose trees of large artifacts do not fit in a string
+    Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    try {
+      DependencyTreeFormatter.formatDependencyTree(dependencyGraph, writer, Integer.MAX_VALUE);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
   }
 }
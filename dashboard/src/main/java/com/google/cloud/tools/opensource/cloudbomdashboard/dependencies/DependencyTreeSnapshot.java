@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Ints;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Stored form of a dependency tree, which run results keep to be compared without resolving the
+ * dependencies again. The nodes are in pre-order, each with its depth, its coordinates, and a
+ * hash of its subtree computed from the coordinates and the hashes of its children. Two subtrees
+ * with the same hash have the same artifacts in the same shape, so that comparisons skip them.
+ */
+public final class DependencyTreeSnapshot {
+
+  private final String[] coordinates;
+  private final int[] depths;
+  private final long[] hashes;
+  private final int[] subtreeSizes;
+  // Indexes of the children of each node, in order
+  private final int[][] children;
+
+  /** @param hashes the stored hashes of the nodes, or null to compute them */
+  private DependencyTreeSnapshot(String[] coordinates, int[] depths, @Nullable long[] hashes) {
+    this.coordinates = coordinates;
+    this.depths = depths;
+    this.subtreeSizes = new int[coordinates.length];
+    this.children = new int[coordinates.length][];
+
+    List<List<Integer>> childLists = new ArrayList<>(coordinates.length);
+    Deque<Integer> ancestors = new ArrayDeque<>();
+    for (int i = 0; i < coordinates.length; i++) {
+      checkArgument(
+          i == 0 ? depths[i] == 0 : depths[i] > 0 && depths[i] <= depths[i - 1] + 1,
+          "Node %s has depth %s after depth %s", i, depths[i], i == 0 ? -1 : depths[i - 1]);
+      while (ancestors.size() > depths[i]) {
+        ancestors.pop();
+      }
+      if (!ancestors.isEmpty()) {
+        childLists.get(ancestors.peek()).add(i);
+      }
+      ancestors.push(i);
+      childLists.add(new ArrayList<>());
+    }
+    // Children follow their parents in pre-order, so a reverse pass sees them first
+    boolean computeHashes = hashes == null;
+    this.hashes = computeHashes ? new long[coordinates.length] : hashes;
+    for (int i = coordinates.length - 1; i >= 0; i--) {
+      children[i] = Ints.toArray(childLists.get(i));
+      int size = 1;
+      for (int child : children[i]) {
+        size += subtreeSizes[child];
+      }
+      subtreeSizes[i] = size;
+      if (computeHashes) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(coordinates[i], StandardCharsets.UTF_8);
+        for (int child : children[i]) {
+          hasher.putLong(this.hashes[child]);
+        }
+        this.hashes[i] = hasher.hash().asLong();
+      }
+    }
+  }
+
+  /**
+   * Returns the snapshot of the tree of {@code graph}. Children of a root without an artifact, as
+   * for the graph of several artifacts, become the top-level nodes below an empty root.
+   */
+  public static DependencyTreeSnapshot of(DependencyGraph graph) {
+    DependencyNode root = graph.getRootNode();
+    List<String> coordinates = new ArrayList<>();
+    List<Integer> depths = new ArrayList<>();
+    Artifact rootArtifact = root.getArtifact();
+    coordinates.add(rootArtifact == null ? "" : Artifacts.toCoordinates(rootArtifact));
+    depths.add(0);
+
+    Deque<Iterator<DependencyNode>> pendingChildren = new ArrayDeque<>();
+    pendingChildren.push(root.getChildren().iterator());
+    while (!pendingChildren.isEmpty()) {
+      Iterator<DependencyNode> iterator = pendingChildren.peek();
+      if (!iterator.hasNext()) {
+        pendingChildren.pop();
+        continue;
+      }
+      DependencyNode node = iterator.next();
+      if (node.getArtifact() == null) {
+        continue;
+      }
+      coordinates.add(Artifacts.toCoordinates(node.getArtifact()));
+      depths.add(pendingChildren.size());
+      pendingChildren.push(node.getChildren().iterator());
+    }
+    return new DependencyTreeSnapshot(
+        coordinates.toArray(new String[0]), Ints.toArray(depths), null);
+  }
+
+  /**
+   * Writes the snapshot as an array of {@code [depth, coordinates, hash]} arrays, one per node in
+   * pre-order, with the hash in hexadecimal.
+   */
+  public void write(JsonWriter json) throws IOException {
+    json.beginArray();
+    for (int i = 0; i < coordinates.length; i++) {
+      json.beginArray();
+      json.value(depths[i]);
+      json.value(coordinates[i]);
+      json.value(Long.toHexString(hashes[i]));
+      json.endArray();
+    }
+    json.endArray();
+  }
+
+  /**
+   * Reads a snapshot written by {@link #write(JsonWriter)}.
+   *
+   * @throws IllegalArgumentException if the nodes do not form a tree
+   * @throws IllegalStateException if an element has an unexpected type
+   */
+  public static DependencyTreeSnapshot read(JsonArray nodes) {
+    checkArgument(nodes.size() > 0, "The tree has no root");
+    String[] coordinates = new String[nodes.size()];
+    int[] depths = new int[nodes.size()];
+    long[] hashes = new long[nodes.size()];
+    int i = 0;
+    for (JsonElement element : nodes) {
+      JsonArray node = element.getAsJsonArray();
+      checkArgument(node.size() == 3, "Node %s should have 3 elements: %s", i, node);
+      depths[i] = node.get(0).getAsInt();
+      coordinates[i] = node.get(1).getAsString();
+      hashes[i] = Long.parseUnsignedLong(node.get(2).getAsString(), 16);
+      i++;
+    }
+    return new DependencyTreeSnapshot(coordinates, depths, hashes);
+  }
+
+  /** Returns the number of nodes, including the root at index 0. */
+  public int size() {
+    return coordinates.length;
+  }
+
+  /** Returns the coordinates of a node, or an empty string for a root without an artifact. */
+  public String getCoordinates(int node) {
+    return coordinates[node];
+  }
+
+  /** Returns the hash of the subtree of a node. */
+  public long getHash(int node) {
+    return hashes[node];
+  }
+
+  /** Returns the number of nodes in the subtree of a node, including the node. */
+  public int getSubtreeSize(int node) {
+    return subtreeSizes[node];
+  }
+
+  /** Returns the indexes of the children of a node, in order. */
+  public int[] getChildren(int node) {
+    return children[node].clone();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Problem describing a Maven artifact containing classes that are already defined by another
+ * artifact earlier in the class path.
+ */
+public final class DuplicateClassProblem extends ArtifactProblem {
+  /** The duplicate class names. Never empty. */
+  private final ImmutableList<String> classNames;
+
+  /** The artifact that defines the first duplicate class earlier in the class path. */
+  private final Artifact firstDefinition;
+
+  DuplicateClassProblem(
+      List<DependencyNode> dependencyPath, List<String> classNames, Artifact firstDefinition) {
+    super(dependencyPath.get(dependencyPath.size() - 1).getArtifact(), dependencyPath);
+    checkArgument(!classNames.isEmpty(), "ClassNames cannot be empty");
+    this.classNames = ImmutableList.copyOf(classNames);
+    this.firstDefinition = checkNotNull(firstDefinition);
+  }
+
+  @Override
+  public String toString() {
+    int classCount = classNames.size();
+
+    String classDescription;
+    if (classCount == 1) {
+      classDescription = "a class " + classNames.get(0) + " also defined in " + firstDefinition;
+    } else {
+      classDescription =
+          classCount
+              + " classes also defined earlier in the class path (example: "
+              + classNames.get(0)
+              + " in "
+              + firstDefinition
+              + ")";
+    }
+    return artifact + " contains " + classDescription + ". Dependency path: " + getPath();
+  }
+}
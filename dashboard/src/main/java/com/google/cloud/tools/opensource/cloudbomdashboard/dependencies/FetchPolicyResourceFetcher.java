@@ -0,0 +1,673 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Fetcher applying a deadline, retries, and hedging to the requests of its delegate.
+ *
+ * <ul>
+ *   <li>Each request must complete before its deadline, including its retries.
+ *   <li>A failed attempt is retried after an exponential backoff with full jitter, up to the
+ *       maximum number of attempts. A resource not found is not retried.
+ *   <li>When an attempt takes longer than the 95th percentile of the recent successful fetches of
+ *       the same file type, a hedged duplicate request is sent and the first successful response
+ *       of the two is used. File types have separate latencies, so that the download time of
+ *       large JAR files does not set the delay for POMs, nor the other way around.
+ *   <li>The request that loses the race, or outlives the deadline, is aborted through its {@link
+ *       AbortHandle}, which releases its connection and its thread. A caller aborting its fetch
+ *       through {@link #fetch(String, AbortHandle)} aborts the requests in flight and the retries.
+ *   <li>Streams opened with {@link #openStream(String, AbortHandle)} and checks of existence are
+ *       retried but not hedged, since only one stream can be read. The deadline bounds the time
+ *       until the response starts, and the read timeout of the delegate bounds the reading of the
+ *       content, so that a large file on a slow link is not cut off at the deadline.
+ * </ul>
+ *
+ * <p>Attempts, including hedged ones, are counted by outcome, and the most recent failures are
+ * kept with their durations, so that a long-running process uses constant memory for them.
+ */
+public final class FetchPolicyResourceFetcher implements ResourceFetcher, Closeable {
+
+  /** Outcome of an attempt. */
+  public enum Outcome {
+    SUCCESS,
+    NOT_FOUND,
+    FAILURE,
+    /** The attempt was abandoned because another attempt finished first or the deadline passed. */
+    CANCELLED
+  }
+
+  /** A request sent to the delegate. */
+  public static final class Attempt {
+    private final String url;
+    private final int attemptNumber;
+    private final boolean hedged;
+    private final Duration duration;
+    private final Outcome outcome;
+    @Nullable private final String failureMessage;
+
+    private Attempt(
+        String url,
+        int attemptNumber,
+        boolean hedged,
+        Duration duration,
+        Outcome outcome,
+        @Nullable String failureMessage) {
+      this.url = url;
+      this.attemptNumber = attemptNumber;
+      this.hedged = hedged;
+      this.duration = duration;
+      this.outcome = outcome;
+      this.failureMessage = failureMessage;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    /** Returns 1 for the first attempt of a request, 2 for its first retry, and so on. */
+    public int getAttemptNumber() {
+      return attemptNumber;
+    }
+
+    /** Returns true if this is a duplicate request sent because the attempt was slow. */
+    public boolean isHedged() {
+      return hedged;
+    }
+
+    public Duration getDuration() {
+      return duration;
+    }
+
+    public Outcome getOutcome() {
+      return outcome;
+    }
+
+    /** Returns the message of the failure. Null unless the outcome is a failure. */
+    @Nullable
+    public String getFailureMessage() {
+      return failureMessage;
+    }
+
+    @Override
+    public String toString() {
+      return url
+          + " attempt "
+          + attemptNumber
+          + (hedged ? " (hedged)" : "")
+          + ": "
+          + outcome
+          + " in "
+          + duration.toMillis()
+          + " ms"
+          + (failureMessage != null ? " (" + failureMessage + ")" : "");
+    }
+  }
+
+  // The number of recent successful fetches of a file type whose latency determines its delay
+  private static final int LATENCY_WINDOW = 256;
+  // The number of fetches of a file type needed before its delay follows the observed latency
+  private static final int MIN_LATENCY_SAMPLES = 20;
+  // The number of failed attempts kept by getRecentFailures
+  private static final int RECENT_FAILURES = 100;
+
+  private final ResourceFetcher delegate;
+  private final Duration deadline;
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final boolean hedging;
+  private final Duration initialHedgingDelay;
+  private final Duration minHedgingDelay;
+
+  private final ThreadPoolExecutor executor;
+
+  // File extension, such as "jar" or "pom", to the latencies of its recent successful fetches
+  private final Map<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+
+  private final Map<Outcome, LongAdder> outcomeCounts = new EnumMap<>(Outcome.class);
+  private final LongAdder retryCount = new LongAdder();
+  private final LongAdder hedgedCount = new LongAdder();
+  // The latest failed attempts, oldest first
+  private final Deque<Attempt> recentFailures = new ArrayDeque<>(RECENT_FAILURES);
+
+  private FetchPolicyResourceFetcher(Builder builder) {
+    this.delegate = builder.delegate;
+    this.deadline = builder.deadline;
+    this.maxAttempts = builder.maxAttempts;
+    this.initialBackoff = builder.initialBackoff;
+    this.maxBackoff = builder.maxBackoff;
+    this.hedging = builder.hedging;
+    this.initialHedgingDelay = builder.initialHedgingDelay;
+    this.minHedgingDelay = builder.minHedgingDelay;
+    for (Outcome outcome : Outcome.values()) {
+      outcomeCounts.put(outcome, new LongAdder());
+    }
+    // Attempts beyond the limit wait in the queue; idle threads stop after a minute
+    this.executor =
+        new ThreadPoolExecutor(
+            builder.maxConcurrentAttempts,
+            builder.maxConcurrentAttempts,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("fetch-attempt-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public byte[] fetch(String url) throws IOException {
+    return fetch(url, new AbortHandle());
+  }
+
+  @Override
+  public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+    long deadlineNanos = System.nanoTime() + deadline.toNanos();
+    // The responses of the attempt in flight, which an abort wakes up
+    AtomicReference<BlockingQueue<Response>> attemptResponses = new AtomicReference<>();
+    abortHandle.onAbort(
+        () -> {
+          BlockingQueue<Response> responses = attemptResponses.get();
+          if (responses != null) {
+            responses.add(ABORTED);
+          }
+        });
+    for (int attemptNumber = 1; ; attemptNumber++) {
+      try {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        attemptResponses.set(responses);
+        if (abortHandle.isAborted()) {
+          throw new IOException(url + " was aborted");
+        }
+        return attempt(url, attemptNumber, deadlineNanos, responses);
+      } catch (FileNotFoundException | DeadlineExceededException ex) {
+        throw ex;
+      } catch (IOException ex) {
+        if (Thread.currentThread().isInterrupted() || abortHandle.isAborted()) {
+          throw ex;
+        }
+        long backoffNanos = backoffNanos(attemptNumber);
+        if (attemptNumber >= maxAttempts || System.nanoTime() + backoffNanos >= deadlineNanos) {
+          throw ex;
+        }
+        sleep(backoffNanos);
+      }
+    }
+  }
+
+  @Override
+  public InputStream openStream(String url, AbortHandle abortHandle) throws IOException {
+    return callWithRetries(
+        url, abortHandle, attemptHandle -> delegate.openStream(url, attemptHandle));
+  }
+
+  @Override
+  public void peek(String url, AbortHandle abortHandle) throws IOException {
+    callWithRetries(
+        url,
+        abortHandle,
+        attemptHandle -> {
+          delegate.peek(url, attemptHandle);
+          return null;
+        });
+  }
+
+  /** A request to the delegate that is retried but not hedged. */
+  private interface Call<T> {
+    T call(AbortHandle abortHandle) throws IOException;
+  }
+
+  /** Sends {@code call} until it succeeds, retrying it like a fetch. */
+  private <T> T callWithRetries(String url, AbortHandle abortHandle, Call<T> call)
+      throws IOException {
+    long deadlineNanos = System.nanoTime() + deadline.toNanos();
+    for (int attemptNumber = 1; ; attemptNumber++) {
+      try {
+        if (abortHandle.isAborted()) {
+          throw new IOException(url + " was aborted");
+        }
+        return callOnce(url, attemptNumber, deadlineNanos, abortHandle, call);
+      } catch (FileNotFoundException | DeadlineExceededException ex) {
+        throw ex;
+      } catch (IOException ex) {
+        if (Thread.currentThread().isInterrupted() || abortHandle.isAborted()) {
+          throw ex;
+        }
+        long backoffNanos = backoffNanos(attemptNumber);
+        if (attemptNumber >= maxAttempts || System.nanoTime() + backoffNanos >= deadlineNanos) {
+          throw ex;
+        }
+        sleep(backoffNanos);
+      }
+    }
+  }
+
+  private <T> T callOnce(
+      String url, int attemptNumber, long deadlineNanos, AbortHandle abortHandle, Call<T> call)
+      throws IOException {
+    AbortHandle attemptHandle = new AbortHandle();
+    // Also stops the reading of a stream returned by the call
+    abortHandle.onAbort(attemptHandle::abort);
+    Future<T> future = executor.submit(() -> runCall(url, attemptNumber, attemptHandle, call));
+    try {
+      return future.get(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      attemptHandle.abort();
+      future.cancel(true);
+      throw new DeadlineExceededException(
+          url + " did not respond within the deadline of " + deadline.toMillis() + " ms");
+    } catch (InterruptedException ex) {
+      attemptHandle.abort();
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching " + url);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      Throwables.throwIfInstanceOf(cause, IOException.class);
+      throw new IOException(cause);
+    }
+  }
+
+  /** Sends {@code call} to the delegate and records its outcome. */
+  private <T> T runCall(String url, int attemptNumber, AbortHandle abortHandle, Call<T> call)
+      throws IOException {
+    long start = System.nanoTime();
+    try {
+      T result = call.call(abortHandle);
+      // Not a latency of the file type, as the content is not read yet
+      record(url, attemptNumber, false, System.nanoTime() - start, Outcome.SUCCESS, null);
+      return result;
+    } catch (FileNotFoundException ex) {
+      record(url, attemptNumber, false, System.nanoTime() - start, Outcome.NOT_FOUND, null);
+      throw ex;
+    } catch (IOException | RuntimeException ex) {
+      long duration = System.nanoTime() - start;
+      if (abortHandle.isAborted() || Thread.currentThread().isInterrupted()) {
+        record(url, attemptNumber, false, duration, Outcome.CANCELLED, null);
+      } else {
+        record(url, attemptNumber, false, duration, Outcome.FAILURE, ex.toString());
+      }
+      throw ex;
+    }
+  }
+
+  /** Thrown when a request does not complete before its deadline. Not retried. */
+  private static final class DeadlineExceededException extends SocketTimeoutException {
+    private DeadlineExceededException(String message) {
+      super(message);
+    }
+  }
+
+  /** Result of a request to the delegate. */
+  private static final class Response {
+    @Nullable private final byte[] content;
+    @Nullable private final IOException failure;
+
+    private Response(@Nullable byte[] content, @Nullable IOException failure) {
+      this.content = content;
+      this.failure = failure;
+    }
+  }
+
+  // Added to the responses of an attempt when the caller aborts the fetch
+  private static final Response ABORTED = new Response(null, null);
+
+  /** Request sent to the delegate by {@link #send}. */
+  private static final class Request {
+    private final AbortHandle abortHandle = new AbortHandle();
+    @Nullable private Future<?> future;
+
+    private void abort() {
+      abortHandle.abort();
+      // Stops a request still queued, or a delegate waiting for something else than a response
+      future.cancel(true);
+    }
+  }
+
+  /** Latencies of the recent successful fetches of a file type. */
+  private static final class LatencyWindow {
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+
+    private synchronized void record(long nanos) {
+      latencies[latencyCount % LATENCY_WINDOW] = nanos;
+      latencyCount++;
+    }
+
+    /** Returns the 95th percentile latency. -1 if there are not enough samples. */
+    private long p95Nanos() {
+      long[] samples;
+      synchronized (this) {
+        if (latencyCount < MIN_LATENCY_SAMPLES) {
+          return -1;
+        }
+        samples = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+      }
+      Arrays.sort(samples);
+      return samples[(int) Math.ceil(samples.length * 0.95) - 1];
+    }
+  }
+
+  /** Fetches {@code url} once, sending a hedged request if the response is slow. */
+  private byte[] attempt(
+      String url, int attemptNumber, long deadlineNanos, BlockingQueue<Response> responses)
+      throws IOException {
+    List<Request> requests = new ArrayList<>();
+    requests.add(send(url, attemptNumber, false, responses));
+    int pending = 1;
+    long hedgeNanos = hedging ? System.nanoTime() + hedgingDelayNanos(url) : Long.MAX_VALUE;
+
+    IOException failure = null;
+    try {
+      while (pending > 0) {
+        long waitNanos = Math.min(deadlineNanos, hedgeNanos) - System.nanoTime();
+        Response response = responses.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+        if (response == null) {
+          if (System.nanoTime() - deadlineNanos >= 0) {
+            throw new DeadlineExceededException(
+                url + " did not complete within the deadline of " + deadline.toMillis() + " ms");
+          }
+          requests.add(send(url, attemptNumber, true, responses));
+          pending++;
+          hedgeNanos = Long.MAX_VALUE;
+          continue;
+        }
+        if (response == ABORTED) {
+          throw new IOException(url + " was aborted");
+        }
+
+        pending--;
+        if (response.content != null) {
+          return response.content;
+        }
+        if (response.failure instanceof FileNotFoundException) {
+          throw response.failure;
+        }
+        if (failure == null) {
+          failure = response.failure;
+        }
+      }
+      throw failure;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching " + url);
+    } finally {
+      // The requests still in flight lost the race or passed the deadline
+      for (Request request : requests) {
+        request.abort();
+      }
+    }
+  }
+
+  private Request send(
+      String url, int attemptNumber, boolean hedged, BlockingQueue<Response> responses) {
+    Request request = new Request();
+    request.future =
+        executor.submit(
+            () -> runAttempt(url, attemptNumber, hedged, request.abortHandle, responses));
+    return request;
+  }
+
+  /** Sends one request to the delegate and adds its response to {@code responses}. */
+  private void runAttempt(
+      String url,
+      int attemptNumber,
+      boolean hedged,
+      AbortHandle abortHandle,
+      BlockingQueue<Response> responses) {
+    long start = System.nanoTime();
+    try {
+      byte[] content = delegate.fetch(url, abortHandle);
+      long latency = System.nanoTime() - start;
+      latencyWindow(url).record(latency);
+      record(url, attemptNumber, hedged, latency, Outcome.SUCCESS, null);
+      responses.add(new Response(content, null));
+    } catch (FileNotFoundException ex) {
+      record(url, attemptNumber, hedged, System.nanoTime() - start, Outcome.NOT_FOUND, null);
+      responses.add(new Response(null, ex));
+    } catch (IOException | RuntimeException ex) {
+      long duration = System.nanoTime() - start;
+      if (abortHandle.isAborted() || Thread.currentThread().isInterrupted()) {
+        record(url, attemptNumber, hedged, duration, Outcome.CANCELLED, null);
+      } else {
+        record(url, attemptNumber, hedged, duration, Outcome.FAILURE, ex.toString());
+      }
+      IOException failure = ex instanceof IOException ? (IOException) ex : new IOException(ex);
+      responses.add(new Response(null, failure));
+    }
+  }
+
+  @VisibleForTesting
+  long backoffNanos(int attemptNumber) {
+    // Full jitter: a random duration up to the exponential backoff
+    long exponential = initialBackoff.toNanos() << Math.min(attemptNumber - 1, 30);
+    long bound = Math.min(Math.max(exponential, 0), maxBackoff.toNanos());
+    return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound);
+  }
+
+  private static void sleep(long nanos) throws InterruptedIOException {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while backing off");
+    }
+  }
+
+  private LatencyWindow latencyWindow(String url) {
+    String fileName = url.substring(url.lastIndexOf('/') + 1);
+    String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+    return latencyWindows.computeIfAbsent(extension, unused -> new LatencyWindow());
+  }
+
+  /**
+   * Returns the 95th percentile latency of the recent fetches of the file type of {@code url}, or
+   * the initial delay.
+   */
+  private long hedgingDelayNanos(String url) {
+    long p95 = latencyWindow(url).p95Nanos();
+    if (p95 < 0) {
+      return initialHedgingDelay.toNanos();
+    }
+    return Math.max(p95, minHedgingDelay.toNanos());
+  }
+
+  private void record(
+      String url,
+      int attemptNumber,
+      boolean hedged,
+      long nanos,
+      Outcome outcome,
+      @Nullable String failureMessage) {
+    outcomeCounts.get(outcome).increment();
+    if (hedged) {
+      hedgedCount.increment();
+    } else if (attemptNumber > 1) {
+      retryCount.increment();
+    }
+    if (outcome == Outcome.FAILURE) {
+      Attempt attempt =
+          new Attempt(url, attemptNumber, hedged, Duration.ofNanos(nanos), outcome, failureMessage);
+      synchronized (recentFailures) {
+        if (recentFailures.size() == RECENT_FAILURES) {
+          recentFailures.removeFirst();
+        }
+        recentFailures.addLast(attempt);
+      }
+    }
+  }
+
+  /** Returns the number of attempts made so far, including retries and hedged requests. */
+  public long getAttemptCount() {
+    long count = 0;
+    for (LongAdder outcomeCount : outcomeCounts.values()) {
+      count += outcomeCount.sum();
+    }
+    return count;
+  }
+
+  /** Returns the number of attempts completed so far by outcome. */
+  public ImmutableMap<Outcome, Long> getOutcomeCounts() {
+    ImmutableMap.Builder<Outcome, Long> counts = ImmutableMap.builder();
+    for (Map.Entry<Outcome, LongAdder> outcomeCount : outcomeCounts.entrySet()) {
+      counts.put(outcomeCount.getKey(), outcomeCount.getValue().sum());
+    }
+    return counts.build();
+  }
+
+  /** Returns the number of attempts that retried a failed attempt. */
+  public long getRetryCount() {
+    return retryCount.sum();
+  }
+
+  /** Returns the number of hedged requests sent because an attempt was slow. */
+  public long getHedgedCount() {
+    return hedgedCount.sum();
+  }
+
+  /** Returns the latest 100 failed attempts at most, oldest first. */
+  public ImmutableList<Attempt> getRecentFailures() {
+    synchronized (recentFailures) {
+      return ImmutableList.copyOf(recentFailures);
+    }
+  }
+
+  /** Stops the threads of attempts in flight. */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  public static Builder builder(ResourceFetcher delegate) {
+    return new Builder(delegate);
+  }
+
+  /** Builder of {@link FetchPolicyResourceFetcher}. */
+  public static final class Builder {
+    private final ResourceFetcher delegate;
+    private Duration deadline = Duration.ofSeconds(60);
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(5);
+    private boolean hedging = true;
+    private Duration initialHedgingDelay = Duration.ofSeconds(1);
+    private Duration minHedgingDelay = Duration.ofMillis(50);
+    private int maxConcurrentAttempts = 64;
+
+    private Builder(ResourceFetcher delegate) {
+      this.delegate = checkNotNull(delegate);
+    }
+
+    /** Sets the time a request may take including its retries. Default 60 seconds. */
+    public Builder setDeadline(Duration deadline) {
+      checkArgument(!deadline.isNegative() && !deadline.isZero(), "deadline should be positive");
+      this.deadline = deadline;
+      return this;
+    }
+
+    /** Sets the number of attempts for a request, including the first one. Default 3. */
+    public Builder setMaxAttempts(int maxAttempts) {
+      checkArgument(maxAttempts > 0, "maxAttempts should be positive: %s", maxAttempts);
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the bounds of the backoff before a retry. The bound doubles for each retry from {@code
+     * initialBackoff} up to {@code maxBackoff}. Defaults 200 milliseconds and 5 seconds.
+     */
+    public Builder setBackoff(Duration initialBackoff, Duration maxBackoff) {
+      checkArgument(!initialBackoff.isNegative(), "initialBackoff should not be negative");
+      checkArgument(
+          maxBackoff.compareTo(initialBackoff) >= 0,
+          "maxBackoff should not be less than initialBackoff");
+      this.initialBackoff = initialBackoff;
+      this.maxBackoff = maxBackoff;
+      return this;
+    }
+
+    /** Sets whether to send hedged requests. Default true. */
+    public Builder setHedging(boolean hedging) {
+      this.hedging = hedging;
+      return this;
+    }
+
+    /**
+     * Sets the delay before a hedged request until enough fetches are observed, and the lower
+     * bound of the delay after that. Defaults 1 second and 50 milliseconds.
+     */
+    public Builder setHedgingDelay(Duration initialHedgingDelay, Duration minHedgingDelay) {
+      checkArgument(
+          !initialHedgingDelay.isNegative(), "initialHedgingDelay should not be negative");
+      checkArgument(!minHedgingDelay.isNegative(), "minHedgingDelay should not be negative");
+      this.initialHedgingDelay = initialHedgingDelay;
+      this.minHedgingDelay = minHedgingDelay;
+      return this;
+    }
+
+    /**
+     * Sets the number of attempts, including hedged ones, sent to the delegate at the same time
+     * at most. Later attempts wait for one to finish. Default 64.
+     */
+    public Builder setMaxConcurrentAttempts(int maxConcurrentAttempts) {
+      checkArgument(
+          maxConcurrentAttempts > 0,
+          "maxConcurrentAttempts should be positive: %s",
+          maxConcurrentAttempts);
+      this.maxConcurrentAttempts = maxConcurrentAttempts;
+      return this;
+    }
+
+    public FetchPolicyResourceFetcher build() {
+      return new FetchPolicyResourceFetcher(this);
+    }
+  }
+}
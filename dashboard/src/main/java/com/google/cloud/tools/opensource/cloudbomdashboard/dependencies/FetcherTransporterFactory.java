@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.AbstractTransporter;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transfer.NoTransporterException;
+
+/**
+ * Transporter factory that downloads files from HTTP repositories through the {@link
+ * ResourceFetcher} set by {@link RepositoryUtility#setResourceFetcher(ResourceFetcher)}. When no
+ * fetcher is set, it declines the repository and the resolver falls back to the other
+ * transporters.
+ *
+ * <p>When the session has a {@link MirrorRace} in its {@link MirrorRace#CONFIG_PROPERTY}
+ * configuration property, files of the race's first mirror are raced among all its mirrors,
+ * through {@link RepositoryUtility#getResourceFetcher()} if no fetcher is set.
+ *
+ * <p>Files are streamed to the resolver's files and existence checks send no content, where the
+ * fetcher supports it. Raced files are read whole, because their checksums are verified before
+ * they are used.
+ */
+public final class FetcherTransporterFactory implements TransporterFactory {
+
+  private static final ImmutableSet<String> SUPPORTED_PROTOCOLS = ImmutableSet.of("http", "https");
+
+  @Override
+  public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository)
+      throws NoTransporterException {
+    // Read for each repository connection, so that systems created before the fetcher is set
+    // use it as well
+    if (!SUPPORTED_PROTOCOLS.contains(repository.getProtocol())) {
+      throw new NoTransporterException(repository);
+    }
+    Object race = session.getConfigProperties().get(MirrorRace.CONFIG_PROPERTY);
+    if (race instanceof MirrorRace
+        && ((MirrorRace) race).getPrimaryUrl().equals(MirrorRace.normalize(repository.getUrl()))) {
+      MirrorRace mirrorRace = (MirrorRace) race;
+      ResourceFetcher delegate = RepositoryUtility.getResourceFetcher();
+      String primaryUrl = mirrorRace.getPrimaryUrl();
+      return new FetcherTransporter(
+          repository, url -> mirrorRace.fetch(delegate, url.substring(primaryUrl.length())));
+    }
+    ResourceFetcher fetcher = RepositoryUtility.getConfiguredResourceFetcher();
+    if (fetcher == null) {
+      throw new NoTransporterException(repository);
+    }
+    return new FetcherTransporter(repository, fetcher);
+  }
+
+  @Override
+  public float getPriority() {
+    // Higher than HttpTransporterFactory and FileTransporterFactory
+    return 100;
+  }
+
+  private static final class FetcherTransporter extends AbstractTransporter {
+    private final String baseUrl;
+    private final ResourceFetcher fetcher;
+
+    private FetcherTransporter(RemoteRepository repository, ResourceFetcher fetcher) {
+      this.baseUrl = MirrorRace.normalize(repository.getUrl());
+      this.fetcher = fetcher;
+    }
+
+    @Override
+    public int classify(Throwable error) {
+      return error instanceof FileNotFoundException ? ERROR_NOT_FOUND : ERROR_OTHER;
+    }
+
+    @Override
+    protected void implPeek(PeekTask task) throws Exception {
+      fetcher.peek(baseUrl + task.getLocation(), new AbortHandle());
+    }
+
+    @Override
+    protected void implGet(GetTask task) throws Exception {
+      InputStream content = fetcher.openStream(baseUrl + task.getLocation(), new AbortHandle());
+      // The length is not known before the content is read
+      utilGet(task, content, true, -1, false);
+    }
+
+    @Override
+    protected void implPut(PutTask task) {
+      throw new UnsupportedOperationException("The dashboard does not deploy artifacts");
+    }
+
+    @Override
+    protected void implClose() {}
+  }
+}
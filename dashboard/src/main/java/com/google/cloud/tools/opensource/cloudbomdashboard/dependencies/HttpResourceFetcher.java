@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Fetches resources with a pooled HTTP client. Connections are kept alive and reused across
+ * requests, and the number of concurrent connections is limited in total and for each host;
+ * requests beyond the limit wait for a connection to be released. Proxies are configured by the
+ * standard {@code http.proxyHost} and {@code https.proxyHost} system properties.
+ *
+ * <p>URLs other than HTTP and HTTPS are fetched with {@link java.net.URL#openStream()}. An
+ * aborted HTTP request closes its connection, which unblocks the thread reading the response.
+ * Streams returned by {@link #openStream(String, AbortHandle)} read the response as it arrives,
+ * and {@link #peek(String, AbortHandle)} sends a {@code HEAD} request.
+ */
+public final class HttpResourceFetcher implements ResourceFetcher, Closeable {
+
+  private final CloseableHttpClient client;
+
+  private HttpResourceFetcher(Builder builder) {
+    PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(builder.maxConnections);
+    connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerHost);
+
+    RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout((int) builder.connectTimeout.toMillis())
+            .setSocketTimeout((int) builder.readTimeout.toMillis())
+            // Waiting for a pooled connection is bounded by the time a download may take
+            .setConnectionRequestTimeout((int) builder.readTimeout.toMillis())
+            .build();
+
+    client =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(30, TimeUnit.SECONDS)
+            .useSystemProperties()
+            .build();
+  }
+
+  @Override
+  public byte[] fetch(String url) throws IOException {
+    return fetch(url, new AbortHandle());
+  }
+
+  @Override
+  public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+    if (!url.startsWith("http://") && !url.startsWith("https://")) {
+      return UrlResourceFetcher.INSTANCE.fetch(url);
+    }
+
+    HttpGet request = new HttpGet(url);
+    abortHandle.onAbort(request::abort);
+    try (CloseableHttpResponse response = client.execute(request)) {
+      checkStatus(url, response);
+      return EntityUtils.toByteArray(response.getEntity());
+    }
+  }
+
+  @Override
+  public InputStream openStream(String url, AbortHandle abortHandle) throws IOException {
+    if (!url.startsWith("http://") && !url.startsWith("https://")) {
+      return UrlResourceFetcher.INSTANCE.openStream(url, abortHandle);
+    }
+
+    HttpGet request = new HttpGet(url);
+    abortHandle.onAbort(request::abort);
+    CloseableHttpResponse response = client.execute(request);
+    try {
+      checkStatus(url, response);
+      // Closing the stream reads the rest of the content and returns the connection to the pool
+      return new FilterInputStream(response.getEntity().getContent()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            response.close();
+          }
+        }
+      };
+    } catch (IOException | RuntimeException ex) {
+      response.close();
+      throw ex;
+    }
+  }
+
+  @Override
+  public void peek(String url, AbortHandle abortHandle) throws IOException {
+    if (!url.startsWith("http://") && !url.startsWith("https://")) {
+      UrlResourceFetcher.INSTANCE.peek(url, abortHandle);
+      return;
+    }
+
+    HttpHead request = new HttpHead(url);
+    abortHandle.onAbort(request::abort);
+    try (CloseableHttpResponse response = client.execute(request)) {
+      checkStatus(url, response);
+    }
+  }
+
+  /** Throws an exception unless {@code response} is successful, consuming its content. */
+  private static void checkStatus(String url, CloseableHttpResponse response) throws IOException {
+    int statusCode = response.getStatusLine().getStatusCode();
+    if (statusCode == HttpStatus.SC_OK) {
+      return;
+    }
+    // Consuming the entity returns the connection to the pool
+    EntityUtils.consumeQuietly(response.getEntity());
+    if (statusCode == HttpStatus.SC_NOT_FOUND || statusCode == HttpStatus.SC_GONE) {
+      throw new FileNotFoundException(url);
+    }
+    throw new IOException(url + " returned HTTP status " + response.getStatusLine());
+  }
+
+  /** Closes the pooled connections. */
+  @Override
+  public void close() throws IOException {
+    client.close();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Builder of {@link HttpResourceFetcher}. */
+  public static final class Builder {
+    private int maxConnections = 64;
+    private int maxConnectionsPerHost = 16;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    private Builder() {}
+
+    /** Sets the number of open connections at most. Default 64. */
+    public Builder setMaxConnections(int maxConnections) {
+      checkArgument(maxConnections > 0, "maxConnections should be positive: %s", maxConnections);
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /** Sets the number of open connections to each host at most. Default 16. */
+    public Builder setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      checkArgument(
+          maxConnectionsPerHost > 0,
+          "maxConnectionsPerHost should be positive: %s",
+          maxConnectionsPerHost);
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      return this;
+    }
+
+    /** Sets the timeout to establish a connection. Default 10 seconds. */
+    public Builder setConnectTimeout(Duration connectTimeout) {
+      checkArgument(!connectTimeout.isNegative(), "connectTimeout should not be negative");
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    /** Sets the timeout between two packets of a response. Default 30 seconds. */
+    public Builder setReadTimeout(Duration readTimeout) {
+      checkArgument(!readTimeout.isNegative(), "readTimeout should not be negative");
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    public HttpResourceFetcher build() {
+      return new HttpResourceFetcher(this);
+    }
+  }
+}
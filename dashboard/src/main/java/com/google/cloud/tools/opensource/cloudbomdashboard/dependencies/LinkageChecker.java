@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Finds references to classes and methods that are not available in the class path of a resolved
+ * dependency graph.
+ *
+ * <p>The class path consists of the JAR files of the graph in level order, as Maven would build
+ * it. The symbols of each JAR file are read from the {@link ClassIndex}, which memory-maps and
+ * parses JAR files not indexed yet; JAR files are processed in parallel. A referenced class is
+ * located with one lookup of the JAR files defining it in the class index, the first of them in
+ * the class path wins, and only the symbols of referenced classes are kept in memory while a
+ * graph is checked. A reference to a class or method defined
+ * neither in the class path nor in the running JDK is reported as a {@link LinkageProblem} on the
+ * artifact containing the referencing class. Methods are looked up in the supertypes of their
+ * class, reading the class files of JDK supertypes from the running JDK. Methods of classes with a
+ * supertype found nowhere are not checked, because the members of that supertype are unknown; the
+ * missing supertype is reported instead.
+ */
+public final class LinkageChecker {
+
+  // The parent of the system class loader sees the JDK but not the dashboard's own class path
+  private static final ClassLoader JDK_CLASS_LOADER =
+      ClassLoader.getSystemClassLoader().getParent();
+
+  private final ClassIndex classIndex;
+
+  // Shared by concurrent checks, so that checking several graphs at once does not add threads
+  private final ExecutorService executor;
+
+  // Class name to the symbols of the JDK class; empty if the JDK does not define it
+  private final Map<String, Optional<ClassSymbols>> jdkClasses = new ConcurrentHashMap<>();
+
+  public LinkageChecker() {
+    this(ClassIndex.getDefault(), Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param classIndex the index to read class symbols from and to store the symbols of JAR files
+   *     not indexed yet
+   * @param threadCount the number of threads to parse and check class files, shared by the
+   *     graphs checked at the same time
+   */
+  public LinkageChecker(ClassIndex classIndex, int threadCount) {
+    checkArgument(threadCount > 0, "threadCount should be positive: %s", threadCount);
+    this.classIndex = checkNotNull(classIndex);
+    this.executor =
+        Executors.newFixedThreadPool(
+            threadCount,
+            new ThreadFactoryBuilder().setNameFormat("linkage-check-%d").setDaemon(true).build());
+  }
+
+  /** Index of one JAR file on the class path. */
+  private static final class JarSymbols {
+    private final List<DependencyNode> dependencyPath;
+    private final ClassIndex.JarIndex index;
+
+    private JarSymbols(List<DependencyNode> dependencyPath, ClassIndex.JarIndex index) {
+      this.dependencyPath = dependencyPath;
+      this.index = index;
+    }
+  }
+
+  /** Classes of a class path, resolved through the class index. */
+  private final class ClassPathSymbols {
+    // Index of each JAR file in the class path to its position
+    private final Map<ClassIndex.JarIndex, Integer> positions = new IdentityHashMap<>();
+
+    // Class name to the symbols in the first JAR file defining it; empty if none defines it
+    private final Map<String, Optional<ClassSymbols>> resolved = new ConcurrentHashMap<>();
+
+    private ClassPathSymbols(List<JarSymbols> jars) {
+      for (JarSymbols jar : jars) {
+        positions.putIfAbsent(jar.index, positions.size());
+      }
+    }
+
+    /** Returns the symbols of {@code className}. Null if no JAR file defines it. */
+    @Nullable
+    private ClassSymbols find(String className) {
+      return resolved.computeIfAbsent(className, this::findFirst).orElse(null);
+    }
+
+    // The first JAR file in the class path wins, as it does for a class loader
+    private Optional<ClassSymbols> findFirst(String className) {
+      ClassIndex.JarIndex first = null;
+      int firstPosition = Integer.MAX_VALUE;
+      for (ClassIndex.JarIndex jarIndex : classIndex.findDefiningJars(className)) {
+        Integer position = positions.get(jarIndex);
+        if (position != null && position < firstPosition) {
+          first = jarIndex;
+          firstPosition = position;
+        }
+      }
+      return first == null ? Optional.empty() : Optional.ofNullable(first.find(className));
+    }
+  }
+
+  /**
+   * Returns the linkage problems and invalid class files in the class path of {@code graph}. The
+   * graph should be resolved, that is, its artifacts should have files. Artifacts without files
+   * are not part of the class path.
+   *
+   * @throws UncheckedIOException if the class index cannot be written
+   */
+  public ImmutableList<ArtifactProblem> findLinkageProblems(DependencyGraph graph) {
+    Map<Path, List<DependencyNode>> classPath = buildClassPath(graph.getRootNode());
+
+    List<Future<ArtifactProblem>> checks = new ArrayList<>();
+    try {
+      List<JarSymbols> jars = parseClassPath(classPath);
+      ClassPathSymbols classes = new ClassPathSymbols(jars);
+
+      for (JarSymbols jar : jars) {
+        checks.add(executor.submit(() -> checkJar(jar, classes)));
+      }
+
+      ImmutableList.Builder<ArtifactProblem> problems = ImmutableList.builder();
+      for (JarSymbols jar : jars) {
+        ImmutableList<String> invalidClassFiles = jar.index.getInvalidClassFiles();
+        if (!invalidClassFiles.isEmpty()) {
+          problems.add(new InvalidClassFileProblem(jar.dependencyPath, invalidClassFiles));
+        }
+      }
+      for (Future<ArtifactProblem> check : checks) {
+        ArtifactProblem problem = Futures.getUnchecked(check);
+        if (problem != null) {
+          problems.add(problem);
+        }
+      }
+      return problems.build();
+    } finally {
+      // Checks left after a failure do not hold the shared threads
+      for (Future<ArtifactProblem> check : checks) {
+        check.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Returns the JAR files of the dependency graph in level order with the first dependency path
+   * to each of them.
+   */
+  static Map<Path, List<DependencyNode>> buildClassPath(DependencyNode root) {
+    Map<Path, List<DependencyNode>> classPath = new LinkedHashMap<>();
+    Set<DependencyNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    Queue<List<DependencyNode>> queue = new ArrayDeque<>();
+    queue.add(ImmutableList.of(root));
+    while (!queue.isEmpty()) {
+      List<DependencyNode> path = queue.poll();
+      DependencyNode node = path.get(path.size() - 1);
+      if (!visited.add(node)) {
+        continue;
+      }
+      Artifact artifact = node.getArtifact();
+      if (artifact != null) { // artifact is null at a root dummy node
+        File file = artifact.getFile();
+        if (file != null && "jar".equals(artifact.getExtension())) {
+          classPath.putIfAbsent(file.toPath(), path);
+        }
+      }
+      for (DependencyNode child : node.getChildren()) {
+        List<DependencyNode> childPath = new ArrayList<>(path.size() + 1);
+        childPath.addAll(path);
+        childPath.add(child);
+        queue.add(childPath);
+      }
+    }
+    return classPath;
+  }
+
+  private List<JarSymbols> parseClassPath(Map<Path, List<DependencyNode>> classPath) {
+    List<Future<JarSymbols>> tasks = new ArrayList<>();
+    for (Map.Entry<Path, List<DependencyNode>> entry : classPath.entrySet()) {
+      tasks.add(executor.submit(() -> readJar(entry.getKey(), entry.getValue())));
+    }
+
+    // Collecting results in submission order keeps the class path order
+    List<JarSymbols> jars = new ArrayList<>();
+    for (Future<JarSymbols> task : tasks) {
+      jars.add(Futures.getUnchecked(task));
+    }
+    return jars;
+  }
+
+  private JarSymbols readJar(Path jar, List<DependencyNode> dependencyPath) {
+    try {
+      return new JarSymbols(dependencyPath, classIndex.getOrCreate(jar));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /** Returns a problem for the missing symbols referenced from {@code jar}; null if none. */
+  private LinkageProblem checkJar(JarSymbols jar, ClassPathSymbols classes) {
+    SortedSet<String> missingSymbols = new TreeSet<>();
+    jar.index.forEachClass(
+        classSymbols -> {
+          for (String referencedClass : classSymbols.getReferencedClasses()) {
+            if (classes.find(referencedClass) == null && findJdkClass(referencedClass) == null) {
+              missingSymbols.add(referencedClass);
+            }
+          }
+          for (Map.Entry<String, String> method : classSymbols.getReferencedMethods().entries()) {
+            String owner = method.getKey();
+            // A method of a missing class is reported as the missing class
+            if (classes.find(owner) != null && !hasMethod(owner, method.getValue(), classes)) {
+              missingSymbols.add(owner + "." + method.getValue());
+            }
+          }
+        });
+    if (missingSymbols.isEmpty()) {
+      return null;
+    }
+    return new LinkageProblem(jar.dependencyPath, new ArrayList<>(missingSymbols));
+  }
+
+  /**
+   * Returns true if {@code method} is declared in {@code className} or its supertypes, which are
+   * looked up in the class path and then in the JDK. Constructors are looked up only in {@code
+   * className}.
+   */
+  private boolean hasMethod(String className, String method, ClassPathSymbols classes) {
+    if (method.startsWith("<init>") || method.startsWith("<clinit>")) {
+      return classes.find(className).getMethods().contains(method);
+    }
+
+    Queue<String> queue = new ArrayDeque<>();
+    Set<String> seen = new HashSet<>();
+    queue.add(className);
+    while (!queue.isEmpty()) {
+      String name = queue.poll();
+      if (!seen.add(name)) {
+        continue;
+      }
+      ClassSymbols classSymbols = classes.find(name);
+      if (classSymbols == null) {
+        classSymbols = findJdkClass(name);
+      }
+      if (classSymbols == null) {
+        // A supertype defined nowhere may declare the method; it is reported as a missing class
+        return true;
+      }
+      if (classSymbols.getMethods().contains(method)) {
+        return true;
+      }
+      if (classSymbols.getSuperClassName() != null) {
+        queue.add(classSymbols.getSuperClassName());
+      }
+      queue.addAll(classSymbols.getInterfaceNames());
+    }
+    return false;
+  }
+
+  /** Returns the symbols of {@code className} in the running JDK. Null if the JDK lacks it. */
+  @Nullable
+  private ClassSymbols findJdkClass(String className) {
+    return jdkClasses.computeIfAbsent(className, LinkageChecker::readJdkClass).orElse(null);
+  }
+
+  private static Optional<ClassSymbols> readJdkClass(String className) {
+    String fileName = className.replace('.', '/') + ".class";
+    try (InputStream input = JDK_CLASS_LOADER.getResourceAsStream(fileName)) {
+      if (input == null) {
+        return Optional.empty();
+      }
+      return Optional.of(ClassSymbols.parse(ByteStreams.toByteArray(input), fileName));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
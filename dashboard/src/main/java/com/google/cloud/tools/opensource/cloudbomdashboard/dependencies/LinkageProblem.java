@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Problem describing a Maven artifact containing class files that reference classes or methods
+ * not found in the class path.
+ */
+public final class LinkageProblem extends ArtifactProblem {
+  /** The missing classes and methods. Never empty. */
+  private final ImmutableList<String> missingSymbols;
+
+  LinkageProblem(List<DependencyNode> dependencyPath, List<String> missingSymbols) {
+    super(dependencyPath.get(dependencyPath.size() - 1).getArtifact(), dependencyPath);
+    checkArgument(!missingSymbols.isEmpty(), "MissingSymbols cannot be empty");
+    this.missingSymbols = ImmutableList.copyOf(missingSymbols);
+  }
+
+  /** Returns the missing classes and methods referenced from the artifact. */
+  public ImmutableList<String> getMissingSymbols() {
+    return missingSymbols;
+  }
+
+  @Override
+  public String toString() {
+    int symbolCount = missingSymbols.size();
+
+    String symbolDescription;
+    if (symbolCount == 1) {
+      symbolDescription = "a missing symbol " + missingSymbols.get(0) + ".";
+    } else {
+      symbolDescription =
+          symbolCount + " missing symbols (example: " + missingSymbols.get(0) + ").";
+    }
+    return artifact + " references " + symbolDescription + " Dependency path: " + getPath();
+  }
+}
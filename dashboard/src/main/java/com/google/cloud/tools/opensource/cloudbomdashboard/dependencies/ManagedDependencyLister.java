@@ -29,13 +29,13 @@ import org.eclipse.aether.resolution.ArtifactDescriptorResult;
  */
 class ManagedDependencyLister {
 
-  private static final RepositorySystem system = RepositoryUtility.newRepositorySystem();
+  private static final RepositorySystem system = RepositoryUtility.getRepositorySystem();
 
   public static void main(String[] args) throws ArtifactDescriptorException {
     DefaultArtifact artifact =
         new DefaultArtifact("com.google.cloud:libraries-bom:pom:1.0.0");
 
-    RepositorySystemSession session = RepositoryUtility.newSession(system);
+    RepositorySystemSession session = RepositorySessionFactory.getDefault().newSession();
 
     ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
     request.addRepository(RepositoryUtility.CENTRAL);
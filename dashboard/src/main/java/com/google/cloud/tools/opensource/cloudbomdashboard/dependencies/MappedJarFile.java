@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of the class files in a JAR file through a memory-mapped buffer.
+ *
+ * <p>Unlike {@link java.util.zip.ZipFile}, this does not copy the central directory into the heap
+ * and lets several threads read entries of the same file without synchronization. ZIP64 archives
+ * are not supported; Maven artifacts are far below the 4 GB limit.
+ */
+final class MappedJarFile {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  /** Class file in the JAR file. */
+  static final class Entry {
+    private final String name;
+    private final int method;
+    private final int compressedSize;
+    private final int size;
+    private final int localHeaderOffset;
+
+    private Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    /** Returns the path of the entry in the JAR file, such as {@code com/google/Foo.class}. */
+    String getName() {
+      return name;
+    }
+  }
+
+  private final Path path;
+  private final ByteBuffer buffer;
+
+  private MappedJarFile(Path path, ByteBuffer buffer) {
+    this.path = path;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Maps {@code jar} into memory.
+   *
+   * @throws IOException if the file cannot be read or is larger than 2 GB
+   */
+  static MappedJarFile open(Path jar) throws IOException {
+    try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(jar + " is too large to map");
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      // The mapping stays valid after the channel is closed
+      return new MappedJarFile(jar, mapped.order(ByteOrder.LITTLE_ENDIAN));
+    }
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the class file entries in the order of the central directory. Entries for
+   * multi-release JAR versions and {@code module-info.class} are excluded because they are not
+   * loaded from the class path.
+   *
+   * @throws IOException if the central directory is malformed
+   */
+  ImmutableList<Entry> listClassFiles() throws IOException {
+    int endOfCentralDirectory = findEndOfCentralDirectory();
+    int entryCount = unsignedShort(endOfCentralDirectory + 10);
+    long centralDirectoryOffset = unsignedInt(endOfCentralDirectory + 16);
+    if (centralDirectoryOffset >= buffer.limit()) {
+      throw new IOException(path + " has an invalid central directory offset");
+    }
+
+    ImmutableList.Builder<Entry> entries = ImmutableList.builder();
+    int position = (int) centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (position + 46 > buffer.limit() || buffer.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException(path + " has an invalid central directory entry at " + position);
+      }
+      int method = unsignedShort(position + 10);
+      long compressedSize = unsignedInt(position + 20);
+      long size = unsignedInt(position + 24);
+      int nameLength = unsignedShort(position + 28);
+      int extraLength = unsignedShort(position + 30);
+      int commentLength = unsignedShort(position + 32);
+      long localHeaderOffset = unsignedInt(position + 42);
+      String name = readString(position + 46, nameLength);
+      position += 46 + nameLength + extraLength + commentLength;
+
+      if (!name.endsWith(".class")
+          || name.startsWith("META-INF/versions/")
+          || name.endsWith("module-info.class")) {
+        continue;
+      }
+      if (compressedSize > Integer.MAX_VALUE
+          || size > Integer.MAX_VALUE
+          || localHeaderOffset > Integer.MAX_VALUE) {
+        throw new IOException(path + " has a ZIP64 entry " + name);
+      }
+      entries.add(
+          new Entry(name, method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+    }
+    return entries.build();
+  }
+
+  /**
+   * Returns the uncompressed content of {@code entry}.
+   *
+   * @throws IOException if the entry is malformed or uses an unsupported compression method
+   */
+  byte[] read(Entry entry) throws IOException {
+    int header = entry.localHeaderOffset;
+    if (header + 30 > buffer.limit() || buffer.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException(path + " has an invalid local header for " + entry.name);
+    }
+    int dataOffset = header + 30 + unsignedShort(header + 26) + unsignedShort(header + 28);
+    if (dataOffset + entry.compressedSize > buffer.limit()) {
+      throw new IOException(path + " is truncated at " + entry.name);
+    }
+
+    byte[] compressed = new byte[entry.compressedSize];
+    ByteBuffer view = buffer.duplicate();
+    view.position(dataOffset);
+    view.get(compressed);
+
+    switch (entry.method) {
+      case METHOD_STORED:
+        return compressed;
+      case METHOD_DEFLATED:
+        return inflate(entry, compressed);
+      default:
+        throw new IOException(
+            path + " uses unsupported compression method " + entry.method + " for " + entry.name);
+    }
+  }
+
+  private byte[] inflate(Entry entry, byte[] compressed) throws IOException {
+    Inflater inflater = new Inflater(true); // ZIP entries do not have zlib headers
+    try {
+      inflater.setInput(compressed);
+      byte[] output = new byte[entry.size];
+      int length = 0;
+      while (length < output.length && !inflater.finished()) {
+        int inflated = inflater.inflate(output, length, output.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != output.length) {
+        throw new IOException(path + " has a truncated entry " + entry.name);
+      }
+      return output;
+    } catch (DataFormatException ex) {
+      throw new IOException(path + " has a corrupt entry " + entry.name, ex);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private int findEndOfCentralDirectory() throws IOException {
+    int lowest = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_LENGTH);
+    for (int position = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        position >= lowest;
+        position--) {
+      if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new IOException(path + " is not a ZIP file");
+  }
+
+  private int unsignedShort(int position) {
+    return buffer.getShort(position) & 0xFFFF;
+  }
+
+  private long unsignedInt(int position) {
+    return buffer.getInt(position) & 0xFFFFFFFFL;
+  }
+
+  private String readString(int position, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable file of key-value pairs sorted by key, read through a memory-mapped buffer. A lookup
+ * is a binary search over fixed-size records, so it takes O(log n) without reading the whole file
+ * into the heap. Keys are compared as unsigned bytes, which is the code point order for UTF-8
+ * strings.
+ *
+ * <p>The layout is {@code magic, values, keys, records, recordsOffset, count, magic}, where each
+ * record is {@code keyOffset (long), keyLength (int), valueOffset (long), valueLength (int)}.
+ * Files are limited to 2 GB because they are mapped as a single buffer.
+ */
+final class MappedKeyValueFile {
+
+  private static final int RECORD_SIZE = 24;
+  private static final int FOOTER_SIZE = 16;
+
+  private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private final ByteBuffer buffer;
+  private final int recordsOffset;
+  private final int count;
+
+  private MappedKeyValueFile(ByteBuffer buffer, int recordsOffset, int count) {
+    this.buffer = buffer;
+    this.recordsOffset = recordsOffset;
+    this.count = count;
+  }
+
+  /**
+   * Maps {@code file} written by {@link Writer} with the same {@code magic} number.
+   *
+   * @throws IOException if the file cannot be read or is not a valid file
+   */
+  static MappedKeyValueFile open(Path file, int magic) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to map");
+      }
+      if (size < 4 + FOOTER_SIZE) {
+        throw new IOException(file + " is truncated");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int footer = (int) size - FOOTER_SIZE;
+      if (buffer.getInt(0) != magic || buffer.getInt(footer + 12) != magic) {
+        throw new IOException(file + " is not a valid index file");
+      }
+      long recordsOffset = buffer.getLong(footer);
+      int count = buffer.getInt(footer + 8);
+      if (recordsOffset < 4 || recordsOffset + (long) count * RECORD_SIZE != footer) {
+        throw new IOException(file + " has an invalid footer");
+      }
+      return new MappedKeyValueFile(buffer, (int) recordsOffset, count);
+    }
+  }
+
+  /** Returns the number of keys. */
+  int size() {
+    return count;
+  }
+
+  /** Returns the {@code index}th key in the sorted order. */
+  byte[] keyAt(int index) {
+    int record = recordsOffset + index * RECORD_SIZE;
+    return bytes((int) buffer.getLong(record), buffer.getInt(record + 8));
+  }
+
+  /** Returns the value of the {@code index}th key in the sorted order. */
+  ByteBuffer valueAt(int index) {
+    int record = recordsOffset + index * RECORD_SIZE;
+    return slice((int) buffer.getLong(record + 12), buffer.getInt(record + 20));
+  }
+
+  /** Returns the value for {@code key}. Null if the key does not exist. */
+  @Nullable
+  ByteBuffer get(byte[] key) {
+    int index = indexOf(key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  @Nullable
+  ByteBuffer get(String key) {
+    return get(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns the position of {@code key} in the sorted order. Negative if it does not exist. */
+  int indexOf(byte[] key) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareKey(middle, key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private int compareKey(int index, byte[] key) {
+    int record = recordsOffset + index * RECORD_SIZE;
+    int keyOffset = (int) buffer.getLong(record);
+    int keyLength = buffer.getInt(record + 8);
+    int length = Math.min(keyLength, key.length);
+    for (int i = 0; i < length; i++) {
+      int comparison = UnsignedBytes.compare(buffer.get(keyOffset + i), key[i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return keyLength - key.length;
+  }
+
+  private byte[] bytes(int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  // Absolute reads on the shared buffer are thread-safe; positions are only set on duplicates
+  private ByteBuffer slice(int offset, int length) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.limit(offset + length);
+    return view.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Writes a {@link MappedKeyValueFile}. Values are streamed to the file as they are added and
+   * only the keys are kept in memory. The file appears at its destination atomically when the
+   * writer is closed; a writer that fails leaves no partial file behind.
+   */
+  static final class Writer implements Closeable {
+
+    private static final class Position {
+      private final long offset;
+      private final int length;
+
+      private Position(long offset, int length) {
+        this.offset = offset;
+        this.length = length;
+      }
+    }
+
+    private final Path destination;
+    private final Path temporaryFile;
+    private final int magic;
+    private final CountingOutputStream counter;
+    private final DataOutputStream output;
+    private final Map<byte[], Position> values = new TreeMap<>(KEY_ORDER);
+    private boolean closed;
+
+    Writer(Path destination, int magic) throws IOException {
+      this.destination = destination;
+      this.magic = magic;
+      Path directory = destination.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      this.temporaryFile =
+          Files.createTempFile(directory, destination.getFileName().toString(), ".tmp");
+      this.counter =
+          new CountingOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(temporaryFile), 64 * 1024));
+      this.output = new DataOutputStream(counter);
+      output.writeInt(magic);
+    }
+
+    /** Adds {@code value} for {@code key}. The first value wins when a key is added twice. */
+    void put(byte[] key, byte[] value) throws IOException {
+      put(key, value, 0, value.length);
+    }
+
+    void put(byte[] key, byte[] value, int offset, int length) throws IOException {
+      checkState(!closed, "The writer is closed");
+      if (values.containsKey(key)) {
+        return;
+      }
+      values.put(key.clone(), new Position(counter.getCount(), length));
+      output.write(value, offset, length);
+    }
+
+    void put(String key, byte[] value) throws IOException {
+      put(key.getBytes(StandardCharsets.UTF_8), value);
+    }
+
+    /** Writes the keys and the records, and moves the file to its destination. */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      boolean committed = false;
+      try {
+        long[] keyOffsets = new long[values.size()];
+        int i = 0;
+        for (byte[] key : values.keySet()) {
+          keyOffsets[i++] = counter.getCount();
+          output.write(key);
+        }
+
+        long recordsOffset = counter.getCount();
+        i = 0;
+        for (Map.Entry<byte[], Position> entry : values.entrySet()) {
+          output.writeLong(keyOffsets[i++]);
+          output.writeInt(entry.getKey().length);
+          output.writeLong(entry.getValue().offset);
+          output.writeInt(entry.getValue().length);
+        }
+        output.writeLong(recordsOffset);
+        output.writeInt(values.size());
+        output.writeInt(magic);
+        output.close();
+
+        if (counter.getCount() > Integer.MAX_VALUE) {
+          throw new IOException(destination + " would be too large to map");
+        }
+        Files.move(
+            temporaryFile,
+            destination,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        committed = true;
+      } finally {
+        if (!committed) {
+          output.close();
+          Files.deleteIfExists(temporaryFile);
+        }
+      }
+    }
+
+    /** Discards the file without moving it to its destination. */
+    void abort() throws IOException {
+      if (!closed) {
+        closed = true;
+        output.close();
+        Files.deleteIfExists(temporaryFile);
+      }
+    }
+  }
+}
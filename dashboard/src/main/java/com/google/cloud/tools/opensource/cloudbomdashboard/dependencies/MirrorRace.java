@@ -0,0 +1,376 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Ascii;
+import com.google.common.base.CharMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Races mirrors holding the same Maven repository for each file. The resolver sees only the
+ * first mirror; {@link FetcherTransporterFactory} sends the files requested from it to this race
+ * when a session has the race in its {@link #CONFIG_PROPERTY} configuration property.
+ *
+ * <p>A mirror's response is valid when it matches the SHA-1 checksum file of the same mirror, or
+ * when the mirror has no checksum file. The first valid response wins, and the next request for
+ * its checksum file is answered with the checksum of the winning mirror, so that the resolver
+ * never mixes a file and a checksum of different mirrors. The checksums waiting for their request
+ * are bounded, as the resolver does not request checksums of every file.
+ *
+ * <p>Mirrors are started in the order of their average latency; mirrors without a valid response
+ * yet, such as a mirror that only failed, are started last. Once the fastest mirror has enough
+ * samples, the others are started only when it has not responded within twice its average
+ * latency, so that the fastest mirror serves most requests alone. The requests that lose the race
+ * are aborted through their {@link AbortHandle}, which closes their connections.
+ *
+ * <p>Each mirror's request goes through the fetcher given to {@link #fetch}, which may send a
+ * hedged duplicate of a slow request, as {@link FetchPolicyResourceFetcher} does. A file then
+ * fans out to at most twice as many requests as there are mirrors. The race sends at most {@value
+ * #MAX_CONCURRENT_REQUESTS} mirror requests at the same time, and later requests wait for a
+ * thread; the fetcher's own limit, such as {@link
+ * FetchPolicyResourceFetcher.Builder#setMaxConcurrentAttempts}, bounds the connections of all of
+ * them.
+ */
+public final class MirrorRace {
+
+  /** Session configuration property holding the race for the first mirror. */
+  public static final String CONFIG_PROPERTY = MirrorRace.class.getName();
+
+  // The number of responses from the fastest mirror before the other mirrors are delayed
+  private static final int MIN_LATENCY_SAMPLES = 5;
+  // Weight of the latest sample in the moving average of latency
+  private static final double LATENCY_SMOOTHING = 0.2;
+  // The number of checksums of winning responses kept until their checksum file is requested
+  private static final int MAX_PENDING_CHECKSUMS = 4096;
+  // The number of requests to mirrors in flight at the same time
+  static final int MAX_CONCURRENT_REQUESTS = 64;
+
+  /** Statistics of a mirror. */
+  public static final class MirrorStatistics {
+    private final String url;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong winCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong invalidChecksumCount = new AtomicLong();
+    private long latencySampleCount;
+    private double averageLatencyMillis;
+
+    private MirrorStatistics(String url) {
+      this.url = url;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    /** Returns the number of files requested from the mirror. */
+    public long getRequestCount() {
+      return requestCount.get();
+    }
+
+    /** Returns the number of files for which the mirror's response was used. */
+    public long getWinCount() {
+      return winCount.get();
+    }
+
+    /** Returns the number of requests that failed, excluding files not found. */
+    public long getFailureCount() {
+      return failureCount.get();
+    }
+
+    /** Returns the number of responses that did not match their checksum. */
+    public long getInvalidChecksumCount() {
+      return invalidChecksumCount.get();
+    }
+
+    /** Returns the moving average of the time to a valid response. 0 if none. */
+    public synchronized double getAverageLatencyMillis() {
+      return averageLatencyMillis;
+    }
+
+    private synchronized long getLatencySampleCount() {
+      return latencySampleCount;
+    }
+
+    /** Returns the average latency, or infinity if the mirror has no sample to tell it. */
+    private synchronized double getKnownLatencyMillis() {
+      return latencySampleCount == 0 ? Double.POSITIVE_INFINITY : averageLatencyMillis;
+    }
+
+    private synchronized void recordLatency(double millis) {
+      averageLatencyMillis =
+          latencySampleCount == 0
+              ? millis
+              : LATENCY_SMOOTHING * millis + (1 - LATENCY_SMOOTHING) * averageLatencyMillis;
+      latencySampleCount++;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s: %d requests, %d wins, %d failures, %d invalid checksums, %.0f ms average",
+          url,
+          getRequestCount(),
+          getWinCount(),
+          getFailureCount(),
+          getInvalidChecksumCount(),
+          getAverageLatencyMillis());
+    }
+  }
+
+  private final ImmutableList<MirrorStatistics> mirrors;
+
+  // Location of a file to the SHA-1 checksum of the winning response, until it is requested
+  private final Cache<String, String> checksums =
+      CacheBuilder.newBuilder().maximumSize(MAX_PENDING_CHECKSUMS).build();
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * @param mirrorUrls URLs of the mirrors. The resolver requests files from the first one
+   */
+  public MirrorRace(List<String> mirrorUrls) {
+    checkArgument(mirrorUrls.size() > 1, "A race needs two or more mirrors: %s", mirrorUrls);
+    ImmutableList.Builder<MirrorStatistics> mirrors = ImmutableList.builder();
+    for (String mirrorUrl : mirrorUrls) {
+      mirrors.add(new MirrorStatistics(normalize(mirrorUrl)));
+    }
+    this.mirrors = mirrors.build();
+    // Requests beyond the limit wait in the queue; idle threads stop after a minute
+    this.executor =
+        new ThreadPoolExecutor(
+            MAX_CONCURRENT_REQUESTS,
+            MAX_CONCURRENT_REQUESTS,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("mirror-race-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /** Returns {@code url} ending with a slash. */
+  static String normalize(String url) {
+    return url.endsWith("/") ? url : url + "/";
+  }
+
+  /** Returns the URL of the mirror that the resolver requests files from. */
+  public String getPrimaryUrl() {
+    return mirrors.get(0).url;
+  }
+
+  /** Returns the statistics of the mirrors in the order they were configured. */
+  public ImmutableList<MirrorStatistics> getStatistics() {
+    return mirrors;
+  }
+
+  /** Request to a mirror sent by {@link #send}. */
+  private static final class Request {
+    private final AbortHandle abortHandle = new AbortHandle();
+    @Nullable private Future<?> future;
+
+    private void abort() {
+      abortHandle.abort();
+      // Not interrupted, as the fetcher may share the download with other callers
+      future.cancel(false);
+    }
+  }
+
+  /** Result of a mirror's attempt. */
+  private static final class Response {
+    private final MirrorStatistics mirror;
+    @Nullable private final byte[] content;
+    @Nullable private final String checksum;
+    @Nullable private final IOException failure;
+
+    private Response(
+        MirrorStatistics mirror,
+        @Nullable byte[] content,
+        @Nullable String checksum,
+        @Nullable IOException failure) {
+      this.mirror = mirror;
+      this.content = content;
+      this.checksum = checksum;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * Returns the file at {@code location}, relative to the mirrors' URLs, from the first mirror
+   * responding with valid content.
+   *
+   * @throws FileNotFoundException if no mirror has the file
+   */
+  byte[] fetch(ResourceFetcher fetcher, String location) throws IOException {
+    if (location.endsWith(".sha1")) {
+      String checksum = checksums.asMap().remove(location.substring(0, location.length() - 5));
+      if (checksum != null) {
+        return checksum.getBytes(StandardCharsets.US_ASCII);
+      }
+    }
+
+    // The latencies are read once, as other races update them while sorting
+    Map<MirrorStatistics, Double> latencies = new IdentityHashMap<>();
+    for (MirrorStatistics mirror : mirrors) {
+      latencies.put(mirror, mirror.getKnownLatencyMillis());
+    }
+    List<MirrorStatistics> order = new ArrayList<>(mirrors);
+    order.sort(Comparator.comparing(latencies::get));
+    // The first mirror is the fastest one with samples, if any mirror has samples
+    MirrorStatistics fastest = order.get(0);
+    long staggerNanos =
+        fastest.getLatencySampleCount() >= MIN_LATENCY_SAMPLES
+            ? TimeUnit.MILLISECONDS.toNanos((long) (2 * fastest.getAverageLatencyMillis()))
+            : 0;
+
+    BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+    List<Request> requests = new ArrayList<>();
+    IOException failure = null;
+    try {
+      requests.add(send(fetcher, fastest, location, responses));
+      int started = 1;
+      int pending = 1;
+      long staggerDeadline = System.nanoTime() + staggerNanos;
+      while (pending > 0 || started < order.size()) {
+        Response response;
+        if (started < order.size()) {
+          response = responses.poll(staggerDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (response == null) {
+            // The fastest mirror is slow this time; the others join the race
+            for (; started < order.size(); started++) {
+              requests.add(send(fetcher, order.get(started), location, responses));
+              pending++;
+            }
+            continue;
+          }
+        } else {
+          response = responses.take();
+        }
+        pending--;
+
+        if (response.content != null) {
+          response.mirror.winCount.incrementAndGet();
+          if (response.checksum != null) {
+            checksums.put(location, response.checksum);
+          }
+          return response.content;
+        }
+        if (failure == null || failure instanceof FileNotFoundException) {
+          failure = response.failure;
+        }
+        // A failed response makes the mirrors not started yet join the race
+        staggerDeadline = System.nanoTime();
+      }
+      throw failure;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while racing mirrors for " + location);
+    } finally {
+      // The requests still in flight lost the race
+      for (Request request : requests) {
+        request.abort();
+      }
+    }
+  }
+
+  private Request send(
+      ResourceFetcher fetcher,
+      MirrorStatistics mirror,
+      String location,
+      BlockingQueue<Response> responses) {
+    mirror.requestCount.incrementAndGet();
+    Request request = new Request();
+    AbortHandle abortHandle = request.abortHandle;
+    request.future =
+        executor.submit(() -> runRequest(fetcher, mirror, location, abortHandle, responses));
+    return request;
+  }
+
+  /** Fetches the file and its checksum from {@code mirror} and adds the response. */
+  private static void runRequest(
+      ResourceFetcher fetcher,
+      MirrorStatistics mirror,
+      String location,
+      AbortHandle abortHandle,
+      BlockingQueue<Response> responses) {
+    long start = System.nanoTime();
+    try {
+      byte[] content = fetcher.fetch(mirror.url + location, abortHandle);
+      String checksum = fetchChecksum(fetcher, mirror.url + location, abortHandle);
+      if (checksum != null && !checksum.equals(Hashing.sha1().hashBytes(content).toString())) {
+        mirror.invalidChecksumCount.incrementAndGet();
+        responses.add(
+            new Response(
+                mirror,
+                null,
+                null,
+                new IOException(mirror.url + location + " does not match its checksum")));
+        return;
+      }
+      mirror.recordLatency((System.nanoTime() - start) / 1e6);
+      responses.add(new Response(mirror, content, checksum, null));
+    } catch (FileNotFoundException ex) {
+      responses.add(new Response(mirror, null, null, ex));
+    } catch (IOException | RuntimeException ex) {
+      if (!abortHandle.isAborted() && !Thread.currentThread().isInterrupted()) {
+        mirror.failureCount.incrementAndGet();
+      }
+      IOException failure = ex instanceof IOException ? (IOException) ex : new IOException(ex);
+      responses.add(new Response(mirror, null, null, failure));
+    }
+  }
+
+  /** Returns the SHA-1 checksum of {@code url} in lower case. Null if the mirror has none. */
+  @Nullable
+  private static String fetchChecksum(ResourceFetcher fetcher, String url, AbortHandle abortHandle)
+      throws IOException {
+    if (url.endsWith(".sha1") || url.endsWith(".md5")) {
+      return null; // Checksum files have no checksums
+    }
+    try {
+      String content =
+          new String(fetcher.fetch(url + ".sha1", abortHandle), StandardCharsets.US_ASCII);
+      // The file may have a file name after the checksum
+      String checksum = CharMatcher.whitespace().trimLeadingFrom(content);
+      int end = CharMatcher.whitespace().indexIn(checksum);
+      return Ascii.toLowerCase(end < 0 ? checksum : checksum.substring(0, end));
+    } catch (FileNotFoundException ex) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.DependencyVisitor;
+
+/**
+ * A dependency visitor that records the first paths in depth-first order leading to nodes of
+ * several artifacts in one traversal. Like {@link
+ * org.eclipse.aether.util.graph.visitor.PathRecordingDependencyVisitor}, it records a path each
+ * time a node of a target artifact is entered, but it visits the children of each node only once.
+ *
+ * <p>Recorded paths share their common prefixes: the visitor keeps a linked path element per
+ * entered node, and a path is copied into a list only when it is returned from {@link
+ * #getPaths()}. The traversal ends as soon as every target has {@code maxPathsPerTarget} paths.
+ * Without targets, as in {@link #findFirstPaths(DependencyNode)}, every artifact is a target and
+ * the whole tree is traversed.
+ */
+final class MultiTargetPathRecordingDependencyVisitor implements DependencyVisitor {
+
+  /** A node in a path from the root, linked to the element of its parent node. */
+  private static final class PathElement {
+    private final DependencyNode node;
+    // Null for the root
+    private final PathElement parent;
+    private final int length;
+
+    private PathElement(DependencyNode node, PathElement parent) {
+      this.node = node;
+      this.parent = parent;
+      this.length = parent == null ? 1 : parent.length + 1;
+    }
+
+    private ImmutableList<DependencyNode> toList() {
+      DependencyNode[] nodes = new DependencyNode[length];
+      for (PathElement element = this; element != null; element = element.parent) {
+        nodes[element.length - 1] = element.node;
+      }
+      return ImmutableList.copyOf(nodes);
+    }
+  }
+
+  private final int maxPathsPerTarget;
+
+  // True if every artifact entered is a target
+  private final boolean allTargets;
+
+  // groupId:artifactId:version of the targets to the ends of their recorded paths
+  private final Map<String, List<PathElement>> recordedPaths = new HashMap<>();
+
+  private int unsatisfiedTargetCount;
+
+  private final Set<DependencyNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private PathElement current;
+
+  /**
+   * Creates a visitor recording paths to the nodes of {@code targetCoordinates}.
+   *
+   * @param targetCoordinates {@code groupId:artifactId:version} of the target artifacts
+   * @param maxPathsPerTarget the number of paths to record for each target at most
+   */
+  MultiTargetPathRecordingDependencyVisitor(Set<String> targetCoordinates, int maxPathsPerTarget) {
+    checkArgument(
+        maxPathsPerTarget > 0, "maxPathsPerTarget should be positive: %s", maxPathsPerTarget);
+    this.maxPathsPerTarget = maxPathsPerTarget;
+    this.allTargets = false;
+    for (String coordinates : targetCoordinates) {
+      recordedPaths.put(coordinates, new ArrayList<>());
+    }
+    this.unsatisfiedTargetCount = recordedPaths.size();
+  }
+
+  /** Creates a visitor recording the first path to the nodes of every artifact. */
+  private MultiTargetPathRecordingDependencyVisitor() {
+    this.maxPathsPerTarget = 1;
+    this.allTargets = true;
+    // Never satisfied, as any node may be of an artifact not seen yet
+    this.unsatisfiedTargetCount = 1;
+  }
+
+  /**
+   * Returns the recorded paths keyed by the target coordinates. Targets not found in the graph
+   * have no paths.
+   */
+  ImmutableListMultimap<String, List<DependencyNode>> getPaths() {
+    ImmutableListMultimap.Builder<String, List<DependencyNode>> paths =
+        ImmutableListMultimap.builder();
+    for (Map.Entry<String, List<PathElement>> entry : recordedPaths.entrySet()) {
+      for (PathElement element : entry.getValue()) {
+        paths.put(entry.getKey(), element.toList());
+      }
+    }
+    return paths.build();
+  }
+
+  @Override
+  public boolean visitEnter(DependencyNode node) {
+    current = new PathElement(node, current);
+
+    Artifact artifact = node.getArtifact();
+    if (artifact != null) { // artifact is null at a root dummy node.
+      List<PathElement> paths =
+          allTargets
+              ? recordedPaths.computeIfAbsent(
+                  Artifacts.toCoordinates(artifact), unused -> new ArrayList<>(1))
+              : recordedPaths.get(Artifacts.toCoordinates(artifact));
+      if (paths != null && paths.size() < maxPathsPerTarget) {
+        paths.add(current);
+        if (paths.size() == maxPathsPerTarget && !allTargets) {
+          unsatisfiedTargetCount--;
+        }
+      }
+    }
+
+    // Returning true if this node has not been visited and more paths are needed
+    return visited.add(node) && unsatisfiedTargetCount > 0;
+  }
+
+  @Override
+  public boolean visitLeave(DependencyNode node) {
+    current = current.parent;
+    // Returning false stops the traversal of the siblings and the remaining ancestors' children
+    return unsatisfiedTargetCount > 0;
+  }
+
+  /**
+   * Returns the first {@code maxPathsPerTarget} paths to the nodes of each of {@code
+   * targetCoordinates} in the tree of {@code root}, traversing the tree once.
+   */
+  static ImmutableListMultimap<String, List<DependencyNode>> findPaths(
+      DependencyNode root, Set<String> targetCoordinates, int maxPathsPerTarget) {
+    MultiTargetPathRecordingDependencyVisitor visitor =
+        new MultiTargetPathRecordingDependencyVisitor(
+            ImmutableSet.copyOf(targetCoordinates), maxPathsPerTarget);
+    root.accept(visitor);
+    return visitor.getPaths();
+  }
+
+  /**
+   * Returns the first path in depth-first order to the nodes of each artifact in the tree of
+   * {@code root}, keyed by {@code groupId:artifactId:version}, traversing the tree once.
+   */
+  static ImmutableListMultimap<String, List<DependencyNode>> findFirstPaths(DependencyNode root) {
+    MultiTargetPathRecordingDependencyVisitor visitor =
+        new MultiTargetPathRecordingDependencyVisitor();
+    root.accept(visitor);
+    return visitor.getPaths();
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fetcher that remembers URLs not found by its delegate and reports them as not found without a
+ * request until their entries expire. Entries of files that may appear at any time, such as
+ * {@code maven-metadata.xml} and snapshot versions, live for {@link #DEFAULT_TIME_TO_LIVE}.
+ *
+ * <p>POMs, JAR files, and their checksums of release versions are immutable once published, but a
+ * file released a moment ago may be missing from a mirror that has not synchronized yet. Their
+ * entries live as long as the file has been missing, from {@link #DEFAULT_TIME_TO_LIVE} after the
+ * first miss up to the maximum time to live, so that only files missing for long are not
+ * requested for long. An entry is kept after it expires, until it has been expired for the
+ * maximum time to live, to remember when the file was first found missing.
+ *
+ * <p>The entries are read from a file when the fetcher is opened and written back when it is
+ * closed or {@link #persist() persisted}.
+ */
+public final class NegativeCacheResourceFetcher implements ResourceFetcher, Closeable {
+
+  static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+  private static final int MAGIC = 0x4e454732; // "NEG2"
+
+  /** When a URL was first found missing and when its entry expires, in milliseconds. */
+  private static final class Entry {
+    private final long firstMissing;
+    private final long expiration;
+
+    private Entry(long firstMissing, long expiration) {
+      this.firstMissing = firstMissing;
+      this.expiration = expiration;
+    }
+  }
+
+  private final ResourceFetcher delegate;
+  private final Path file;
+  private final Duration releaseTimeToLive;
+
+  private final ConcurrentMap<String, Entry> entries;
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private NegativeCacheResourceFetcher(
+      ResourceFetcher delegate,
+      Path file,
+      Duration releaseTimeToLive,
+      ConcurrentMap<String, Entry> entries) {
+    this.delegate = checkNotNull(delegate);
+    this.file = file;
+    this.releaseTimeToLive = releaseTimeToLive;
+    this.entries = entries;
+  }
+
+  /**
+   * Returns a fetcher in front of {@code delegate} with the entries stored in {@code file}. A
+   * missing or unreadable file starts an empty cache.
+   *
+   * @param releaseTimeToLive the time to live of the entries of release POMs and JAR files that
+   *     have been missing for long
+   */
+  public static NegativeCacheResourceFetcher open(
+      ResourceFetcher delegate, Path file, Duration releaseTimeToLive) {
+    checkArgument(
+        releaseTimeToLive.compareTo(DEFAULT_TIME_TO_LIVE) >= 0,
+        "releaseTimeToLive should be at least %s: %s",
+        DEFAULT_TIME_TO_LIVE,
+        releaseTimeToLive);
+    ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    if (Files.exists(file)) {
+      try {
+        MappedKeyValueFile stored = MappedKeyValueFile.open(file, MAGIC);
+        long oldestKept = System.currentTimeMillis() - releaseTimeToLive.toMillis();
+        for (int i = 0; i < stored.size(); i++) {
+          ByteBuffer value = stored.valueAt(i);
+          Entry entry = new Entry(value.getLong(0), value.getLong(Long.BYTES));
+          if (entry.expiration > oldestKept) {
+            entries.put(new String(stored.keyAt(i), StandardCharsets.UTF_8), entry);
+          }
+        }
+      } catch (IOException ex) {
+        // The cache only saves requests; a corrupted file is replaced when the fetcher is closed
+      }
+    }
+    return new NegativeCacheResourceFetcher(delegate, file, releaseTimeToLive, entries);
+  }
+
+  /** Returns the file of the cache in the local Maven repository. */
+  public static Path defaultLocation() {
+    return Paths.get(RepositoryUtility.findLocalRepository()).resolve(".negative-cache");
+  }
+
+  @Override
+  public byte[] fetch(String url) throws IOException {
+    return fetch(url, new AbortHandle());
+  }
+
+  @Override
+  public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+    return request(url, () -> delegate.fetch(url, abortHandle));
+  }
+
+  @Override
+  public InputStream openStream(String url, AbortHandle abortHandle) throws IOException {
+    return request(url, () -> delegate.openStream(url, abortHandle));
+  }
+
+  @Override
+  public void peek(String url, AbortHandle abortHandle) throws IOException {
+    request(
+        url,
+        () -> {
+          delegate.peek(url, abortHandle);
+          return null;
+        });
+  }
+
+  /** A request to the delegate. */
+  private interface Request<T> {
+    T send() throws IOException;
+  }
+
+  /** Sends {@code request} unless {@code url} is cached as not found, and records a miss. */
+  private <T> T request(String url, Request<T> request) throws IOException {
+    Entry entry = entries.get(url);
+    long now = System.currentTimeMillis();
+    if (entry != null && entry.expiration > now) {
+      hitCount.increment();
+      throw new FileNotFoundException(url + " (cached as not found)");
+    }
+
+    T result;
+    try {
+      result = request.send();
+    } catch (FileNotFoundException ex) {
+      long firstMissing = entry == null ? now : entry.firstMissing;
+      Duration timeToLive =
+          timeToLive(url, Duration.ofMillis(now - firstMissing), releaseTimeToLive);
+      entries.put(url, new Entry(firstMissing, now + timeToLive.toMillis()));
+      throw ex;
+    }
+    if (entry != null) {
+      entries.remove(url, entry);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the time to live of the entry of {@code url}, not found for {@code missingFor} since
+   * its first miss.
+   */
+  @VisibleForTesting
+  static Duration timeToLive(String url, Duration missingFor, Duration releaseTimeToLive) {
+    if (!isReleaseFile(url) || missingFor.compareTo(DEFAULT_TIME_TO_LIVE) <= 0) {
+      return DEFAULT_TIME_TO_LIVE;
+    }
+    return missingFor.compareTo(releaseTimeToLive) < 0 ? missingFor : releaseTimeToLive;
+  }
+
+  private static boolean isReleaseFile(String url) {
+    String fileName = url.substring(url.lastIndexOf('/') + 1);
+    if (url.contains("-SNAPSHOT") || fileName.startsWith("maven-metadata")) {
+      return false;
+    }
+    // Checksums of a file have the same lifetime as the file
+    for (String extension : new String[] {".pom", ".jar"}) {
+      if (fileName.endsWith(extension)
+          || fileName.endsWith(extension + ".sha1")
+          || fileName.endsWith(extension + ".md5")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the number of requests answered from the cache. */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** Writes the entries to the file. */
+  @Override
+  public void close() throws IOException {
+    persist();
+  }
+
+  /**
+   * Writes the entries, except those expired for longer than the maximum time to live, to the
+   * file. The fetcher remains usable, so that a process stopped without closing it, such as a
+   * server, can keep its entries.
+   */
+  public synchronized void persist() throws IOException {
+    long oldestKept = System.currentTimeMillis() - releaseTimeToLive.toMillis();
+    MappedKeyValueFile.Writer writer = new MappedKeyValueFile.Writer(file, MAGIC);
+    try {
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        Entry value = entry.getValue();
+        if (value.expiration > oldestKept) {
+          ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+          buffer.putLong(value.firstMissing).putLong(value.expiration);
+          writer.put(entry.getKey(), buffer.array());
+        }
+      }
+    } catch (IOException ex) {
+      writer.abort();
+      throw ex;
+    }
+    writer.close();
+  }
+
+  /** Deletes the cache file at {@code file}, so that the next run requests every URL again. */
+  public static void clear(Path file) throws IOException {
+    Files.deleteIfExists(file);
+  }
+}
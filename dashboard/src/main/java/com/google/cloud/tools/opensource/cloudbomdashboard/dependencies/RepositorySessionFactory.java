@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nullable;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystem;
+
+/**
+ * Creates preconfigured sessions of a repository system. The sessions are copies of one base
+ * session, so they share its local repository manager, its {@link
+ * org.eclipse.aether.RepositoryCache} of artifact descriptors and version ranges, and its session
+ * data such as the update checks already done. Creating a session is a shallow copy, cheap
+ * enough to do on each worker thread for each request.
+ *
+ * <p>The sessions may be used concurrently, because the shared cache and data are thread-safe,
+ * but a session's own configuration should not be changed while other threads use it.
+ */
+public final class RepositorySessionFactory {
+
+  @Nullable private static volatile RepositorySessionFactory defaultInstance;
+
+  private final RepositorySystem system;
+  // Replaced by refresh; sessions already created keep the previous one's cache
+  private volatile DefaultRepositorySystemSession baseSession;
+
+  /** Creates a factory of sessions for {@code system} using the local repository found now. */
+  public RepositorySessionFactory(RepositorySystem system) {
+    this.system = checkNotNull(system);
+    baseSession = RepositoryUtility.createDefaultRepositorySystemSession(system);
+    baseSession.setCache(new DefaultRepositoryCache());
+  }
+
+  /**
+   * Returns the factory for {@link RepositoryUtility#getRepositorySystem()}, created on the first
+   * call.
+   */
+  public static RepositorySessionFactory getDefault() {
+    RepositorySessionFactory factory = defaultInstance;
+    if (factory == null) {
+      synchronized (RepositorySessionFactory.class) {
+        factory = defaultInstance;
+        if (factory == null) {
+          factory = new RepositorySessionFactory(RepositoryUtility.getRepositorySystem());
+          defaultInstance = factory;
+        }
+      }
+    }
+    return factory;
+  }
+
+  /** Makes the next {@link #getDefault()} create a factory for the current local repository. */
+  static synchronized void resetDefault() {
+    defaultInstance = null;
+  }
+
+  /**
+   * Makes later sessions start with an empty cache and session data, and check remote
+   * repositories for updated metadata according to {@code updatePolicy}, such as {@link
+   * org.eclipse.aether.repository.RepositoryPolicy#UPDATE_POLICY_ALWAYS}. Long-running processes
+   * call this before reading {@code -SNAPSHOT} artifacts again.
+   */
+  public synchronized void refresh(String updatePolicy) {
+    DefaultRepositorySystemSession refreshed = new DefaultRepositorySystemSession(baseSession);
+    refreshed.setCache(new DefaultRepositoryCache());
+    refreshed.setData(new DefaultSessionData());
+    refreshed.setUpdatePolicy(updatePolicy);
+    baseSession = refreshed;
+  }
+
+  /** Returns the repository system of the sessions. */
+  public RepositorySystem getRepositorySystem() {
+    return system;
+  }
+
+  /** Returns a session with Maven's default dependency selection and conflict resolution. */
+  public DefaultRepositorySystemSession newSession() {
+    return new DefaultRepositorySystemSession(baseSession);
+  }
+
+  /** Returns a session for full dependency graphs, including optional dependencies. */
+  public DefaultRepositorySystemSession newSessionForFullDependency() {
+    return RepositoryUtility.configureSession(
+        newSession(), RepositoryUtility.fullDependencySelector());
+  }
+
+  /** Returns a session for verbose dependency graphs, excluding optional dependencies. */
+  public DefaultRepositorySystemSession newSessionForVerboseDependency() {
+    return RepositoryUtility.configureSession(
+        newSession(), RepositoryUtility.verboseDependencySelector());
+  }
+
+  /** Returns a session for verbose dependency graphs of a list of artifacts. */
+  public DefaultRepositorySystemSession newSessionForVerboseListDependency() {
+    return RepositoryUtility.configureSession(
+        newSession(), RepositoryUtility.verboseListDependencySelector());
+  }
+}
@@ -31,6 +31,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Properties;
+import javax.annotation.Nullable;
 import org.apache.maven.execution.DefaultMavenExecutionRequest;
 import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.project.MavenProject;
@@ -85,14 +86,67 @@ public final class RepositoryUtility {
   private static final ImmutableSet<String> ALLOWED_REPOSITORY_URL_SCHEMES =
       ImmutableSet.of("file", "http", "https");
 
+  // Null when the resolver uses its own HTTP transporter
+  @Nullable private static volatile ResourceFetcher resourceFetcher;
+
+  // Null when the local repository is found in the customary location
+  @Nullable private static volatile String localRepositoryOverride;
+
   private RepositoryUtility() {}
 
   /**
-   * Creates a new system configured for file and HTTP repository resolution.
+   * Sets the fetcher used for HTTP repositories by the repository systems of this class and by
+   * {@link #getResourceFetcher()}. Null restores the default transport.
+   */
+  public static void setResourceFetcher(@Nullable ResourceFetcher fetcher) {
+    resourceFetcher = fetcher;
+  }
+
+  /**
+   * Returns the fetcher set by {@link #setResourceFetcher(ResourceFetcher)}, or a fetcher opening
+   * URL connections if none is set.
+   */
+  public static ResourceFetcher getResourceFetcher() {
+    ResourceFetcher fetcher = resourceFetcher;
+    return fetcher != null ? fetcher : UrlResourceFetcher.INSTANCE;
+  }
+
+  /** Returns the fetcher set by {@link #setResourceFetcher(ResourceFetcher)}. Null if none. */
+  @Nullable
+  static ResourceFetcher getConfiguredResourceFetcher() {
+    return resourceFetcher;
+  }
+
+  /**
+   * Makes sessions created afterwards use a new, empty local repository, so that every file is
+   * fetched through the resource fetcher rather than read from {@code ~/.m2}.
+   */
+  public static void useTemporaryLocalRepository() {
+    localRepositoryOverride = makeTemporaryLocalRepository();
+    // The default session factory holds the manager of the previous local repository
+    RepositorySessionFactory.resetDefault();
+  }
+
+  private static final class RepositorySystemHolder {
+    private static final RepositorySystem system = newRepositorySystem();
+  }
+
+  /**
+   * Returns the repository system shared by the process, created on the first call. Prefer this
+   * to {@link #newRepositorySystem()}, which creates all the services of a system again.
+   */
+  public static RepositorySystem getRepositorySystem() {
+    return RepositorySystemHolder.system;
+  }
+
+  /**
+   * Creates a new system configured for file and HTTP repository resolution. HTTP repositories are
+   * read through the {@link ResourceFetcher} when one is set.
    */
   public static RepositorySystem newRepositorySystem() {
     DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
     locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+    locator.addService(TransporterFactory.class, FetcherTransporterFactory.class);
     locator.addService(TransporterFactory.class, FileTransporterFactory.class);
     locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
   
@@ -105,6 +159,8 @@ public final class RepositoryUtility {
     DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
     LocalRepository localRepository = new LocalRepository(findLocalRepository());
     session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepository));
+    // Indexes the classes of JAR files as they enter the local repository
+    session.setRepositoryListener(ClassIndex.getDefault().newRepositoryListener());
     return session;
   }
 
@@ -118,29 +174,41 @@ public final class RepositoryUtility {
     return session;
   }
 
-  /**
-   * Open a new Maven repository session for full dependency graph resolution.
-   *
-   * @see {@link DependencyGraphBuilder}
-   */
-  static DefaultRepositorySystemSession newSessionForFullDependency(RepositorySystem system) {
+  static DependencySelector fullDependencySelector() {
     // This combination of DependencySelector comes from the default specified in
     // `MavenRepositorySystemUtils.newSession`.
     // LinkageChecker needs to include 'provided'-scope and optional dependencies.
-    DependencySelector dependencySelector =
-        new AndDependencySelector(
-            // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
-            // false positive in LinkageChecker.
-            new ScopeDependencySelector("test"),
-            new ExclusionDependencySelector(),
-            new com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.FilteringZipDependencySelector());
-    
-    return newSession(system, dependencySelector);
+    return new AndDependencySelector(
+        // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
+        // false positive in LinkageChecker.
+        new ScopeDependencySelector("test"),
+        new ExclusionDependencySelector(),
+        new FilteringZipDependencySelector());
   }
 
-  private static DefaultRepositorySystemSession newSession(
-      RepositorySystem system, DependencySelector dependencySelector) {
-    DefaultRepositorySystemSession session = createDefaultRepositorySystemSession(system);
+  static DependencySelector verboseDependencySelector() {
+    return new AndDependencySelector(
+        // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
+        // false positive in LinkageChecker.
+        new ScopeDependencySelector("test"),
+        new OptionalDependencySelector(),
+        new ExclusionDependencySelector(),
+        new FilteringZipDependencySelector());
+  }
+
+  static DependencySelector verboseListDependencySelector() {
+    return new AndDependencySelector(
+        // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
+        // false positive in LinkageChecker.
+        new ScopeDependencySelector("test"),
+        new BanOptionalDependencySelector(),
+        new ExclusionDependencySelector(),
+        new FilteringZipDependencySelector());
+  }
+
+  /** Configures {@code session} to build graphs without conflict resolution. */
+  static DefaultRepositorySystemSession configureSession(
+      DefaultRepositorySystemSession session, DependencySelector dependencySelector) {
     session.setDependencySelector(dependencySelector);
 
     // By default, Maven's MavenRepositorySystemUtils.newSession() returns a session with
@@ -149,7 +217,7 @@ public final class RepositoryUtility {
     // not use ConflictResolver.
     session.setDependencyGraphTransformer(
         new ChainedDependencyGraphTransformer(
-            new com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.CycleBreakerGraphTransformer(), // Avoids StackOverflowError
+            new CycleBreakerGraphTransformer(), // Avoids StackOverflowError
             new JavaDependencyContextRefiner()));
 
     // No dependency management in the full dependency graph
@@ -157,36 +225,11 @@ public final class RepositoryUtility {
 
     return session;
   }
-  
-  static DefaultRepositorySystemSession newSessionForVerboseDependency(RepositorySystem system) {
-    DependencySelector dependencySelector =
-        new AndDependencySelector(
-            // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
-            // false positive in LinkageChecker.
-            new ScopeDependencySelector("test"),
-            new OptionalDependencySelector(),
-            new ExclusionDependencySelector(),
-            new com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.FilteringZipDependencySelector());
-    
-    return newSession(system, dependencySelector);
-  }
-  
-  static DefaultRepositorySystemSession newSessionForVerboseListDependency(
-      RepositorySystem system) {
-    DependencySelector dependencySelector =
-        new AndDependencySelector(
-            // ScopeDependencySelector takes exclusions. 'Provided' scope is not here to avoid
-            // false positive in LinkageChecker.
-            new ScopeDependencySelector("test"),
-            new BanOptionalDependencySelector(),
-            new ExclusionDependencySelector(),
-            new FilteringZipDependencySelector());
-    
-    return newSession(system, dependencySelector);
-  }
-
 
-  private static String findLocalRepository() {
+  static String findLocalRepository() {
+    if (localRepositoryOverride != null) {
+      return localRepositoryOverride;
+    }
     // TODO is there Maven code for this?
     Path home = Paths.get(System.getProperty("user.home"));
     Path localRepo = home.resolve(".m2").resolve("repository");
@@ -207,21 +250,34 @@ public final class RepositoryUtility {
     }
   }
 
+  // Created on the first use and shared by the process, because starting a Plexus container
+  // scans the class path index and takes a large share of the time to read a BOM file
+  @Nullable private static ProjectBuilder projectBuilder;
+
+  private static synchronized ProjectBuilder getProjectBuilder()
+      throws PlexusContainerException, ComponentLookupException {
+    if (projectBuilder == null) {
+      // MavenCli's way to instantiate PlexusContainer
+      ClassWorld classWorld =
+          new ClassWorld("plexus.core", Thread.currentThread().getContextClassLoader());
+      ContainerConfiguration containerConfiguration =
+          new DefaultContainerConfiguration()
+              .setClassWorld(classWorld)
+              .setRealm(classWorld.getClassRealm("plexus.core"))
+              .setClassPathScanning(PlexusConstants.SCANNING_INDEX)
+              .setAutoWiring(true)
+              .setJSR250Lifecycle(true)
+              .setName("linkage-checker");
+      PlexusContainer container = new DefaultPlexusContainer(containerConfiguration);
+      projectBuilder = container.lookup(ProjectBuilder.class);
+    }
+    return projectBuilder;
+  }
+
   static MavenProject createMavenProject(Path pomFile, RepositorySystemSession session)
       throws MavenRepositoryException {
-    // MavenCli's way to instantiate PlexusContainer
-    ClassWorld classWorld =
-        new ClassWorld("plexus.core", Thread.currentThread().getContextClassLoader());
-    ContainerConfiguration containerConfiguration =
-        new DefaultContainerConfiguration()
-            .setClassWorld(classWorld)
-            .setRealm(classWorld.getClassRealm("plexus.core"))
-            .setClassPathScanning(PlexusConstants.SCANNING_INDEX)
-            .setAutoWiring(true)
-            .setJSR250Lifecycle(true)
-            .setName("linkage-checker");
     try {
-      PlexusContainer container = new DefaultPlexusContainer(containerConfiguration);
+      ProjectBuilder projectBuilder = getProjectBuilder();
 
       MavenExecutionRequest mavenExecutionRequest = new DefaultMavenExecutionRequest();
       ProjectBuildingRequest projectBuildingRequest =
@@ -236,7 +292,6 @@ public final class RepositoryUtility {
       properties.putAll(System.getProperties());
       projectBuildingRequest.setSystemProperties(properties);
 
-      ProjectBuilder projectBuilder = container.lookup(ProjectBuilder.class);
       ProjectBuildingResult projectBuildingResult =
           projectBuilder.build(pomFile.toFile(), projectBuildingRequest);
       return projectBuildingResult.getProject();
@@ -270,6 +325,14 @@ public final class RepositoryUtility {
     return repository;
   }
 
+  /** Returns a session from the default factory if it serves {@code system}; otherwise new. */
+  private static RepositorySystemSession newSessionFor(RepositorySystem system) {
+    RepositorySessionFactory sessionFactory = RepositorySessionFactory.getDefault();
+    return sessionFactory.getRepositorySystem() == system
+        ? sessionFactory.newSession()
+        : newSession(system);
+  }
+
   private static VersionRangeResult findVersionRange(
       RepositorySystem repositorySystem,
       RepositorySystemSession session,
@@ -310,7 +373,7 @@ public final class RepositoryUtility {
   public static ImmutableList<String> findVersions(
       RepositorySystem repositorySystem, String groupId, String artifactId)
       throws MavenRepositoryException {
-    RepositorySystemSession session = RepositoryUtility.newSession(repositorySystem);
+    RepositorySystemSession session = newSessionFor(repositorySystem);
     // getVersions returns a list in ascending order
     return findVersionRange(repositorySystem, session, groupId, artifactId).getVersions().stream()
         .map(version -> version.toString())
@@ -324,7 +387,7 @@ public final class RepositoryUtility {
   public static String findLatestCoordinates(
       RepositorySystem repositorySystem, String groupId, String artifactId)
       throws MavenRepositoryException {
-    RepositorySystemSession session = RepositoryUtility.newSession(repositorySystem);
+    RepositorySystemSession session = newSessionFor(repositorySystem);
     String highestVersion = findHighestVersion(repositorySystem, session, groupId, artifactId);
     return String.format("%s:%s:%s", groupId, artifactId, highestVersion);
   }
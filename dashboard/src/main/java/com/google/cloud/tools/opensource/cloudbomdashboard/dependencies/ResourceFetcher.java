@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fetches files from Maven repositories by URL. The dashboard reads repository metadata through
+ * {@link RepositoryUtility#getResourceFetcher()}, and the Maven resolver uses the fetcher set by
+ * {@link RepositoryUtility#setResourceFetcher(ResourceFetcher)} for HTTP repositories.
+ *
+ * <p>Implementations should be thread-safe.
+ */
+public interface ResourceFetcher {
+
+  /**
+   * Returns the content of {@code url}.
+   *
+   * @throws FileNotFoundException if the resource does not exist
+   * @throws IOException if the resource cannot be fetched
+   */
+  byte[] fetch(String url) throws IOException;
+
+  /**
+   * Returns the content of {@code url} like {@link #fetch(String)}, stopping the request when
+   * {@code abortHandle} is aborted. The default implementation cannot stop a request in flight.
+   *
+   * @throws IOException if the request is aborted
+   */
+  default byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+    return fetch(url);
+  }
+
+  /**
+   * Returns a stream of the content of {@code url}, which the caller should close. Aborting
+   * {@code abortHandle} while the stream is read makes the read fail. The default implementation
+   * fetches the whole content with {@link #fetch(String, AbortHandle)}; fetchers that can, such as
+   * {@link HttpResourceFetcher}, stream it without holding it in memory.
+   *
+   * @throws FileNotFoundException if the resource does not exist
+   * @throws IOException if the resource cannot be fetched
+   */
+  default InputStream openStream(String url, AbortHandle abortHandle) throws IOException {
+    return new ByteArrayInputStream(fetch(url, abortHandle));
+  }
+
+  /**
+   * Checks that {@code url} exists. The default implementation fetches its content; fetchers
+   * that can, such as {@link HttpResourceFetcher}, send a request without the content.
+   *
+   * @throws FileNotFoundException if the resource does not exist
+   * @throws IOException if the resource cannot be checked
+   */
+  default void peek(String url, AbortHandle abortHandle) throws IOException {
+    fetch(url, abortHandle);
+  }
+}
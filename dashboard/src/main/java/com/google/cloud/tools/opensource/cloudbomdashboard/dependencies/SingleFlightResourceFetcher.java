@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fetcher that coalesces concurrent requests for the same URL. The first request for a URL
+ * fetches it through the delegate, and requests arriving while that download is in flight wait
+ * for it and share its result or its failure. Once the download finishes, the next request for
+ * the URL fetches it again; results are not cached.
+ *
+ * <p>A shared download is aborted only when every request waiting for it is aborted, so that a
+ * request abandoned by one caller still completes for the others. Streams and checks of existence
+ * are not shared, as each caller reads its own stream; they go to the delegate directly.
+ */
+public final class SingleFlightResourceFetcher implements ResourceFetcher {
+
+  private final ResourceFetcher delegate;
+
+  private final ConcurrentMap<String, Download> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder coalescedCount = new LongAdder();
+
+  public SingleFlightResourceFetcher(ResourceFetcher delegate) {
+    this.delegate = checkNotNull(delegate);
+  }
+
+  /** Download of a URL in flight, with the number of requests waiting for it. */
+  private final class Download {
+    private final String url;
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private final AbortHandle abortHandle = new AbortHandle();
+    private int requestCount = 1;
+    private boolean abandoned;
+
+    private Download(String url) {
+      this.url = url;
+    }
+
+    /** Adds a request waiting for the download. False if every request abandoned it. */
+    private synchronized boolean join() {
+      if (abandoned) {
+        return false;
+      }
+      requestCount++;
+      return true;
+    }
+
+    /** Removes an aborted request, aborting the download if no request is left. */
+    private void leave() {
+      synchronized (this) {
+        if (--requestCount > 0) {
+          return;
+        }
+        abandoned = true;
+        // The next request for the URL starts a new download
+        inFlight.remove(url, this);
+      }
+      abortHandle.abort();
+    }
+  }
+
+  @Override
+  public byte[] fetch(String url) throws IOException {
+    return fetch(url, new AbortHandle());
+  }
+
+  @Override
+  public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+    requestCount.increment();
+    Download download = new Download(url);
+    while (true) {
+      Download existing = inFlight.putIfAbsent(url, download);
+      if (existing == null) {
+        break;
+      }
+      if (existing.join()) {
+        coalescedCount.increment();
+        // Completed by the download, or by an abort that stops this request from waiting for it
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        existing.result.whenComplete(
+            (content, failure) -> {
+              if (failure != null) {
+                result.completeExceptionally(failure);
+              } else {
+                result.complete(content);
+              }
+            });
+        abortHandle.onAbort(
+            () -> {
+              result.completeExceptionally(new IOException(url + " was aborted"));
+              existing.leave();
+            });
+        // Each caller gets its own copy of the shared content
+        return await(result).clone();
+      }
+    }
+
+    abortHandle.onAbort(download::leave);
+    try {
+      byte[] content = delegate.fetch(url, download.abortHandle);
+      download.result.complete(content);
+      return content;
+    } catch (IOException | RuntimeException | Error ex) {
+      download.result.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(url, download);
+    }
+  }
+
+  @Override
+  public InputStream openStream(String url, AbortHandle abortHandle) throws IOException {
+    requestCount.increment();
+    return delegate.openStream(url, abortHandle);
+  }
+
+  @Override
+  public void peek(String url, AbortHandle abortHandle) throws IOException {
+    requestCount.increment();
+    delegate.peek(url, abortHandle);
+  }
+
+  private static byte[] await(CompletableFuture<byte[]> download) throws IOException {
+    try {
+      return download.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a shared download");
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      Throwables.throwIfInstanceOf(cause, IOException.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new IOException(cause);
+    }
+  }
+
+  /** Returns the number of requests made to this fetcher. */
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /** Returns the number of requests that shared the download of a concurrent request. */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+}
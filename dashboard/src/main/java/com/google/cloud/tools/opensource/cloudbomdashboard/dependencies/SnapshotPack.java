@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Archive of the files that a dashboard run fetches from Maven repositories, such as POMs,
+ * {@code maven-metadata.xml}, checksums, and JAR files, keyed by their URLs. A pack
+ * written by a {@link Recorder} serves the same files without network access when it is set as
+ * the {@link ResourceFetcher}; a URL not in the pack is reported as not found, so that a replayed
+ * run sees exactly the repository contents of the recorded run.
+ *
+ * <p>The pack is a single {@link MappedKeyValueFile}. Opening it maps the file and reads no
+ * contents; each fetch is a binary search over the URLs.
+ */
+public final class SnapshotPack implements ResourceFetcher {
+
+  private static final int MAGIC = 0x534e5031; // "SNP1"
+
+  private final Path file;
+  private final MappedKeyValueFile contents;
+
+  private SnapshotPack(Path file, MappedKeyValueFile contents) {
+    this.file = file;
+    this.contents = contents;
+  }
+
+  /**
+   * Opens the pack at {@code file}.
+   *
+   * @throws IOException if the file cannot be read or is not a snapshot pack
+   */
+  public static SnapshotPack open(Path file) throws IOException {
+    return new SnapshotPack(file, MappedKeyValueFile.open(file, MAGIC));
+  }
+
+  /** Returns the number of files in the pack. */
+  public int size() {
+    return contents.size();
+  }
+
+  @Override
+  public byte[] fetch(String url) throws FileNotFoundException {
+    ByteBuffer content = contents.get(url);
+    if (content == null) {
+      throw new FileNotFoundException(url + " is not in the snapshot pack " + file);
+    }
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Returns a recorder that fetches files through {@code delegate} and writes them to a pack at
+   * {@code file}. The pack appears at {@code file} when the recorder is closed. JAR files are
+   * recorded too, because the resolver of a replayed run downloads every artifact of the
+   * dependency graphs and the class checks read them.
+   */
+  public static Recorder record(Path file, ResourceFetcher delegate) throws IOException {
+    return new Recorder(new MappedKeyValueFile.Writer(file, MAGIC), delegate);
+  }
+
+  /**
+   * Fetcher recording the files fetched successfully through another fetcher. Files not found are
+   * not recorded, because a pack reports missing URLs as not found.
+   */
+  public static final class Recorder implements ResourceFetcher, Closeable {
+    private final MappedKeyValueFile.Writer writer;
+    private final ResourceFetcher delegate;
+    private int recordedCount;
+
+    private Recorder(MappedKeyValueFile.Writer writer, ResourceFetcher delegate) {
+      this.writer = writer;
+      this.delegate = checkNotNull(delegate);
+    }
+
+    @Override
+    public byte[] fetch(String url) throws IOException {
+      return fetch(url, new AbortHandle());
+    }
+
+    @Override
+    public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+      byte[] content = delegate.fetch(url, abortHandle);
+      synchronized (this) {
+        writer.put(url, content);
+        recordedCount++;
+      }
+      return content;
+    }
+
+    /** Returns the number of files recorded. A file fetched twice is counted twice. */
+    public synchronized int getRecordedCount() {
+      return recordedCount;
+    }
+
+    /** Writes the pack to its file. */
+    @Override
+    public synchronized void close() throws IOException {
+      writer.close();
+    }
+
+    /** Discards the recorded files without writing the pack. */
+    public synchronized void abort() throws IOException {
+      writer.abort();
+    }
+  }
+}
@@ -35,6 +35,21 @@ public class Update {
     this.to = to;
   }
   
+  /** Returns the artifact that needs to upgrade its dependency. */
+  public Artifact getParent() {
+    return parent;
+  }
+
+  /** Returns the dependency at its current version. */
+  public Artifact getFrom() {
+    return from;
+  }
+
+  /** Returns the dependency at the version to upgrade to. */
+  public Artifact getTo() {
+    return to;
+  }
+
   @Override
   public String toString() {
     return com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.Artifacts.toCoordinates(parent) + " needs to upgrade "
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/** Fetches resources with {@link URL#openStream()}. */
+final class UrlResourceFetcher implements ResourceFetcher {
+
+  static final UrlResourceFetcher INSTANCE = new UrlResourceFetcher();
+
+  private UrlResourceFetcher() {}
+
+  @Override
+  public byte[] fetch(String url) throws IOException {
+    // HttpURLConnection throws FileNotFoundException for 404 responses
+    try (InputStream input = new URL(url).openStream()) {
+      return ByteStreams.toByteArray(input);
+    }
+  }
+}
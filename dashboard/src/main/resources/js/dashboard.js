@@ -25,3 +25,420 @@ function toggleSourceClassListVisibility(button) {
   classList.style.display = nextVisibility ? "" : "none";
   button.innerText = nextVisibility ? "▼" : "▶";
 }
+
+/** Height in pixels of a row of the member table; matches .member-row in dashboard.css. */
+const MEMBER_ROW_HEIGHT = 32;
+
+/** Number of rows rendered above and below the visible ones, so that scrolling stays smooth. */
+const MEMBER_TABLE_OVERSCAN = 10;
+
+/**
+ * Columns of the member table before the test columns. Values of `link` name the column holding
+ * the URL that the cell links to.
+ */
+const MEMBER_COLUMNS = [
+  {key: "artifactId", title: "artifact"},
+  {key: "currentVersion", title: "version in BOM", link: "sharedDependenciesPosition"},
+  {key: "latestVersion", title: "latest released version", link: "latestPomUrl"},
+  {key: "updatedTime", title: "latest released date", link: "metadataUrl"},
+  {key: "sharedDependenciesVersion", title: "version of google-cloud-shared-dependencies"},
+];
+
+/**
+ * Table of the BOM members rendered from the columnar data file. Only the rows in view are in
+ * the document, so that the cost of rendering does not grow with the number of members. The
+ * details of a member are fetched when its row is expanded.
+ */
+class MemberTable {
+  /**
+   * @param container element replaced by the table
+   * @param data content of the data file
+   * @param dataUrl URL of the data file, which the detail files are relative to
+   */
+  constructor(container, data, dataUrl) {
+    this.data = data;
+    this.dataUrl = dataUrl;
+    this.sortKey = "artifactId";
+    this.sortAscending = true;
+    this.filterText = "";
+    this.failingOnly = false;
+    // Expanded row indexes to the measured heights of their details
+    this.expanded = new Map();
+    // Detail chunk indexes to promises of their members
+    this.detailChunks = new Map();
+    this.loadedDetails = new Map();
+    this.renderScheduled = false;
+
+    this.gridColumns =
+        "2em minmax(14em, 2fr) repeat(" + (MEMBER_COLUMNS.length - 1) + ", minmax(8em, 1fr)) "
+        + "repeat(" + data.tests.length + ", 9em)";
+
+    this.header = document.createElement("div");
+    this.header.className = "member-row member-header";
+    this.header.style.position = "relative";
+    this.header.style.gridTemplateColumns = this.gridColumns;
+    this.header.appendChild(document.createElement("span"));
+    for (const column of MEMBER_COLUMNS) {
+      this.header.appendChild(this.createHeaderCell(column.key, column.title));
+    }
+    for (const test of data.tests) {
+      this.header.appendChild(this.createHeaderCell(test, test));
+    }
+
+    this.viewport = document.createElement("div");
+    this.viewport.className = "member-table-viewport";
+    this.body = document.createElement("div");
+    this.body.className = "member-table-body";
+    this.viewport.appendChild(this.body);
+    this.viewport.addEventListener("scroll", () => this.scheduleRender());
+    window.addEventListener("resize", () => this.scheduleRender());
+
+    this.status = document.createElement("p");
+    this.status.className = "member-table-status";
+
+    container.textContent = "";
+    container.appendChild(this.status);
+    container.appendChild(this.header);
+    container.appendChild(this.viewport);
+    this.updateView();
+  }
+
+  createHeaderCell(key, title) {
+    const cell = document.createElement("button");
+    cell.className = "member-cell member-sort";
+    cell.textContent = title;
+    cell.title = "Sort by " + title;
+    cell.addEventListener("click", () => {
+      this.sortAscending = this.sortKey === key ? !this.sortAscending : true;
+      this.sortKey = key;
+      this.updateView();
+    });
+    return cell;
+  }
+
+  /** Returns the value of a column for a row; strings for string columns, numbers for tests. */
+  value(key, row) {
+    const value = this.data.columns[key][row];
+    if (this.data.tests.includes(key)) {
+      return value;
+    }
+    return value === null ? null : this.data.strings[value];
+  }
+
+  /** Sets the filter on artifact IDs. */
+  setFilter(text) {
+    this.filterText = text.trim().toLowerCase();
+    this.updateView();
+  }
+
+  /** Shows only the members failing a test or with a test that did not run. */
+  setFailingOnly(failingOnly) {
+    this.failingOnly = failingOnly;
+    this.updateView();
+  }
+
+  /** Computes the filtered and sorted rows, then renders them. */
+  updateView() {
+    const view = [];
+    for (let row = 0; row < this.data.rowCount; row++) {
+      if (this.filterText
+          && !this.value("artifactId", row).toLowerCase().includes(this.filterText)) {
+        continue;
+      }
+      if (this.failingOnly
+          && this.data.tests.every(test => this.data.columns[test][row] === 0)) {
+        continue;
+      }
+      view.push(row);
+    }
+    const direction = this.sortAscending ? 1 : -1;
+    const isTest = this.data.tests.includes(this.sortKey);
+    view.sort((left, right) => {
+      const a = this.value(this.sortKey, left);
+      const b = this.value(this.sortKey, right);
+      if (a === b) {
+        return left - right;
+      }
+      // Missing values and tests that did not run come last in both directions
+      if (a === null) {
+        return 1;
+      }
+      if (b === null) {
+        return -1;
+      }
+      const comparison = isTest ? a - b : a.localeCompare(b);
+      return direction * comparison;
+    });
+    this.view = view;
+    this.status.textContent =
+        "Showing " + view.length + " of " + this.data.rowCount + " members";
+    this.updateOffsets();
+    this.render();
+  }
+
+  /** Computes the top of each row in the view, as expanded rows are taller. */
+  updateOffsets() {
+    const offsets = new Float64Array(this.view.length + 1);
+    for (let i = 0; i < this.view.length; i++) {
+      const detailHeight = this.expanded.get(this.view[i]) || 0;
+      offsets[i + 1] = offsets[i] + MEMBER_ROW_HEIGHT + detailHeight;
+    }
+    this.offsets = offsets;
+    this.body.style.height = offsets[this.view.length] + "px";
+  }
+
+  /** Returns the index in the view of the row at the vertical position `top`. */
+  rowAt(top) {
+    let low = 0;
+    let high = this.view.length - 1;
+    while (low < high) {
+      const middle = (low + high + 1) >> 1;
+      if (this.offsets[middle] <= top) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  scheduleRender() {
+    if (!this.renderScheduled) {
+      this.renderScheduled = true;
+      window.requestAnimationFrame(() => {
+        this.renderScheduled = false;
+        this.render();
+      });
+    }
+  }
+
+  /** Renders the rows in view, measuring the details rendered for the first time. */
+  render() {
+    const fragment = document.createDocumentFragment();
+    if (this.view.length > 0) {
+      const top = this.viewport.scrollTop;
+      const first = Math.max(0, this.rowAt(top) - MEMBER_TABLE_OVERSCAN);
+      const last = Math.min(
+          this.view.length - 1,
+          this.rowAt(top + this.viewport.clientHeight) + MEMBER_TABLE_OVERSCAN);
+      for (let i = first; i <= last; i++) {
+        this.renderRow(fragment, this.view[i], this.offsets[i]);
+      }
+    }
+    this.body.textContent = "";
+    this.body.appendChild(fragment);
+
+    let heightChanged = false;
+    for (const detail of this.body.querySelectorAll(".member-detail")) {
+      const row = Number(detail.dataset.row);
+      if (this.expanded.get(row) !== detail.offsetHeight) {
+        this.expanded.set(row, detail.offsetHeight);
+        heightChanged = true;
+      }
+    }
+    if (heightChanged) {
+      this.updateOffsets();
+      this.scheduleRender();
+    }
+  }
+
+  renderRow(parent, row, top) {
+    const element = document.createElement("div");
+    element.className = "member-row";
+    element.style.top = top + "px";
+    element.style.gridTemplateColumns = this.gridColumns;
+
+    const toggle = document.createElement("button");
+    toggle.className = "member-cell member-toggle";
+    toggle.textContent = this.expanded.has(row) ? "▼" : "▶";
+    toggle.title = "Toggle the details of the member";
+    toggle.addEventListener("click", () => this.toggle(row));
+    element.appendChild(toggle);
+
+    for (const column of MEMBER_COLUMNS) {
+      const cell = document.createElement("span");
+      cell.className = "member-cell";
+      const text = this.value(column.key, row) || "";
+      const url = column.link ? this.value(column.link, row) : null;
+      if (url) {
+        const link = document.createElement("a");
+        link.href = url;
+        link.target = "_blank";
+        link.textContent = text;
+        cell.appendChild(link);
+      } else {
+        cell.textContent = text;
+      }
+      cell.title = text;
+      element.appendChild(cell);
+    }
+    for (const test of this.data.tests) {
+      const failures = this.data.columns[test][row];
+      const cell = document.createElement("span");
+      if (failures === null) {
+        cell.className = "member-cell unavailable";
+        cell.textContent = "UNAVAILABLE";
+      } else if (failures === 0) {
+        cell.className = "member-cell pass";
+        cell.textContent = "PASS";
+      } else {
+        cell.className = "member-cell fail";
+        cell.textContent = failures + (failures === 1 ? " FAILURE" : " FAILURES");
+      }
+      element.appendChild(cell);
+    }
+    parent.appendChild(element);
+
+    if (this.expanded.has(row)) {
+      const detail = document.createElement("div");
+      detail.className = "member-detail";
+      detail.dataset.row = row;
+      detail.style.top = (top + MEMBER_ROW_HEIGHT) + "px";
+      const details = this.loadedDetails.get(row);
+      if (details) {
+        renderMemberDetails(detail, details);
+      } else {
+        detail.textContent = "Loading…";
+      }
+      parent.appendChild(detail);
+    }
+  }
+
+  /** Expands or collapses the details of a row, fetching them on first use. */
+  toggle(row) {
+    if (this.expanded.has(row)) {
+      this.expanded.delete(row);
+    } else {
+      this.expanded.set(row, 0);
+      const details = this.loadedDetails.get(row);
+      if (!details || details.error) {
+        this.loadDetails(row);
+      }
+    }
+    this.updateOffsets();
+    this.render();
+  }
+
+  loadDetails(row) {
+    const chunkSize = this.data.detailChunkSize;
+    const chunk = Math.floor(row / chunkSize);
+    if (!this.detailChunks.has(chunk)) {
+      const url = new URL("details/" + chunk + ".json", this.dataUrl);
+      this.detailChunks.set(
+          chunk,
+          fetch(url).then(response => {
+            if (!response.ok) {
+              throw new Error(url + " returned " + response.status);
+            }
+            return response.json();
+          }));
+    }
+    this.detailChunks.get(chunk).then(
+        members => {
+          members.forEach((details, i) => this.loadedDetails.set(chunk * chunkSize + i, details));
+          this.render();
+        },
+        error => {
+          // Expanding the row again retries
+          this.detailChunks.delete(chunk);
+          this.loadedDetails.set(row, {error: String(error)});
+          this.render();
+        });
+  }
+}
+
+/**
+ * Fills an element with the details of a member from a detail file.
+ * @param element element to fill
+ * @param details the member's object in the detail file
+ */
+function renderMemberDetails(element, details) {
+  function addList(title, items) {
+    if (items.length === 0) {
+      return;
+    }
+    const heading = document.createElement("p");
+    heading.className = "member-detail-title";
+    heading.textContent = title;
+    element.appendChild(heading);
+    const list = document.createElement("ul");
+    list.className = "jar-linkage-report-cause";
+    for (const item of items) {
+      const entry = document.createElement("li");
+      entry.textContent = item;
+      list.appendChild(entry);
+    }
+    element.appendChild(list);
+  }
+
+  if (details.error) {
+    element.textContent = "Failed to load the details: " + details.error;
+    return;
+  }
+  const coordinates = document.createElement("p");
+  coordinates.className = "member-detail-title";
+  coordinates.textContent = details.coordinates;
+  element.appendChild(coordinates);
+  if (details.exception) {
+    addList("Exception", [details.exception]);
+  }
+  addList("Upper Bounds",
+      details.upperBoundFailures.map(([selected, highest]) => selected + " is lower than " + highest));
+  addList("Dependency Convergence",
+      details.updates.map(([parent, from, to]) => "Update " + parent + ": " + from + " to " + to));
+  for (const [test, problems] of Object.entries(details.problems)) {
+    addList(test, problems);
+  }
+  if (element.childElementCount === 1) {
+    addList("Problems", ["None"]);
+  }
+}
+
+/** Renders the member table of the page from its data file, if the page has one. */
+function initializeMemberTable() {
+  const container = document.getElementById("member-table");
+  if (!container) {
+    return;
+  }
+  const dataUrl = new URL(container.dataset.src, document.baseURI);
+  fetch(dataUrl)
+      .then(response => {
+        if (!response.ok) {
+          throw new Error(dataUrl + " returned " + response.status);
+        }
+        return response.json();
+      })
+      .then(data => {
+        const table = new MemberTable(container, data, dataUrl);
+        const filter = document.getElementById("member-filter");
+        filter.addEventListener("input", () => table.setFilter(filter.value));
+        const failingOnly = document.getElementById("member-failing-only");
+        failingOnly.addEventListener("change", () => table.setFailingOnly(failingOnly.checked));
+      })
+      .catch(error => {
+        // Browsers do not fetch files of file: pages
+        container.textContent = "Failed to load the member table: " + error
+            + ". Open the dashboard from an HTTP server.";
+      });
+}
+
+/** Shows the generation time of the page from its run file, if the page has one. */
+function initializeGenerationTime() {
+  const element = document.getElementById("updated");
+  if (!element || !element.dataset.src) {
+    return;
+  }
+  fetch(new URL(element.dataset.src, document.baseURI))
+      .then(response => response.ok ? response.json() : null)
+      .then(run => {
+        if (run) {
+          element.textContent = "Last generated at " + new Date(run.generatedAt).toLocaleString();
+        }
+      })
+      .catch(() => {
+        // The time is left out when the run file cannot be fetched
+      });
+}
+
+document.addEventListener("DOMContentLoaded", initializeMemberTable);
+document.addEventListener("DOMContentLoaded", initializeGenerationTime);
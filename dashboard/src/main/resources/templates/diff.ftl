@@ -0,0 +1,116 @@
+<!DOCTYPE html>
+<html lang="en-US">
+  <head>
+    <meta charset="utf-8" />
+    <title>${diff.newBom?html} compared to ${diff.oldBom?html}</title>
+    <link rel="stylesheet" href="../../assets/dashboard.css" />
+  </head>
+  <body>
+    <h1>${diff.newBom?html} compared to ${diff.oldBom?html}</h1>
+    <hr />
+
+    <p>
+      ${diff.memberDiffs?size} members changed, ${diff.unchangedMemberCount} unchanged,
+      ${diff.addedMembers?size} added, and ${diff.removedMembers?size} removed.
+      ${diff.comparedNodeCount} dependency tree nodes compared;
+      ${diff.skippedNodeCount} skipped in identical subtrees.
+      <a href="diff.json">JSON</a>
+    </p>
+
+    <#if diff.addedMembers?has_content>
+      <h2>Added Members</h2>
+      <ul>
+        <#list diff.addedMembers as member>
+          <li>${member?html}</li>
+        </#list>
+      </ul>
+    </#if>
+
+    <#if diff.removedMembers?has_content>
+      <h2>Removed Members</h2>
+      <ul>
+        <#list diff.removedMembers as member>
+          <li>${member?html}</li>
+        </#list>
+      </ul>
+    </#if>
+
+    <#if diff.memberDiffs?has_content>
+      <h2>Changed Members</h2>
+    </#if>
+    <#list diff.memberDiffs as member>
+      <h3>${member.key?html}
+        <#if member.oldVersion != member.newVersion>
+          ${member.oldVersion?html} → ${member.newVersion?html}
+        <#else>
+          ${member.newVersion?html}
+        </#if>
+      </h3>
+
+      <#if member.testChanges?has_content>
+        <table>
+          <tr><th>test</th><th>failures before</th><th>failures after</th></tr>
+          <#list member.testChanges as change>
+            <tr>
+              <td>${change.testName?html}</td>
+              <td>${(change.from?c)!"UNAVAILABLE"}</td>
+              <td class="${change.regression?then('fail', 'pass')}">${(change.to?c)!"UNAVAILABLE"}</td>
+            </tr>
+          </#list>
+        </table>
+      </#if>
+
+      <#if member.newConvergenceFailures?has_content>
+        <p class="jar-linkage-report-cause">New convergence failures</p>
+        <ul class="jar-linkage-report-cause">
+          <#list member.newConvergenceFailures as failure><li>${failure?html}</li></#list>
+        </ul>
+      </#if>
+      <#if member.fixedConvergenceFailures?has_content>
+        <p class="jar-linkage-report-cause">Fixed convergence failures</p>
+        <ul class="jar-linkage-report-cause">
+          <#list member.fixedConvergenceFailures as failure><li>${failure?html}</li></#list>
+        </ul>
+      </#if>
+      <#if member.newUpperBoundFailures?has_content>
+        <p class="jar-linkage-report-cause">New upper bound failures</p>
+        <ul class="jar-linkage-report-cause">
+          <#list member.newUpperBoundFailures as failure><li>${failure?html}</li></#list>
+        </ul>
+      </#if>
+      <#if member.fixedUpperBoundFailures?has_content>
+        <p class="jar-linkage-report-cause">Fixed upper bound failures</p>
+        <ul class="jar-linkage-report-cause">
+          <#list member.fixedUpperBoundFailures as failure><li>${failure?html}</li></#list>
+        </ul>
+      </#if>
+
+      <#if !member.treeCompared>
+        <p class="jar-linkage-report-cause">
+          The dependency trees were not compared, as a report does not store them.
+        </p>
+      <#elseif member.treeChanges?has_content>
+        <p class="jar-linkage-report-cause">Dependency tree changes</p>
+        <ul class="jar-linkage-report-cause">
+          <#list member.treeChanges as change>
+            <li>
+              <#if change.type == "added">
+                + ${change.path?html}:${change.to?html}<#if change.subtreeSize gt 1> and ${change.subtreeSize - 1} dependencies</#if>
+              <#elseif change.type == "removed">
+                − ${change.path?html}:${change.from?html}<#if change.subtreeSize gt 1> and ${change.subtreeSize - 1} dependencies</#if>
+              <#else>
+                ~ ${change.path?html}: ${change.from?html} → ${change.to?html}
+              </#if>
+            </li>
+          </#list>
+        </ul>
+      </#if>
+    </#list>
+
+    <hr />
+
+    <#if lastUpdated??>
+      <p id='updated'>Last generated at ${lastUpdated}</p>
+    </#if>
+  </body>
+</html>
@@ -4,8 +4,8 @@
   <head>
     <meta charset="utf-8" />
     <title>Google Cloud Platform Java Open Source Dependency Dashboard</title>
-    <link rel="stylesheet" href="dashboard.css" />
-    <script src="dashboard.js"></script>
+    <link rel="stylesheet" href="../assets/dashboard.css" />
+    <script src="../assets/dashboard.js"></script>
   </head>
   <body>
     <h1>${coordinates} Dependency Status</h1>
@@ -21,41 +21,44 @@
 
         <div class="statistic-item statistic-item-orange">
           <#assign localUpperBoundsErrorCount = dashboardMain.countFailures(table, "Upper Bounds")>
-          <h2>${dashboardMain.countFailures(table, "Upper Bounds")}</h2>
+          <h2>${localUpperBoundsErrorCount}</h2>
           <span class="desc">${(localUpperBoundsErrorCount == 1)?then("Has", "Have")} Upper Bounds Errors</span>
         </div>
 
         <div class="statistic-item statistic-item-blue">
           <#assign convergenceErrorCount = dashboardMain.countFailures(table, "Dependency Convergence")>
-          <h2>${dashboardMain.countFailures(table, "Dependency Convergence")}</h2>
+          <h2>${convergenceErrorCount}</h2>
           <span class="desc">${(convergenceErrorCount == 1)?then("Fails", "Fail")} to Converge</span>
         </div>
+
+        <div class="statistic-item statistic-item-red">
+          <#assign linkageErrorCount = dashboardMain.countFailures(table, "Linkage Errors")>
+          <h2>${linkageErrorCount}</h2>
+          <span class="desc">${(linkageErrorCount == 1)?then("Has", "Have")} Linkage Errors</span>
+        </div>
+
+        <div class="statistic-item statistic-item-yellow">
+          <#assign duplicateClassCount = dashboardMain.countFailures(table, "Duplicate Classes")>
+          <h2>${duplicateClassCount}</h2>
+          <span class="desc">${(duplicateClassCount == 1)?then("Has", "Have")} Duplicate Classes</span>
+        </div>
       </div>
     </section>
 
     <h2>Library Versions</h2>
-      
-    <table id="library versions">
-      <tr>
-        <th>artifact</th>
-        <th>version in google-cloud-bom</th>
-        <th>latest released version</th>
-        <th>latest released date</th>
-        <th>version of google-cloud-shared-dependencies</th>
-      </tr>
-      <#list artifacts as artifact>
-        <tr>
-          <th>${artifact}</th>
-          <th><a target="_blank" href=${sharedDepsPosition[artifact]}>${currentVersion[artifact]}</a></th>
-          <th><a target="_blank" href=${newestPomURL[artifact]}>${newestVersion[artifact]}</a></th>
-          <th><a target="_blank" href=${metadataURL[artifact]}>${updatedTime[artifact]}</a></th>
-          <th>${sharedDepsVersion[artifact]}</th>
-        </tr>
-      </#list>
-    </table>
+
+    <div class="member-table-controls">
+      <input type="search" id="member-filter" placeholder="Filter by artifact" />
+      <label><input type="checkbox" id="member-failing-only" /> failing members only</label>
+    </div>
+    <!-- Rendered by dashboard.js from the data file -->
+    <div id="member-table" data-src="${dataFileName}">
+      <noscript>The member table requires JavaScript.</noscript>
+    </div>
 
     <hr />
 
-    <p id='updated'>Last generated at ${lastUpdated}</p>
+    <!-- Filled by dashboard.js from the run file -->
+    <p id='updated' data-src="${runFileName}"></p>
   </body>
 </html>
\ No newline at end of file
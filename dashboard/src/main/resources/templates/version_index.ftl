@@ -3,18 +3,59 @@
 <head>
   <meta charset="utf-8" />
   <title>${groupId}:${artifactId}</title>
-  <link rel="stylesheet" href="dashboard.css" />
+  <link rel="stylesheet" href="assets/dashboard.css" />
 </head>
 <body>
 <h1>${groupId}:${artifactId}</h1>
 
-<ul>
-  <#list versions as version>
-    <li>
-      <a href="${version?contains('-SNAPSHOT')?then('snapshot', version)}/index.html">${version}</a>
-    </li>
+<#if charts?has_content && charts[0].markers?size gt 1>
+  <h2>Trends</h2>
+  <div class="trend-charts">
+    <#list charts as chart>
+      <figure class="trend-chart">
+        <figcaption>${chart.title} (max ${chart.maxValue})</figcaption>
+        <svg width="${chart.width?c}" height="${chart.height?c}"
+             viewBox="0 0 ${chart.width?c} ${chart.height?c}" role="img">
+          <polyline points="${chart.points}" />
+          <#list chart.markers as marker>
+            <circle cx="${marker.x}" cy="${marker.y}" r="3">
+              <title>${marker.version}: ${marker.value}</title>
+            </circle>
+          </#list>
+        </svg>
+        <div class="trend-chart-axis">
+          <span>${chart.markers?first.version}</span>
+          <span>${chart.markers?last.version}</span>
+        </div>
+      </figure>
+    </#list>
+  </div>
+</#if>
+
+<table>
+  <tr>
+    <th>version</th>
+    <th>artifacts checked</th>
+    <th>upper bounds errors</th>
+    <th>convergence errors</th>
+    <th>linkage errors</th>
+    <th>duplicate classes</th>
+  </tr>
+  <#list summaries as summary>
+    <tr>
+      <td><a href="${summary.directory}/index.html">${summary.version}</a></td>
+      <#if summary.complete>
+        <td>${summary.memberCount}</td>
+        <td>${summary.getFailedMemberCount("Upper Bounds")}</td>
+        <td>${summary.getFailedMemberCount("Dependency Convergence")}</td>
+        <td>${summary.getFailedMemberCount("Linkage Errors")}</td>
+        <td>${summary.getFailedMemberCount("Duplicate Classes")}</td>
+      <#else>
+        <td colspan="5">UNAVAILABLE</td>
+      </#if>
+    </tr>
   </#list>
-</ul>
+</table>
 
 </body>
 </html>
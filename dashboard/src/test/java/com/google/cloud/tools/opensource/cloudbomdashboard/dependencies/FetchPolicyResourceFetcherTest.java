@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.opensource.cloudbomdashboard.dependencies.FetchPolicyResourceFetcher.Outcome;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class FetchPolicyResourceFetcherTest {
+
+  private static final String URL = "https://repo.example.com/g/a/1.0/a-1.0.pom";
+  private static final byte[] CONTENT = "<project/>".getBytes(StandardCharsets.UTF_8);
+
+  /** Answers the requests of a fake delegate, given the number of the request starting at 1. */
+  private interface Handler {
+    byte[] handle(int requestNumber, AbortHandle abortHandle) throws IOException;
+  }
+
+  /** Delegate answering each request with its handler and counting the requests. */
+  private static final class FakeFetcher implements ResourceFetcher {
+    private final Handler handler;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private FakeFetcher(Handler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public byte[] fetch(String url) throws IOException {
+      return fetch(url, new AbortHandle());
+    }
+
+    @Override
+    public byte[] fetch(String url, AbortHandle abortHandle) throws IOException {
+      return handler.handle(requestCount.incrementAndGet(), abortHandle);
+    }
+  }
+
+  private FetchPolicyResourceFetcher fetcher;
+
+  @After
+  public void tearDown() {
+    if (fetcher != null) {
+      fetcher.close();
+    }
+  }
+
+  /** Blocks until the request is aborted, as a request stuck on a slow connection. */
+  private static byte[] awaitAbort(AbortHandle abortHandle) throws IOException {
+    CountDownLatch aborted = new CountDownLatch(1);
+    abortHandle.onAbort(aborted::countDown);
+    try {
+      if (!aborted.await(10, TimeUnit.SECONDS)) {
+        throw new IOException("The request was not aborted");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    throw new IOException("Aborted");
+  }
+
+  /** Waits for the outcomes of the attempts still finishing in the background. */
+  private void awaitAttemptCount(long count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (fetcher.getAttemptCount() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(fetcher.getAttemptCount()).isEqualTo(count);
+  }
+
+  @Test
+  public void testFetch_retriesFailedAttempts() throws IOException {
+    FakeFetcher delegate =
+        new FakeFetcher(
+            (requestNumber, abortHandle) -> {
+              if (requestNumber < 3) {
+                throw new IOException("Connection reset");
+              }
+              return CONTENT;
+            });
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setMaxAttempts(3)
+            .setBackoff(Duration.ZERO, Duration.ZERO)
+            .setHedging(false)
+            .build();
+
+    assertThat(fetcher.fetch(URL)).isEqualTo(CONTENT);
+    assertThat(delegate.requestCount.get()).isEqualTo(3);
+    assertThat(fetcher.getRetryCount()).isEqualTo(2);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.FAILURE)).isEqualTo(2);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.SUCCESS)).isEqualTo(1);
+    assertThat(fetcher.getRecentFailures()).hasSize(2);
+  }
+
+  @Test
+  public void testFetch_stopsAtMaxAttempts() {
+    FakeFetcher delegate =
+        new FakeFetcher(
+            (requestNumber, abortHandle) -> {
+              throw new IOException("Connection reset " + requestNumber);
+            });
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setMaxAttempts(2)
+            .setBackoff(Duration.ZERO, Duration.ZERO)
+            .setHedging(false)
+            .build();
+
+    try {
+      fetcher.fetch(URL);
+      fail("The fetch should fail after 2 attempts");
+    } catch (IOException ex) {
+      assertThat(ex).hasMessageThat().isEqualTo("Connection reset 2");
+    }
+    assertThat(delegate.requestCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFetch_doesNotRetryNotFound() throws IOException {
+    FakeFetcher delegate =
+        new FakeFetcher(
+            (requestNumber, abortHandle) -> {
+              throw new FileNotFoundException(URL);
+            });
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setBackoff(Duration.ZERO, Duration.ZERO)
+            .setHedging(false)
+            .build();
+
+    try {
+      fetcher.fetch(URL);
+      fail("The fetch should fail");
+    } catch (FileNotFoundException ex) {
+      // expected
+    }
+    assertThat(delegate.requestCount.get()).isEqualTo(1);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.NOT_FOUND)).isEqualTo(1);
+    assertThat(fetcher.getRetryCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBackoff_exponentialWithFullJitter() {
+    fetcher =
+        FetchPolicyResourceFetcher.builder(new FakeFetcher((requestNumber, abortHandle) -> CONTENT))
+            .setBackoff(Duration.ofMillis(100), Duration.ofMillis(300))
+            .build();
+
+    long max1 = 0;
+    long max3 = 0;
+    for (int i = 0; i < 1000; i++) {
+      long backoff1 = fetcher.backoffNanos(1);
+      assertThat(backoff1).isAtLeast(0L);
+      assertThat(backoff1).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+      max1 = Math.max(max1, backoff1);
+
+      // 400 milliseconds for the third attempt, capped by the maximum
+      long backoff3 = fetcher.backoffNanos(3);
+      assertThat(backoff3).isAtLeast(0L);
+      assertThat(backoff3).isLessThan(TimeUnit.MILLISECONDS.toNanos(300));
+      max3 = Math.max(max3, backoff3);
+    }
+    // The jitter spreads the backoffs over their whole range
+    assertThat(max1).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(50));
+    assertThat(max3).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(150));
+  }
+
+  @Test
+  public void testFetch_hedgesSlowAttempt() throws IOException, InterruptedException {
+    FakeFetcher delegate =
+        new FakeFetcher(
+            (requestNumber, abortHandle) ->
+                requestNumber == 1 ? awaitAbort(abortHandle) : CONTENT);
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setHedgingDelay(Duration.ofMillis(50), Duration.ofMillis(50))
+            .build();
+
+    assertThat(fetcher.fetch(URL)).isEqualTo(CONTENT);
+    assertThat(fetcher.getHedgedCount()).isEqualTo(1);
+    assertThat(fetcher.getRetryCount()).isEqualTo(0);
+    // The slow attempt lost the race and was aborted
+    awaitAttemptCount(2);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.SUCCESS)).isEqualTo(1);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.CANCELLED)).isEqualTo(1);
+  }
+
+  @Test
+  public void testFetch_noHedgingWhenDisabled() throws IOException {
+    FakeFetcher delegate =
+        new FakeFetcher(
+            (requestNumber, abortHandle) -> {
+              try {
+                Thread.sleep(200);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+              return CONTENT;
+            });
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setHedging(false)
+            .setHedgingDelay(Duration.ofMillis(10), Duration.ofMillis(10))
+            .build();
+
+    assertThat(fetcher.fetch(URL)).isEqualTo(CONTENT);
+    assertThat(delegate.requestCount.get()).isEqualTo(1);
+    assertThat(fetcher.getHedgedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFetch_abortsAttemptAtDeadline() throws InterruptedException {
+    FakeFetcher delegate =
+        new FakeFetcher((requestNumber, abortHandle) -> awaitAbort(abortHandle));
+    fetcher =
+        FetchPolicyResourceFetcher.builder(delegate)
+            .setDeadline(Duration.ofMillis(100))
+            .setHedging(false)
+            .build();
+
+    try {
+      fetcher.fetch(URL);
+      fail("The fetch should not complete within the deadline");
+    } catch (SocketTimeoutException ex) {
+      assertThat(ex).hasMessageThat().contains("deadline");
+    } catch (IOException ex) {
+      fail("Unexpected failure: " + ex);
+    }
+    // Not retried, and the attempt in flight was aborted
+    awaitAttemptCount(1);
+    assertThat(delegate.requestCount.get()).isEqualTo(1);
+    assertThat(fetcher.getOutcomeCounts().get(Outcome.CANCELLED)).isEqualTo(1);
+  }
+}
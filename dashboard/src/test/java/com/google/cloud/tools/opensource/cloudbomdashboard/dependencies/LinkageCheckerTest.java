@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.cloudbomdashboard.dependencies;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.INVOKEVIRTUAL;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.Type;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LinkageCheckerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testFindLinkageProblems_methodRemovedFromSuperclass() throws IOException {
+    // Version 2.0 of the library no longer declares removed()
+    Path library =
+        writeJar("library-2.0.jar", ImmutableMap.of("test.Base", declaringClass("test.Base")));
+    Path application =
+        writeJar(
+            "application-1.0.jar",
+            ImmutableMap.of(
+                "test.Caller",
+                callingClass("test.Caller", "test.Base", "kept()V", "removed()V", "hashCode()I")));
+
+    ImmutableList<ArtifactProblem> problems =
+        check(application, "test:application:1.0", library, "test:library:2.0");
+
+    assertThat(problems).hasSize(1);
+    LinkageProblem problem = (LinkageProblem) problems.get(0);
+    assertThat(problem.getArtifact().getArtifactId()).isEqualTo("application");
+    assertThat(problem.getMissingSymbols()).containsExactly("test.Caller.removed()V");
+  }
+
+  @Test
+  public void testFindLinkageProblems_methodMissingFromJdkSuperclass() throws IOException {
+    Path application =
+        writeJar(
+            "application-1.0.jar",
+            ImmutableMap.of(
+                "test.ListCaller",
+                callingClass(
+                    "test.ListCaller",
+                    "java.util.AbstractList",
+                    "isEmpty()Z",
+                    "iterator()Ljava/util/Iterator;",
+                    "gone()V")));
+
+    ImmutableList<ArtifactProblem> problems = check(application, "test:application:1.0");
+
+    assertThat(problems).hasSize(1);
+    LinkageProblem problem = (LinkageProblem) problems.get(0);
+    assertThat(problem.getMissingSymbols()).containsExactly("test.ListCaller.gone()V");
+  }
+
+  @Test
+  public void testFindLinkageProblems_methodInSuperclass() throws IOException {
+    Path library =
+        writeJar(
+            "library-1.0.jar",
+            ImmutableMap.of("test.Base", declaringClass("test.Base", "removed")));
+    Path application =
+        writeJar(
+            "application-1.0.jar",
+            ImmutableMap.of(
+                "test.Caller",
+                callingClass(
+                    "test.Caller",
+                    "test.Base",
+                    "kept()V",
+                    "removed()V",
+                    "toString()Ljava/lang/String;")));
+
+    ImmutableList<ArtifactProblem> problems =
+        check(application, "test:application:1.0", library, "test:library:1.0");
+
+    assertThat(problems).isEmpty();
+  }
+
+  /** Checks a graph whose root depends on each JAR file, given with its coordinates, in order. */
+  private ImmutableList<ArtifactProblem> check(Object... jarsAndCoordinates) throws IOException {
+    DependencyNode root = new DefaultDependencyNode(new DefaultArtifact("test:root:1.0"));
+    ImmutableList.Builder<DependencyNode> children = ImmutableList.builder();
+    for (int i = 0; i < jarsAndCoordinates.length; i += 2) {
+      Path jar = (Path) jarsAndCoordinates[i];
+      DefaultArtifact artifact = new DefaultArtifact((String) jarsAndCoordinates[i + 1]);
+      children.add(
+          new DefaultDependencyNode(new Dependency(artifact.setFile(jar.toFile()), "compile")));
+    }
+    root.setChildren(children.build());
+
+    ClassIndex classIndex = new ClassIndex(temporaryFolder.newFolder("index").toPath());
+    return new LinkageChecker(classIndex, 2).findLinkageProblems(new DependencyGraph(root));
+  }
+
+  private Path writeJar(String fileName, Map<String, byte[]> classFiles) throws IOException {
+    Path jar = temporaryFolder.getRoot().toPath().resolve(fileName);
+    try (OutputStream output = Files.newOutputStream(jar);
+        JarOutputStream jarOutput = new JarOutputStream(output)) {
+      for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+        jarOutput.putNextEntry(new JarEntry(classFile.getKey().replace('.', '/') + ".class"));
+        jarOutput.write(classFile.getValue());
+        jarOutput.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  /**
+   * Returns a class file declaring a constructor, {@code kept()V} and a method without arguments
+   * returning void for each of {@code methods}.
+   */
+  private static byte[] declaringClass(String className, String... methods) {
+    ClassGen classGen =
+        new ClassGen(className, "java.lang.Object", null, Const.ACC_PUBLIC, new String[0]);
+    classGen.addEmptyConstructor(Const.ACC_PUBLIC);
+    addMethod(classGen, "kept", new InstructionList(InstructionConst.RETURN));
+    for (String method : methods) {
+      addMethod(classGen, method, new InstructionList(InstructionConst.RETURN));
+    }
+    return classGen.getJavaClass().getBytes();
+  }
+
+  /**
+   * Returns a class file extending {@code superClassName} whose {@code run()V} method calls each
+   * of {@code methods}, given by name and descriptor, on itself.
+   */
+  private static byte[] callingClass(String className, String superClassName, String... methods) {
+    ClassGen classGen =
+        new ClassGen(className, superClassName, null, Const.ACC_PUBLIC, new String[0]);
+    ConstantPoolGen constantPool = classGen.getConstantPool();
+    InstructionList instructions = new InstructionList();
+    for (String method : methods) {
+      int descriptorStart = method.indexOf('(');
+      instructions.append(InstructionConst.ALOAD_0);
+      instructions.append(
+          new INVOKEVIRTUAL(
+              constantPool.addMethodref(
+                  className,
+                  method.substring(0, descriptorStart),
+                  method.substring(descriptorStart))));
+      if (method.endsWith(")I") || method.endsWith(")Z") || method.endsWith(";")) {
+        instructions.append(InstructionFactory.createPop(1));
+      }
+    }
+    instructions.append(InstructionConst.RETURN);
+    addMethod(classGen, "run", instructions);
+    return classGen.getJavaClass().getBytes();
+  }
+
+  private static void addMethod(ClassGen classGen, String name, InstructionList instructions) {
+    MethodGen method =
+        new MethodGen(
+            Const.ACC_PUBLIC,
+            Type.VOID,
+            Type.NO_ARGS,
+            new String[0],
+            name,
+            classGen.getClassName(),
+            instructions,
+            classGen.getConstantPool());
+    method.setMaxStack();
+    method.setMaxLocals();
+    classGen.addMethod(method.getMethod());
+  }
+}